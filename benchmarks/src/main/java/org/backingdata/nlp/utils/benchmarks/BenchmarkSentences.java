@@ -0,0 +1,118 @@
+package org.backingdata.nlp.utils.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.backingdata.nlp.utils.Manage;
+
+/**
+ * English sentences of a given length for the benchmarks, built by joining clauses, and the set up of the resource folder
+ * with the model files.
+ *
+ */
+final class BenchmarkSentences {
+
+	private static final String[][] CLAUSES = new String[][] {
+		{"The", "committee", "approved", "the", "new", "budget", "for", "the", "next", "year"},
+		{"John", "wants", "to", "buy", "a", "house", "near", "the", "river"},
+		{"the", "researchers", "published", "their", "results", "in", "a", "well-known", "journal"},
+		{"she", "gave", "the", "book", "to", "her", "brother", "before", "leaving"},
+		{"prices", "rose", "sharply", "after", "the", "announcement", "of", "the", "merger"},
+		{"the", "children", "played", "in", "the", "garden", "while", "it", "was", "raining"},
+		{"our", "company", "will", "open", "two", "offices", "in", "Spain"},
+		{"the", "old", "bridge", "was", "repaired", "by", "a", "local", "firm"}
+	};
+
+	private static final String[] CONNECTIVES = new String[] {",", "and", "but", "because", "while"};
+
+	private BenchmarkSentences() {
+
+	}
+
+	/**
+	 * Get the tokens of a sentence, terminated by a full stop.
+	 *
+	 * @param tokenNumber the number of tokens of the sentence, full stop included
+	 * @param variant different variants give different sentences
+	 * @return
+	 */
+	static List<String> getTokens(int tokenNumber, int variant) {
+		List<String> retTokens = new ArrayList<String>(tokenNumber);
+		int clause = variant;
+		while(retTokens.size() < tokenNumber - 1) {
+			if(retTokens.size() > 0) {
+				retTokens.add(CONNECTIVES[clause % CONNECTIVES.length]);
+			}
+			retTokens.addAll(Arrays.asList(CLAUSES[clause % CLAUSES.length]));
+			clause++;
+		}
+		retTokens = new ArrayList<String>(retTokens.subList(0, Math.max(tokenNumber - 1, 1)));
+		retTokens.add(".");
+		return retTokens;
+	}
+
+	/**
+	 * Get the text of a sentence (see {@link #getTokens(int, int) getTokens}).
+	 *
+	 * @param tokenNumber
+	 * @param variant
+	 * @return
+	 */
+	static String getText(int tokenNumber, int variant) {
+		StringBuilder text = new StringBuilder();
+		for(String token : getTokens(tokenNumber, variant)) {
+			if(text.length() > 0 && !token.equals(",") && !token.equals(".")) {
+				text.append(' ');
+			}
+			text.append(token);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Get the text of a document of several sentences (see {@link #getTokens(int, int) getTokens}).
+	 *
+	 * @param tokenNumber the number of tokens of each sentence
+	 * @param sentenceNumber
+	 * @return
+	 */
+	static String getDocument(int tokenNumber, int sentenceNumber) {
+		StringBuilder document = new StringBuilder();
+		for(int s = 0; s < sentenceNumber; s++) {
+			if(s > 0) {
+				document.append(' ');
+			}
+			document.append(getText(tokenNumber, s));
+		}
+		return document.toString();
+	}
+
+	/**
+	 * Get the tokens of a batch of sentences (see {@link #getTokens(int, int) getTokens}).
+	 *
+	 * @param tokenNumber the number of tokens of each sentence
+	 * @param sentenceNumber
+	 * @return
+	 */
+	static List<List<String>> getBatch(int tokenNumber, int sentenceNumber) {
+		List<List<String>> retBatch = new ArrayList<List<String>>(sentenceNumber);
+		for(int s = 0; s < sentenceNumber; s++) {
+			retBatch.add(getTokens(tokenNumber, s));
+		}
+		return retBatch;
+	}
+
+	/**
+	 * Set the resource folder of nlp-utils, with the model files (JMH parameter resourceFolder).
+	 *
+	 * @param resourceFolder
+	 * @throws IllegalStateException if the folder does not exist
+	 */
+	static void setResourceFolder(String resourceFolder) {
+		if(!Manage.setResourceFolder(resourceFolder)) {
+			throw new IllegalStateException("Wrong resource folder '" + resourceFolder + "': set the folder with the model files by -p resourceFolder=/path/to/resource/folder");
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+package org.backingdata.nlp.utils.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.backingdata.nlp.utils.parser.mate.DependencyPath;
+import org.backingdata.nlp.utils.parser.mate.DependencyPathPattern;
+import org.backingdata.nlp.utils.parser.mate.DependencyTreeIndex;
+import org.backingdata.nlp.utils.parser.mate.ParseLevel;
+import org.backingdata.nlp.utils.parser.mate.ParsedSentence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Queries on the dependency tree of a {@link ParsedSentence ParsedSentence}: construction of the tree index, depth and subtree
+ * of each token, lowest common ancestors, paths and path patterns.<br/>
+ *
+ * java -jar target/benchmarks.jar DependencyTreeBenchmark
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DependencyTreeBenchmark {
+
+	@Param({"10", "25", "50", "100"})
+	public int tokenNumber;
+
+	private ParsedSentence sentence;
+
+	private DependencyPathPattern pattern;
+
+	@Setup
+	public void setup() {
+		// Tree with two children per node: nouns with NMOD / OBJ dependents of verbs
+		sentence = new ParsedSentence(tokenNumber);
+		List<String> tokens = BenchmarkSentences.getTokens(tokenNumber, 0);
+		for(int i = 0; i < tokenNumber; i++) {
+			sentence.setToken(i, tokens.get(i));
+			sentence.setLemma(i, tokens.get(i).toLowerCase());
+			sentence.setPos(i, (i % 2 == 0) ? "VBD" : "NN");
+			sentence.setDepFunct(i, (i == 0) ? "ROOT" : ((i % 2 == 0) ? "OBJ" : "SBJ"));
+			if(i > 0) {
+				sentence.setDepTarget(i, (i - 1) / 2);
+			}
+		}
+		sentence.setParseLevel(ParseLevel.DEPENDENCY);
+		pattern = DependencyPathPattern.compile("[pos=NN*] <SBJ [pos=VB*] >OBJ [pos=VB*]");
+	}
+
+	/**
+	 * Construction of the index of the tree, performed once per sentence.
+	 *
+	 */
+	@Benchmark
+	public DependencyTreeIndex buildIndex() {
+		// Setting a dependency target discards the index
+		sentence.setDepTarget(tokenNumber - 1, (tokenNumber - 2) / 2);
+		return sentence.getDepTreeIndex();
+	}
+
+	@Benchmark
+	public int depthAndSubtree() {
+		DependencyTreeIndex treeIndex = sentence.getDepTreeIndex();
+		int sum = 0;
+		for(int i = 0; i < tokenNumber; i++) {
+			sum += treeIndex.getDepth(i) + treeIndex.getSubtreeSize(i);
+		}
+		return sum;
+	}
+
+	/**
+	 * Lowest common ancestor of each token and the last one.
+	 *
+	 */
+	@Benchmark
+	public int lowestCommonAncestor() {
+		int sum = 0;
+		for(int i = 0; i < tokenNumber; i++) {
+			sum += sentence.getLowestCommonAncestor_depTree(i, tokenNumber - 1);
+		}
+		return sum;
+	}
+
+	/**
+	 * Path from the first to the last token.
+	 *
+	 */
+	@Benchmark
+	public DependencyPath path() {
+		return sentence.getPath_depTree(0, tokenNumber - 1);
+	}
+
+	@Benchmark
+	public List<DependencyPath> findPaths() {
+		return pattern.findAll(sentence);
+	}
+
+}
@@ -0,0 +1,103 @@
+package org.backingdata.nlp.utils.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.backingdata.nlp.utils.parser.mate.MateLanguage;
+import org.backingdata.nlp.utils.parser.mate.MateParser;
+import org.backingdata.nlp.utils.parser.mate.ParseLevel;
+import org.backingdata.nlp.utils.parser.mate.ParsedDocument;
+import org.backingdata.nlp.utils.parser.mate.ParsedSentence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of sentences by a {@link MateParser MateParser} engine, up to a parse level, with the models of the resource folder.<br/>
+ *
+ * The cost of each stage is the difference between the times of consecutive levels: POS (preprocessing: lemmatizer and POS tagger),
+ * DEPENDENCY (dependency parser) and SRL (semantic role labeller, including the conversion of its output into a ParsedSentence).
+ * The level TOKENIZE measures the conversion of the tokens into a ParsedSentence only.<br/>
+ *
+ * The engine has a pool of threads pipelines: the benchmark sentence is parsed by the calling thread, the benchmarks batch
+ * and document by the worker threads of the engine (threads * 8 sentences).<br/>
+ * java -jar target/benchmarks.jar MateParsingBenchmark -p resourceFolder=/path/to/resource/folder -p level=SRL -p threads=1,4
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class MateParsingBenchmark {
+
+	@Param({"resources"})
+	public String resourceFolder;
+
+	@Param({"English"})
+	public String language;
+
+	@Param({"POS", "DEPENDENCY", "SRL"})
+	public String level;
+
+	@Param({"10", "25", "50"})
+	public int tokenNumber;
+
+	@Param({"1", "4"})
+	public int threads;
+
+	private MateParser engine;
+
+	private List<String> sentence;
+
+	private List<List<String>> batch;
+
+	private String document;
+
+	@Setup
+	public void setup() {
+		BenchmarkSentences.setResourceFolder(resourceFolder);
+		engine = new MateParser(MateLanguage.valueOf(language), threads, ParseLevel.valueOf(level));
+		if(!engine.init(false)) {
+			throw new IllegalStateException("Impossible to load the Mate models from the resource folder " + resourceFolder);
+		}
+		sentence = BenchmarkSentences.getTokens(tokenNumber, 0);
+		batch = BenchmarkSentences.getBatch(tokenNumber, threads * 8);
+		document = BenchmarkSentences.getDocument(tokenNumber, threads * 8);
+	}
+
+	@TearDown
+	public void tearDown() {
+		engine.free();
+	}
+
+	@Benchmark
+	public ParsedSentence sentence() {
+		return engine.parseSentenceTokens(sentence);
+	}
+
+	@Benchmark
+	public List<ParsedSentence> batch() {
+		return engine.parseSentencesTokens(batch);
+	}
+
+	/**
+	 * Sentence splitting and tokenization in the calling thread, parsing by the worker threads.
+	 *
+	 */
+	@Benchmark
+	public ParsedDocument document() {
+		return engine.parseDocument(document);
+	}
+
+}
@@ -0,0 +1,136 @@
+package org.backingdata.nlp.utils.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import org.backingdata.nlp.utils.parser.mate.ParseLevel;
+import org.backingdata.nlp.utils.parser.mate.ParsedSentence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Read access to the tokens and dependency tree of a {@link ParsedSentence ParsedSentence}.<br/>
+ * 
+ * Run with the GC profiler to check that the read methods do not allocate memory (gc.alloc.rate.norm close to 0 B/op):<br/>
+ * java -jar target/benchmarks.jar ParsedSentenceAccessBenchmark -prof gc
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsedSentenceAccessBenchmark {
+
+	@Param({"20", "120"})
+	public int tokenNumber;
+
+	private ParsedSentence sentence;
+
+	private int[] childrenIds;
+
+	private ChildCounter childCounter = new ChildCounter();
+
+	@Setup
+	public void setup() {
+		// Right-branching tree with two children per node, with POS and dependency labels
+		sentence = new ParsedSentence(tokenNumber);
+		for(int i = 0; i < tokenNumber; i++) {
+			sentence.setToken(i, "token" + i);
+			sentence.setLemma(i, "lemma" + i);
+			sentence.setPos(i, (i % 2 == 0) ? "NN" : "VB");
+			sentence.setDepFunct(i, (i == 0) ? "ROOT" : ((i % 2 == 0) ? "OBJ" : "SBJ"));
+			if(i > 0) {
+				sentence.setDepTarget(i, (i - 1) / 2);
+			}
+		}
+		sentence.setParseLevel(ParseLevel.DEPENDENCY);
+		childrenIds = new int[tokenNumber];
+	}
+
+	@Benchmark
+	public void tokenListLoop(Blackhole blackhole) {
+		List<String> tokens = sentence.getToken();
+		List<String> pos = sentence.getPos();
+		for(int i = 0; i < tokens.size(); i++) {
+			blackhole.consume(tokens.get(i));
+			blackhole.consume(pos.get(i));
+		}
+	}
+
+	@Benchmark
+	public void tokenIndexLoop(Blackhole blackhole) {
+		for(int i = 0; i < sentence.getTokenCount(); i++) {
+			blackhole.consume(sentence.getTokenAtIndex(i));
+			blackhole.consume(sentence.getPOSatIndex(i));
+		}
+	}
+
+	@Benchmark
+	public int depTargetLoop() {
+		int sum = 0;
+		for(int i = 0; i < sentence.getTokenCount(); i++) {
+			sum += sentence.getDepTargetIdAtIndex(i);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int childrenIntoBuffer() {
+		int sum = 0;
+		for(int i = 0; i < sentence.getTokenCount(); i++) {
+			int childCount = sentence.getChildrenIds_depTree(i, childrenIds);
+			for(int c = 0; c < childCount; c++) {
+				sum += childrenIds[c];
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int childrenByConsumer() {
+		childCounter.sum = 0;
+		for(int i = 0; i < sentence.getTokenCount(); i++) {
+			sentence.forEachChild_depTree(i, childCounter);
+		}
+		return childCounter.sum;
+	}
+
+	/**
+	 * Baseline: the children lists allocated at each call.
+	 * 
+	 */
+	@Benchmark
+	public int childrenList() {
+		int sum = 0;
+		for(int i = 0; i < sentence.getTokenCount(); i++) {
+			for(Integer childId : sentence.getChildrenIds_depTree(i)) {
+				sum += childId;
+			}
+		}
+		return sum;
+	}
+
+	private static class ChildCounter implements IntConsumer {
+
+		int sum = 0;
+
+		@Override
+		public void accept(int childId) {
+			sum += childId;
+		}
+	}
+
+}
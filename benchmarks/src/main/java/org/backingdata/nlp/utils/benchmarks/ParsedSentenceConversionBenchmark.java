@@ -0,0 +1,119 @@
+package org.backingdata.nlp.utils.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.backingdata.nlp.utils.parser.mate.ParseLevel;
+import org.backingdata.nlp.utils.parser.mate.ParsedSentence;
+import org.backingdata.nlp.utils.parser.mate.ParsedSentenceConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import is2.data.SentenceData09;
+import se.lth.cs.srl.corpus.Predicate;
+import se.lth.cs.srl.corpus.Sentence;
+
+/**
+ * Conversion of the output of the Mate tools into a {@link ParsedSentence ParsedSentence} by {@link ParsedSentenceConverter ParsedSentenceConverter},
+ * the code executed by the parser at the end of each sentence: the output of the dependency parser and of the SRL (one frame every
+ * 5 tokens, with two arguments) is built once, without the Mate models.<br/>
+ *
+ * java -jar target/benchmarks.jar ParsedSentenceConversionBenchmark -prof gc
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsedSentenceConversionBenchmark {
+
+	@Param({"10", "25", "50", "100"})
+	public int tokenNumber;
+
+	// Tokens including the root token
+	private String[] tokensToProcess;
+
+	// Output of the dependency parser
+	private SentenceData09 parsed;
+
+	// Output of the SRL
+	private Sentence srlSentence;
+
+	private ParsedSentence parsedSentence;
+
+	@Setup
+	public void setup() {
+		List<String> sentenceTokens = BenchmarkSentences.getTokens(tokenNumber, 0);
+		tokensToProcess = new String[tokenNumber + 1];
+		tokensToProcess[0] = "<root>";
+		parsed = new SentenceData09();
+		parsed.forms = new String[tokenNumber];
+		parsed.plemmas = new String[tokenNumber];
+		parsed.ppos = new String[tokenNumber];
+		parsed.pfeats = new String[tokenNumber];
+		parsed.pheads = new int[tokenNumber];
+		parsed.plabels = new String[tokenNumber];
+		for(int i = 0; i < tokenNumber; i++) {
+			tokensToProcess[i + 1] = sentenceTokens.get(i);
+			parsed.forms[i] = sentenceTokens.get(i);
+			parsed.plemmas[i] = sentenceTokens.get(i).toLowerCase();
+			parsed.ppos[i] = (i % 3 == 0) ? "NN" : ((i % 3 == 1) ? "VBD" : "DT");
+			parsed.pfeats[i] = "_";
+			// Mate token ids: 1 for the first token, 0 for the root
+			parsed.pheads[i] = (i == 0) ? 0 : ((i - 1) / 2) + 1;
+			parsed.plabels[i] = (i == 0) ? "ROOT" : ((i % 2 == 0) ? "OBJ" : "NMOD");
+		}
+
+		srlSentence = new Sentence(parsed);
+		for(int f = 0; f < tokenNumber / 5; f++) {
+			int predicateId = f * 5 + 3;
+			srlSentence.makePredicate(predicateId);
+			Predicate predicate = (Predicate) srlSentence.get(predicateId);
+			predicate.setSense("v.01");
+			// Arguments added out of order, as by the SRL argument map
+			predicate.addArgMap(srlSentence.get(f * 5 + 4), "A1");
+			predicate.addArgMap(srlSentence.get(f * 5 + 1), "A0");
+		}
+
+		parsedSentence = convertSRL();
+	}
+
+	/**
+	 * Conversion of the output of the dependency parser (parse level DEPENDENCY).
+	 *
+	 */
+	@Benchmark
+	public ParsedSentence convertDependencies() {
+		return ParsedSentenceConverter.convert(tokensToProcess, parsed, ParseLevel.DEPENDENCY);
+	}
+
+	/**
+	 * Conversion of the output of the SRL (parse level SRL).
+	 *
+	 */
+	@Benchmark
+	public ParsedSentence convertSRL() {
+		return ParsedSentenceConverter.convert(tokensToProcess, srlSentence);
+	}
+
+	/**
+	 * Copy of a parsed sentence, as returned by the parse cache.
+	 *
+	 */
+	@Benchmark
+	public ParsedSentence copy() {
+		return new ParsedSentence(parsedSentence);
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.backingdata.nlp.utils.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.backingdata.nlp.utils.parser.mate.MateLanguage;
+import org.backingdata.nlp.utils.parser.mate.OpenNLPFrontEnd;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import opennlp.tools.sentdetect.SentenceDetector;
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.util.Span;
+
+/**
+ * Sentence splitting and tokenization by the OpenNLP front-end of the Mate parser ({@link OpenNLPFrontEnd OpenNLPFrontEnd}).<br/>
+ *
+ * Each benchmark thread has its own tokenizer and sentence detector (as the threads of the parser), thus the scalability
+ * can be measured by the JMH option -t:<br/>
+ * java -jar target/benchmarks.jar TokenizationBenchmark -p resourceFolder=/path/to/resource/folder -t 4
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizationBenchmark {
+
+	@Param({"resources"})
+	public String resourceFolder;
+
+	@Param({"English"})
+	public String language;
+
+	@Param({"10", "25", "50", "100"})
+	public int tokenNumber;
+
+	private Tokenizer tokenizer;
+
+	private SentenceDetector sentenceDetector;
+
+	private String sentence;
+
+	// Document of 10 sentences
+	private String document;
+
+	@Setup
+	public void setup() throws Exception {
+		BenchmarkSentences.setResourceFolder(resourceFolder);
+		OpenNLPFrontEnd frontEnd = new OpenNLPFrontEnd(MateLanguage.valueOf(language));
+		tokenizer = frontEnd.newTokenizer();
+		sentenceDetector = frontEnd.newSentenceDetector();
+		sentence = BenchmarkSentences.getText(tokenNumber, 0);
+		document = BenchmarkSentences.getDocument(tokenNumber, 10);
+	}
+
+	@Benchmark
+	public String[] tokenize() {
+		return tokenizer.tokenize(sentence);
+	}
+
+	/**
+	 * Tokenization with the character offsets of the tokens, as performed by the parser.
+	 *
+	 */
+	@Benchmark
+	public Span[] tokenizePos() {
+		return tokenizer.tokenizePos(sentence);
+	}
+
+	@Benchmark
+	public Span[] splitDocument() {
+		return sentenceDetector.sentPosDetect(document);
+	}
+
+}
@@ -13,6 +13,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.backingdata.nlp.utils.Manage;
 import org.backingdata.nlp.utils.parser.mate.MateParserEN;
+import org.backingdata.nlp.utils.parser.mate.ParseLevel;
 import org.backingdata.nlp.utils.parser.mate.ParsedSentence;
 
 import it.uniroma1.lcl.babelfy.commons.BabelfyConfiguration;
@@ -294,7 +295,7 @@ public class BabelfyUtil {
 		List<List<BabelToken>> listSentences = new ArrayList<List<BabelToken>>();
 
 		// Parse by Mate the first sentence to retrieve token-POS.
-		ParsedSentence ps = MateParserEN.parseSentence("The new algorithm has been proposed by the first author.");
+		ParsedSentence ps = MateParserEN.parseSentence("The new algorithm has been proposed by the first author.", ParseLevel.POS);
 		List<BabelToken> listToken = new ArrayList<BabelToken>();
 		for(int i = 0; i < ps.getToken().size(); i++) {
 			String tokenPOS = ps.getPOSatIndex(i);
@@ -323,7 +324,7 @@ public class BabelfyUtil {
 		listSentences.add(listToken);
 
 		// Parse by Mate the second sentence to retrieve token-POS.
-		ps = MateParserEN.parseSentence("The big bang theory is based on ideas of Edwin Hubble.");
+		ps = MateParserEN.parseSentence("The big bang theory is based on ideas of Edwin Hubble.", ParseLevel.POS);
 		listToken = new ArrayList<BabelToken>();
 		for(int i = 0; i < ps.getToken().size(); i++) {
 			String tokenPOS = ps.getPOSatIndex(i);
@@ -352,7 +353,7 @@ public class BabelfyUtil {
 		listSentences.add(listToken);
 
 		// Parse by Mate the first sentence to retrieve token-POS.
-		ps = MateParserEN.parseSentence("We have collected a lot of different butterflies.");
+		ps = MateParserEN.parseSentence("We have collected a lot of different butterflies.", ParseLevel.POS);
 		listToken = new ArrayList<BabelToken>();
 		for(int i = 0; i < ps.getToken().size(); i++) {
 			String tokenPOS = ps.getPOSatIndex(i);
@@ -0,0 +1,328 @@
+package org.backingdata.nlp.utils.langres.wikifreq;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Parallel reader of the Wikipedia term frequency files (one line for each lemma and POS: 'lemma POS termFrequency docFrequency').<br/>
+ *
+ * The file is split into ranges of bytes aligned on line breaks, parsed in parallel: each range is read in blocks and its lines
+ * are split into fields at byte level, thus only the lemma is decoded as a String. Each range fills its own partial result,
+ * the partial results are returned in order of position in the file to be merged.<br/>
+ *
+ * The lines are parsed as by the former line by line readers: the line is trimmed, it must have 4 fields separated by single spaces,
+ * a non empty lemma (lowercased and trimmed) and an integer term frequency; the other lines are skipped.
+ *
+ */
+final class WikipediaFrequencyFileReader {
+
+	private static final Logger logger = LoggerFactory.getLogger(WikipediaFrequencyFileReader.class);
+
+	private static final int BLOCK_SIZE = 4 * 1024 * 1024;
+
+	private static final long MIN_RANGE_SIZE = 8l * 1024l * 1024l;
+
+	// Single character POS strings of ASCII POS tags
+	private static final String[] ASCII_STRINGS = new String[128];
+	static {
+		for(int c = 0; c < ASCII_STRINGS.length; c++) {
+			ASCII_STRINGS[c] = String.valueOf((char) c);
+		}
+	}
+
+	/**
+	 * Receives the lines of a range of the file.
+	 *
+	 * @param <P> partial result of a range
+	 */
+	interface LineHandler<P> {
+
+		P newPartial();
+
+		/**
+		 * @param partial partial result of the range of the line
+		 * @param lemma lemma, lowercased and trimmed
+		 * @param posInitial first character of the POS tag (trimmed), null if the POS tag is empty
+		 * @param termFrequency
+		 */
+		void handle(P partial, String lemma, String posInitial, int termFrequency);
+	}
+
+	private WikipediaFrequencyFileReader() {
+
+	}
+
+	/**
+	 * Read a term frequency file by as many threads as available processors.
+	 *
+	 * @param file
+	 * @param handler
+	 * @return the partial results of the ranges of the file, in order of position
+	 * @throws IOException
+	 */
+	static <P> List<P> read(File file, final LineHandler<P> handler) throws IOException {
+		return read(file, handler, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Read a term frequency file.
+	 *
+	 * @param file
+	 * @param handler
+	 * @param threads number of ranges read at the same time
+	 * @return the partial results of the ranges of the file, in order of position
+	 * @throws IOException
+	 */
+	static <P> List<P> read(final File file, final LineHandler<P> handler, int threads) throws IOException {
+		long startTime = System.currentTimeMillis();
+		threads = Math.max(1, threads);
+
+		final long[] rangeBounds = getRangeBounds(file, threads);
+		int rangeNumber = rangeBounds.length - 1;
+
+		List<P> retPartials = new ArrayList<P>(rangeNumber);
+		if(rangeNumber == 1) {
+			retPartials.add(readRange(file, rangeBounds[0], rangeBounds[1], handler));
+			return retPartials;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, rangeNumber));
+		try {
+			List<Future<P>> partials = new ArrayList<Future<P>>(rangeNumber);
+			for(int r = 0; r < rangeNumber; r++) {
+				final int range = r;
+				partials.add(executor.submit(new Callable<P>() {
+					@Override
+					public P call() throws Exception {
+						return readRange(file, rangeBounds[range], rangeBounds[range + 1], handler);
+					}
+				}));
+			}
+
+			for(Future<P> partial : partials) {
+				retPartials.add(partial.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading " + file.getAbsolutePath());
+		} catch (ExecutionException e) {
+			throw (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		logger.debug("Read " + file.getAbsolutePath() + " in " + rangeNumber + " ranges by " + threads + " threads in " + (System.currentTimeMillis() - startTime) + " ms.");
+		return retPartials;
+	}
+
+	/**
+	 * Split a file into ranges that start at the beginning of a line.
+	 *
+	 * @return the bounds of the ranges: start of each range, then the size of the file
+	 */
+	private static long[] getRangeBounds(File file, int threads) throws IOException {
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+				FileChannel channel = randomAccessFile.getChannel()) {
+			long size = channel.size();
+			// Some ranges more than the threads, to balance the lines of different length
+			int rangeNumber = (int) Math.max(1l, Math.min(threads * 4l, size / MIN_RANGE_SIZE));
+
+			List<Long> bounds = new ArrayList<Long>();
+			bounds.add(0l);
+			ByteBuffer buffer = ByteBuffer.allocate(8192);
+			for(int r = 1; r < rangeNumber; r++) {
+				long position = Math.max(size * r / rangeNumber, bounds.get(bounds.size() - 1));
+				// Move after the next line break
+				boolean found = false;
+				while(!found && position < size) {
+					buffer.clear();
+					int read = channel.read(buffer, position);
+					if(read <= 0) {
+						break;
+					}
+					for(int b = 0; b < read; b++) {
+						if(buffer.get(b) == '\n') {
+							position += b + 1;
+							found = true;
+							break;
+						}
+					}
+					if(!found) {
+						position += read;
+					}
+				}
+				if(position < size && position > bounds.get(bounds.size() - 1)) {
+					bounds.add(position);
+				}
+			}
+			bounds.add(size);
+
+			long[] retBounds = new long[bounds.size()];
+			for(int b = 0; b < retBounds.length; b++) {
+				retBounds[b] = bounds.get(b);
+			}
+			return retBounds;
+		}
+	}
+
+	/**
+	 * Read the lines of a range of a file.
+	 *
+	 */
+	private static <P> P readRange(File file, long start, long end, LineHandler<P> handler) throws IOException {
+		P retPartial = handler.newPartial();
+		Charset charset = Charset.defaultCharset();
+
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+				FileChannel channel = randomAccessFile.getChannel()) {
+			byte[] block = new byte[(int) Math.min(BLOCK_SIZE, Math.max(1l, end - start))];
+			int blockLength = 0;
+			long position = start;
+			while(true) {
+				// Fill the block after the incomplete line left by the previous block
+				if(blockLength == block.length) {
+					byte[] largerBlock = new byte[block.length * 2];
+					System.arraycopy(block, 0, largerBlock, 0, blockLength);
+					block = largerBlock;
+				}
+				int read = 0;
+				if(position < end) {
+					ByteBuffer buffer = ByteBuffer.wrap(block, blockLength, (int) Math.min(block.length - blockLength, end - position));
+					read = channel.read(buffer, position);
+					if(read < 0) {
+						read = 0;
+						position = end;
+					}
+					position += read;
+				}
+				blockLength += read;
+				boolean lastBlock = position >= end;
+
+				int lineStart = 0;
+				for(int b = 0; b < blockLength; b++) {
+					if(block[b] == '\n') {
+						parseLine(block, lineStart, b, charset, handler, retPartial);
+						lineStart = b + 1;
+					}
+				}
+				if(lastBlock) {
+					if(lineStart < blockLength) {
+						parseLine(block, lineStart, blockLength, charset, handler, retPartial);
+					}
+					break;
+				}
+
+				// Keep the incomplete line for the next block
+				System.arraycopy(block, lineStart, block, 0, blockLength - lineStart);
+				blockLength -= lineStart;
+			}
+		}
+
+		return retPartial;
+	}
+
+	/**
+	 * Parse a line: 'lemma POS termFrequency docFrequency'.
+	 *
+	 */
+	private static <P> void parseLine(byte[] bytes, int start, int end, Charset charset, LineHandler<P> handler, P partial) {
+		// Trim
+		while(start < end && (bytes[start] & 0xFF) <= ' ') {
+			start++;
+		}
+		while(end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+			end--;
+		}
+		if(start == end) {
+			return;
+		}
+
+		// Exactly 4 fields separated by single spaces
+		int lemmaEnd = -1;
+		int posEnd = -1;
+		int tfEnd = -1;
+		for(int b = start; b < end; b++) {
+			if(bytes[b] == ' ') {
+				if(lemmaEnd < 0) {
+					lemmaEnd = b;
+				}
+				else if(posEnd < 0) {
+					posEnd = b;
+				}
+				else if(tfEnd < 0) {
+					tfEnd = b;
+				}
+				else {
+					return;
+				}
+			}
+		}
+		if(tfEnd < 0) {
+			return;
+		}
+
+		int termFrequency = 0;
+		int tfStart = posEnd + 1;
+		boolean negative = false;
+		if(tfStart < tfEnd && (bytes[tfStart] == '-' || bytes[tfStart] == '+')) {
+			negative = bytes[tfStart] == '-';
+			tfStart++;
+		}
+		if(tfStart == tfEnd) {
+			return;
+		}
+		// Accumulated as negative number, to parse Integer.MIN_VALUE too
+		long value = 0l;
+		for(int b = tfStart; b < tfEnd; b++) {
+			int digit = bytes[b] - '0';
+			if(digit < 0 || digit > 9) {
+				return;
+			}
+			value = value * 10l - digit;
+			if(value < Integer.MIN_VALUE) {
+				return;
+			}
+		}
+		if(!negative && value == Integer.MIN_VALUE) {
+			return;
+		}
+		termFrequency = (int) (negative ? value : -value);
+
+		String lemma = new String(bytes, start, lemmaEnd - start, charset).toLowerCase().trim();
+		if(lemma.length() == 0) {
+			return;
+		}
+
+		String posInitial = null;
+		int posStart = lemmaEnd + 1;
+		if(posStart < posEnd) {
+			int firstByte = bytes[posStart] & 0xFF;
+			if(firstByte > ' ' && firstByte < 0x80) {
+				posInitial = ASCII_STRINGS[firstByte];
+			}
+			else {
+				String pos = new String(bytes, posStart, posEnd - posStart, charset).trim();
+				posInitial = (pos.length() > 0) ? pos.substring(0, 1) : null;
+			}
+		}
+
+		handler.handle(partial, lemma, posInitial, termFrequency);
+	}
+
+}
@@ -0,0 +1,307 @@
+package org.backingdata.nlp.utils.langres.wikifreq;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.backingdata.nlp.utils.Manage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gnu.trove.TObjectIntHashMap;
+import gnu.trove.TObjectIntIterator;
+
+
+/**
+ * Compiled lemma frequency table of a language: a binary file with an open addressing hash table of lemmas, memory-mapped
+ * instead of loaded into the heap. Thus opening a table takes no time, lookups do not allocate objects and the same file
+ * is shared through the page cache by all the processes that use it.<br/>
+ *
+ * The tables are compiled from the Wikipedia term frequency files by {@link WikipediaLemmaTermFrequency#compileFrequencyTable(LangENUM)
+ * WikipediaLemmaTermFrequency.compileFrequencyTable} (or the main method of this class) and stored next to them: when available,
+ * they are used by {@link WikipediaLemmaTermFrequency WikipediaLemmaTermFrequency} in place of the term frequency files.<br/>
+ *
+ * File layout (big endian): magic number, version, number of lemmas, minimum and maximum frequency, number of slots (power of two),
+ * slots (hash of the lemma and offset of its record, 0 for empty slots), records (frequency, length and UTF-8 bytes of the lemma).
+ *
+ */
+public final class WikipediaLemmaFrequencyTable {
+
+	private static final Logger logger = LoggerFactory.getLogger(WikipediaLemmaFrequencyTable.class);
+
+	public static final String FILE_EXTENSION = ".lemmaTF.bin";
+
+	private static final int MAGIC = 0x574C4654;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 24;
+
+	private static final int SLOT_SIZE = 8;
+
+	private final File file;
+
+	private final MappedByteBuffer buffer;
+
+	private final int size;
+
+	private final int minFrequency;
+
+	private final int maxFrequency;
+
+	private final int slotMask;
+
+	private WikipediaLemmaFrequencyTable(File file, MappedByteBuffer buffer) throws IOException {
+		this.file = file;
+		this.buffer = buffer;
+		if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a lemma frequency table: " + file.getAbsolutePath());
+		}
+		if(buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported version " + buffer.getInt(4) + " of lemma frequency table: " + file.getAbsolutePath());
+		}
+		this.size = buffer.getInt(8);
+		this.minFrequency = buffer.getInt(12);
+		this.maxFrequency = buffer.getInt(16);
+		int slotCount = buffer.getInt(20);
+		if(Integer.bitCount(slotCount) != 1 || HEADER_SIZE + (long) slotCount * SLOT_SIZE > buffer.capacity()) {
+			throw new IOException("Corrupted lemma frequency table: " + file.getAbsolutePath());
+		}
+		this.slotMask = slotCount - 1;
+	}
+
+	/**
+	 * Memory-map a compiled lemma frequency table.
+	 *
+	 * @param tableFile
+	 * @return
+	 * @throws IOException if the file cannot be read or is not a lemma frequency table
+	 */
+	public static WikipediaLemmaFrequencyTable open(File tableFile) throws IOException {
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(tableFile, "r");
+				FileChannel channel = randomAccessFile.getChannel()) {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Lemma frequency table too large: " + tableFile.getAbsolutePath());
+			}
+			// The mapping stays valid after the channel is closed
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.BIG_ENDIAN);
+			return new WikipediaLemmaFrequencyTable(tableFile, buffer);
+		}
+	}
+
+	/**
+	 * Get the file of the compiled table of a term frequency file (same folder and name, extension {@value #FILE_EXTENSION}).
+	 *
+	 * @param termFrequencyFile
+	 * @return
+	 */
+	public static File getTableFile(File termFrequencyFile) {
+		String name = termFrequencyFile.getName();
+		if(name.endsWith(".dat")) {
+			name = name.substring(0, name.length() - 4);
+		}
+		return new File(termFrequencyFile.getParentFile(), name + FILE_EXTENSION);
+	}
+
+	/**
+	 * Write a lemma frequency table. The file is written to a temporary file, then renamed.
+	 *
+	 * @param lemmaFrequencies frequency of each lemma
+	 * @param minFrequency
+	 * @param maxFrequency
+	 * @param tableFile
+	 * @throws IOException
+	 */
+	public static void write(TObjectIntHashMap<String> lemmaFrequencies, int minFrequency, int maxFrequency, File tableFile) throws IOException {
+		int size = lemmaFrequencies.size();
+		String[] lemmas = new String[size];
+		int[] frequencies = new int[size];
+		TObjectIntIterator<String> lemmaIterator = lemmaFrequencies.iterator();
+		for(int l = 0; l < size; l++) {
+			lemmaIterator.advance();
+			lemmas[l] = lemmaIterator.key();
+			frequencies[l] = lemmaIterator.value();
+		}
+
+		// Load factor at most 0.5
+		int slotCount = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+		if(slotCount <= 0 || HEADER_SIZE + (long) slotCount * SLOT_SIZE > Integer.MAX_VALUE) {
+			throw new IOException("Too many lemmas for a lemma frequency table: " + size);
+		}
+		int[] slotHashes = new int[slotCount];
+		int[] slotOffsets = new int[slotCount];
+		long recordOffset = HEADER_SIZE + (long) slotCount * SLOT_SIZE;
+		for(int l = 0; l < size; l++) {
+			int hash = lemmas[l].hashCode();
+			int slot = spread(hash) & (slotCount - 1);
+			while(slotOffsets[slot] != 0) {
+				slot = (slot + 1) & (slotCount - 1);
+			}
+			slotHashes[slot] = hash;
+			slotOffsets[slot] = (int) recordOffset;
+			recordOffset += 8 + lemmas[l].getBytes(StandardCharsets.UTF_8).length;
+			if(recordOffset > Integer.MAX_VALUE) {
+				throw new IOException("Lemmas too large for a lemma frequency table");
+			}
+		}
+
+		File tempFile = new File(tableFile.getAbsolutePath() + ".tmp");
+		try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(size);
+			output.writeInt(minFrequency);
+			output.writeInt(maxFrequency);
+			output.writeInt(slotCount);
+			for(int s = 0; s < slotCount; s++) {
+				output.writeInt(slotHashes[s]);
+				output.writeInt(slotOffsets[s]);
+			}
+			// Records in the same order of the offsets assigned above
+			for(int l = 0; l < size; l++) {
+				byte[] lemmaBytes = lemmas[l].getBytes(StandardCharsets.UTF_8);
+				output.writeInt(frequencies[l]);
+				output.writeInt(lemmaBytes.length);
+				output.write(lemmaBytes);
+			}
+		}
+		Files.move(tempFile.toPath(), tableFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		logger.info("Written lemma frequency table " + tableFile.getAbsolutePath() + " with " + size + " lemmas.");
+	}
+
+	/**
+	 * Get the frequency of a lemma (the lemma is looked up as is).
+	 *
+	 * @param lemma
+	 * @return 0 if the lemma is not in the table
+	 */
+	public int getFrequency(String lemma) {
+		if(lemma == null) {
+			return 0;
+		}
+		int hash = lemma.hashCode();
+		int slot = spread(hash) & slotMask;
+		while(true) {
+			int slotPosition = HEADER_SIZE + slot * SLOT_SIZE;
+			int recordOffset = buffer.getInt(slotPosition + 4);
+			if(recordOffset == 0) {
+				return 0;
+			}
+			if(buffer.getInt(slotPosition) == hash && matches(recordOffset, lemma)) {
+				return buffer.getInt(recordOffset);
+			}
+			slot = (slot + 1) & slotMask;
+		}
+	}
+
+	/**
+	 * Number of lemmas of the table.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getMinFrequency() {
+		return minFrequency;
+	}
+
+	public int getMaxFrequency() {
+		return maxFrequency;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Compare the UTF-8 bytes of the lemma of a record with a lemma, encoding the lemma while comparing
+	 * (unpaired surrogates are encoded as '?', as by String.getBytes).
+	 *
+	 */
+	private boolean matches(int recordOffset, String lemma) {
+		int position = recordOffset + 8;
+		int end = position + buffer.getInt(recordOffset + 4);
+		int length = lemma.length();
+		for(int c = 0; c < length; c++) {
+			int codePoint = lemma.charAt(c);
+			if(Character.isHighSurrogate((char) codePoint) && c + 1 < length && Character.isLowSurrogate(lemma.charAt(c + 1))) {
+				codePoint = Character.toCodePoint((char) codePoint, lemma.charAt(++c));
+			}
+			else if(Character.isSurrogate((char) codePoint)) {
+				codePoint = '?';
+			}
+
+			if(codePoint < 0x80) {
+				if(position >= end || buffer.get(position++) != (byte) codePoint) {
+					return false;
+				}
+			}
+			else if(codePoint < 0x800) {
+				if(position + 2 > end
+						|| buffer.get(position++) != (byte) (0xC0 | (codePoint >> 6))
+						|| buffer.get(position++) != (byte) (0x80 | (codePoint & 0x3F))) {
+					return false;
+				}
+			}
+			else if(codePoint < 0x10000) {
+				if(position + 3 > end
+						|| buffer.get(position++) != (byte) (0xE0 | (codePoint >> 12))
+						|| buffer.get(position++) != (byte) (0x80 | ((codePoint >> 6) & 0x3F))
+						|| buffer.get(position++) != (byte) (0x80 | (codePoint & 0x3F))) {
+					return false;
+				}
+			}
+			else {
+				if(position + 4 > end
+						|| buffer.get(position++) != (byte) (0xF0 | (codePoint >> 18))
+						|| buffer.get(position++) != (byte) (0x80 | ((codePoint >> 12) & 0x3F))
+						|| buffer.get(position++) != (byte) (0x80 | ((codePoint >> 6) & 0x3F))
+						|| buffer.get(position++) != (byte) (0x80 | (codePoint & 0x3F))) {
+					return false;
+				}
+			}
+		}
+		return position == end;
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Compile the lemma frequency tables of the Wikipedia term frequency files available in a resource folder.
+	 *
+	 * @param args resource folder
+	 */
+	public static void main(String[] args) {
+		if(args.length < 1) {
+			System.out.println("Usage: WikipediaLemmaFrequencyTable <resource folder>");
+			return;
+		}
+		Manage.setResourceFolder(args[0]);
+
+		for(LangENUM lang : new LangENUM[]{LangENUM.English, LangENUM.Spanish, LangENUM.Catalan}) {
+			try {
+				File tableFile = WikipediaLemmaTermFrequency.compileFrequencyTable(lang);
+				System.out.println("Compiled " + lang + " lemma frequency table: " + tableFile.getAbsolutePath());
+			}
+			catch(Exception e) {
+				System.out.println("Impossible to compile " + lang + " lemma frequency table: " + e.getMessage());
+			}
+		}
+	}
+
+}
@@ -1,10 +1,9 @@
 package org.backingdata.nlp.utils.langres.wikifreq;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -94,62 +93,51 @@ public class WikipediaLemmaPOStermFrequency {
 
 				System.out.println("Loading term frequency file: " + tfidfFile.getAbsolutePath() + "...");
 
-				try(BufferedReader br = new BufferedReader(new FileReader(tfidfFile))) {
-					int lineCount = 0;
-
-					for(String line; (line = br.readLine()) != null; ) {
-						line = line.trim();
-						try {
-							if(line.length() > 0) {
-								String[] splitLine = line.split(" ");
-								if(splitLine.length == 4) {
-									String lemma = splitLine[0];
-									String POS = splitLine[1];
-									String termFrequ = splitLine[2];
-									// String docFrequ = splitLine[3];
-
-									if(lemma != null && lemma.trim().length() > 0 && 
-											POS != null && POS.trim().length() > 0 &&
-											termFrequ != null && termFrequ.trim().length() > 0) {
-
-										lemma = lemma.toLowerCase().trim();
-
-										WordOccurrenceCounter woc = null;
-										if(currentWordIndex.containsKey(lemma)) {
-											woc = currentOccurrenceCounter.get(currentWordIndex.get(lemma));
-										}
-										else {
-											woc = new WordOccurrenceCounter();
-											int positionToAdd = currentOccurrenceCounter.size();
-											currentOccurrenceCounter.add(positionToAdd, woc);
-											currentWordIndex.put(lemma, positionToAdd);
-										}
-
-										if(woc.getByPOS().containsKey(POS.trim().substring(0, 1))) {
-											woc.getByPOS().put(POS.trim().substring(0, 1), woc.getByPOS().get(POS.trim().substring(0, 1)) + Integer.valueOf(termFrequ));
-										}
-										else {
-											woc.getByPOS().put(POS.trim().substring(0, 1), Integer.valueOf(termFrequ));
-										}
-
-										if(++lineCount % 500000 == 0) {
-											System.out.println("Lines processed: " + lineCount + " words. ");
-										}
-
-									}
-
-								}
-							}
+				// Read the file in parallel, each range of the file counting its lemmas in order of first occurrence
+				List<Map<String, WordOccurrenceCounter>> partialCounters = null;
+				try {
+					partialCounters = WikipediaFrequencyFileReader.read(tfidfFile, new WikipediaFrequencyFileReader.LineHandler<Map<String, WordOccurrenceCounter>>() {
+						@Override
+						public Map<String, WordOccurrenceCounter> newPartial() {
+							return new LinkedHashMap<String, WordOccurrenceCounter>();
 						}
-						catch(Exception e) {
-							/* Do nothing */
+
+						@Override
+						public void handle(Map<String, WordOccurrenceCounter> partial, String lemma, String posInitial, int termFrequency) {
+							if(posInitial == null) {
+								return;
+							}
+							WordOccurrenceCounter woc = partial.get(lemma);
+							if(woc == null) {
+								woc = new WordOccurrenceCounter();
+								partial.put(lemma, woc);
+							}
+							woc.getByPOS().put(posInitial, woc.getByPOS().get(posInitial) + termFrequency);
 						}
-					}
+					});
 				} catch (IOException e) {
 					throw new Exception("Impossible to read tfidf list for " + lang + " from file: '" +
 							((tfidfFileName != null) ? tfidfFileName : "NULL")+ "' - " + e.getMessage());
 				}
 
+				// Merge the ranges in order of position
+				for(Map<String, WordOccurrenceCounter> partialCounter : partialCounters) {
+					for(Map.Entry<String, WordOccurrenceCounter> lemmaCounter : partialCounter.entrySet()) {
+						if(currentWordIndex.containsKey(lemmaCounter.getKey())) {
+							TObjectIntHashMap<String> byPOS = currentOccurrenceCounter.get(currentWordIndex.get(lemmaCounter.getKey())).getByPOS();
+							TObjectIntIterator<String> it = lemmaCounter.getValue().getByPOS().iterator();
+							while(it.hasNext()) {
+								it.advance();
+								byPOS.put(it.key(), byPOS.get(it.key()) + it.value());
+							}
+						}
+						else {
+							currentWordIndex.put(lemmaCounter.getKey(), currentOccurrenceCounter.size());
+							currentOccurrenceCounter.add(lemmaCounter.getValue());
+						}
+					}
+				}
+
 				for(WordOccurrenceCounter woc : currentOccurrenceCounter) {
 					woc.updateTotal();
 				}
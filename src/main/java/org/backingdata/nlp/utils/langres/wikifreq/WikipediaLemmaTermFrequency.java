@@ -1,8 +1,9 @@
 package org.backingdata.nlp.utils.langres.wikifreq;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.backingdata.nlp.utils.Manage;
 import org.slf4j.Logger;
@@ -25,6 +26,11 @@ public class WikipediaLemmaTermFrequency {
 	private static TObjectIntHashMap<String> wordCounter_ES = null;
 	private static TObjectIntHashMap<String> wordCounter_CA = null;
 
+	// Compiled frequency tables (see WikipediaLemmaFrequencyTable), used in place of the word counters when available
+	private static WikipediaLemmaFrequencyTable frequencyTable_EN = null;
+	private static WikipediaLemmaFrequencyTable frequencyTable_ES = null;
+	private static WikipediaLemmaFrequencyTable frequencyTable_CA = null;
+
 	private static int maxWordFreq_EN = -1;
 	private static int maxWordFreq_ES = -1;
 	private static int maxWordFreq_CA = -1;
@@ -46,39 +52,78 @@ public class WikipediaLemmaTermFrequency {
 
 		if(lang != null) {
 
-			String tfidfFileName = Manage.getResourceFolder() + File.separator + "frequencies/wikipedia/";
-
-			TObjectIntHashMap<String> currentWordCounter = new TObjectIntHashMap<String>();
-			Integer minWordFreq = null;
-			Integer maxWordFreq = null;
-
 			switch(lang) {
 			case English:
-				if(wordCounter_EN != null) {
+				if(wordCounter_EN != null || frequencyTable_EN != null) {
 					return;
 				}
-				tfidfFileName += "enwiki_lemma_POS_TF_DF.dat";
-				wordCounter_EN = currentWordCounter;
 				break;
 			case Spanish:
-				if(wordCounter_ES != null) {
+				if(wordCounter_ES != null || frequencyTable_ES != null) {
 					return;
 				}
-				tfidfFileName += "eswiki_lemma_POS_TF_DF.dat";
-				wordCounter_ES = currentWordCounter;
 				break;
 			case Catalan:
-				if(wordCounter_CA != null) {
+				if(wordCounter_CA != null || frequencyTable_CA != null) {
 					return;
 				}
-				tfidfFileName += "cawiki_lemma_POS_TF_DF.dat";
-				wordCounter_CA = currentWordCounter;
 				break;
 			default:
-				if(wordCounter_EN != null) {
+				if(wordCounter_EN != null || frequencyTable_EN != null) {
 					return;
 				}
-				tfidfFileName += "enwiki_lemma_POS_TF_DF.dat";
+			}
+
+			String tfidfFileName = getTermFrequencyFileName(lang);
+
+			// Memory-map the compiled frequency table, if available and not older than the term frequency file
+			File tableFile = WikipediaLemmaFrequencyTable.getTableFile(new File(tfidfFileName));
+			if(tableFile.isFile() && tableFile.lastModified() < new File(tfidfFileName).lastModified()) {
+				logger.warn("The word frequency table " + tableFile.getAbsolutePath() + " is older than the term frequency file: "
+						+ "ignored, compile it again to use it.");
+			}
+			else if(tableFile.isFile()) {
+				WikipediaLemmaFrequencyTable frequencyTable = WikipediaLemmaFrequencyTable.open(tableFile);
+
+				switch(lang) {
+				case English:
+					frequencyTable_EN = frequencyTable;
+					minWordFreq_EN = frequencyTable.getMinFrequency();
+					maxWordFreq_EN = frequencyTable.getMaxFrequency();
+					break;
+				case Spanish:
+					frequencyTable_ES = frequencyTable;
+					minWordFreq_ES = frequencyTable.getMinFrequency();
+					maxWordFreq_ES = frequencyTable.getMaxFrequency();
+					break;
+				case Catalan:
+					frequencyTable_CA = frequencyTable;
+					minWordFreq_CA = frequencyTable.getMinFrequency();
+					maxWordFreq_CA = frequencyTable.getMaxFrequency();
+					break;
+				default:
+					frequencyTable_EN = frequencyTable;
+					minWordFreq_EN = frequencyTable.getMinFrequency();
+					maxWordFreq_EN = frequencyTable.getMaxFrequency();
+				}
+
+				logger.info("Opened word frequency table of " + lang + " with: " + frequencyTable.size() + " words.");
+				return;
+			}
+
+			TObjectIntHashMap<String> currentWordCounter = new TObjectIntHashMap<String>();
+
+			switch(lang) {
+			case English:
+				wordCounter_EN = currentWordCounter;
+				break;
+			case Spanish:
+				wordCounter_ES = currentWordCounter;
+				break;
+			case Catalan:
+				wordCounter_CA = currentWordCounter;
+				break;
+			default:
 				wordCounter_EN = currentWordCounter;
 			}
 
@@ -90,45 +135,9 @@ public class WikipediaLemmaTermFrequency {
 
 				System.out.println("Loading term frequency file: " + tfidfFile.getAbsolutePath() + "...");
 
-				try(BufferedReader br = new BufferedReader(new FileReader(tfidfFile))) {
-
-					for(String line; (line = br.readLine()) != null; ) {
-						line = line.trim();
-						try {
-							if(line.length() > 0) {
-								String[] splitLine = line.split(" ");
-								if(splitLine.length == 4) {
-									String lemma = splitLine[0];
-									// String POS = splitLine[1];
-									String termFrequ = splitLine[2];
-									// String docFrequ = splitLine[3];
-
-									if(lemma != null && lemma.trim().length() > 0 && 
-											termFrequ != null && termFrequ.trim().length() > 0) {
-
-										lemma = lemma.toLowerCase().trim();
-
-										if(currentWordCounter.containsKey(lemma)) {
-											Integer newWordCounter = currentWordCounter.get(lemma) + Integer.valueOf(termFrequ);
-											if(minWordFreq == null || newWordCounter < minWordFreq) minWordFreq = newWordCounter;
-											if(maxWordFreq == null || newWordCounter > maxWordFreq) maxWordFreq = newWordCounter;
-											currentWordCounter.put(lemma, newWordCounter);
-										}
-										else {
-											Integer newWordCounter = Integer.valueOf(termFrequ);
-											if(minWordFreq == null || newWordCounter < minWordFreq) minWordFreq = newWordCounter;
-											if(maxWordFreq == null || newWordCounter > maxWordFreq) maxWordFreq = newWordCounter;
-											currentWordCounter.put(lemma, newWordCounter);
-										}
-									}
-
-								}
-							}
-						}
-						catch(Exception e) {
-							/* Do nothing */
-						}
-					}
+				int[] minMaxWordFreq = null;
+				try {
+					minMaxWordFreq = readTermFrequencies(tfidfFile, currentWordCounter);
 				} catch (IOException e) {
 					throw new Exception("Impossible to read tfidf list for " + lang + " from file: '" +
 							((tfidfFileName != null) ? tfidfFileName : "NULL")+ "' - " + e.getMessage());
@@ -136,20 +145,20 @@ public class WikipediaLemmaTermFrequency {
 
 				switch(lang) {
 				case English:
-					minWordFreq_EN = minWordFreq;
-					maxWordFreq_EN = maxWordFreq;
+					minWordFreq_EN = minMaxWordFreq[0];
+					maxWordFreq_EN = minMaxWordFreq[1];
 					break;
 				case Spanish:
-					minWordFreq_ES = minWordFreq;
-					maxWordFreq_ES = maxWordFreq;
+					minWordFreq_ES = minMaxWordFreq[0];
+					maxWordFreq_ES = minMaxWordFreq[1];
 					break;
 				case Catalan:
-					minWordFreq_CA = minWordFreq;
-					maxWordFreq_CA = maxWordFreq;
+					minWordFreq_CA = minMaxWordFreq[0];
+					maxWordFreq_CA = minMaxWordFreq[1];
 					break;
 				default:
-					minWordFreq_EN = minWordFreq;
-					maxWordFreq_EN = maxWordFreq;
+					minWordFreq_EN = minMaxWordFreq[0];
+					maxWordFreq_EN = minMaxWordFreq[1];
 				}
 				
 				logger.info("Loaded word frequencies of " + lang + " with: " + currentWordCounter.size() + " words.");
@@ -167,6 +176,103 @@ public class WikipediaLemmaTermFrequency {
 		return;
 	}
 
+	/**
+	 * Get the path of the term frequency file of a language.
+	 * 
+	 * @param lang
+	 * @return
+	 */
+	private static String getTermFrequencyFileName(LangENUM lang) {
+		String tfidfFileName = Manage.getResourceFolder() + File.separator + "frequencies/wikipedia/";
+
+		switch(lang) {
+		case English:
+			return tfidfFileName + "enwiki_lemma_POS_TF_DF.dat";
+		case Spanish:
+			return tfidfFileName + "eswiki_lemma_POS_TF_DF.dat";
+		case Catalan:
+			return tfidfFileName + "cawiki_lemma_POS_TF_DF.dat";
+		default:
+			return tfidfFileName + "enwiki_lemma_POS_TF_DF.dat";
+		}
+	}
+
+	/**
+	 * Read a term frequency file, summing the term frequencies of each lemma (lowercased) over all its POS.
+	 * The file is read in parallel (see {@link WikipediaFrequencyFileReader WikipediaFrequencyFileReader}).
+	 * 
+	 * @param tfidfFile
+	 * @param wordCounter the map to fill
+	 * @return the minimum and maximum word frequency (-1 if no word is read)
+	 * @throws IOException
+	 */
+	static int[] readTermFrequencies(File tfidfFile, TObjectIntHashMap<String> wordCounter) throws IOException {
+
+		// For each lemma of a range of the file: sum, minimum and maximum partial sum of its term frequencies in the range
+		List<Map<String, int[]>> partialCounters = WikipediaFrequencyFileReader.read(tfidfFile, new WikipediaFrequencyFileReader.LineHandler<Map<String, int[]>>() {
+			@Override
+			public Map<String, int[]> newPartial() {
+				return new HashMap<String, int[]>();
+			}
+
+			@Override
+			public void handle(Map<String, int[]> partial, String lemma, String posInitial, int termFrequency) {
+				int[] counter = partial.get(lemma);
+				if(counter == null) {
+					partial.put(lemma, new int[]{termFrequency, termFrequency, termFrequency});
+				}
+				else {
+					counter[0] += termFrequency;
+					if(counter[0] < counter[1]) counter[1] = counter[0];
+					if(counter[0] > counter[2]) counter[2] = counter[0];
+				}
+			}
+		});
+
+		// Merge the ranges in order of position: the minimum and maximum word frequency are computed over the partial sums
+		// of each lemma in order of position in the file
+		Integer minWordFreq = null;
+		Integer maxWordFreq = null;
+		for(Map<String, int[]> partialCounter : partialCounters) {
+			for(Map.Entry<String, int[]> lemmaCounter : partialCounter.entrySet()) {
+				int[] counter = lemmaCounter.getValue();
+				int previousWordCounter = wordCounter.get(lemmaCounter.getKey());
+				if(minWordFreq == null || previousWordCounter + counter[1] < minWordFreq) minWordFreq = previousWordCounter + counter[1];
+				if(maxWordFreq == null || previousWordCounter + counter[2] > maxWordFreq) maxWordFreq = previousWordCounter + counter[2];
+				wordCounter.put(lemmaCounter.getKey(), previousWordCounter + counter[0]);
+			}
+		}
+
+		return new int[]{(minWordFreq != null) ? minWordFreq : -1, (maxWordFreq != null) ? maxWordFreq : -1};
+	}
+
+	/**
+	 * Compile the term frequency file of a language into a lemma frequency table (see {@link WikipediaLemmaFrequencyTable WikipediaLemmaFrequencyTable}),
+	 * stored in the same folder: from then on, the table is memory-mapped in place of loading the term frequency file.
+	 * 
+	 * @param lang
+	 * @return the table file
+	 * @throws Exception
+	 */
+	public static File compileFrequencyTable(LangENUM lang) throws Exception {
+
+		if(lang == null) {
+			throw new Exception("Please, specify a language");
+		}
+
+		File tfidfFile = new File(getTermFrequencyFileName(lang));
+		if(!tfidfFile.exists() || !tfidfFile.isFile()) {
+			throw new Exception("Impossible to read TFIDF for " + lang + " from file: '" + tfidfFile.getAbsolutePath() + "'");
+		}
+
+		TObjectIntHashMap<String> wordCounter = new TObjectIntHashMap<String>();
+		int[] minMaxWordFreq = readTermFrequencies(tfidfFile, wordCounter);
+		File tableFile = WikipediaLemmaFrequencyTable.getTableFile(tfidfFile);
+		WikipediaLemmaFrequencyTable.write(wordCounter, minMaxWordFreq[0], minMaxWordFreq[1], tableFile);
+
+		return tableFile;
+	}
+
 	/**
 	 * Free the memory from word frequencies.
 	 * 
@@ -176,6 +282,10 @@ public class WikipediaLemmaTermFrequency {
 		wordCounter_ES = null;
 		wordCounter_CA = null;
 
+		frequencyTable_EN = null;
+		frequencyTable_ES = null;
+		frequencyTable_CA = null;
+
 		maxWordFreq_EN = -1;
 		maxWordFreq_ES = -1;
 		maxWordFreq_CA = -1;
@@ -216,17 +326,52 @@ public class WikipediaLemmaTermFrequency {
 	 * @throws Exception
 	 */
 	public static Integer getLemmaOccurrencesCount(LangENUM lang, String lemma) throws Exception {
+		return getLemmaOccurrences(lang, lemma);
+	}
+
+	/**
+	 * Get the frequency of a lemma in a specific language, without boxing the result.
+	 * The lemma is trimmed, lowercased and its spaces replaced by '_': lemmas already in this form are looked up as they are.
+	 * 
+	 * @param lang
+	 * @param lemma
+	 * @return 0 if the lemma is not found
+	 * @throws Exception
+	 */
+	public static int getLemmaOccurrences(LangENUM lang, String lemma) throws Exception {
 
 		if(lang == null) {
 			throw new Exception("Please, specify a language");
 		}
 
 		if(lemma != null) {
-			lemma = lemma.trim().toLowerCase().replace(" ", "_");
+			if(!isNormalized(lemma)) {
+				lemma = lemma.trim().toLowerCase().replace(" ", "_");
+			}
 
 			loadLemmaPOStermFrequencyMap(lang);
 
-			TObjectIntHashMap<String> currentWordCounter = new TObjectIntHashMap<String>();
+			WikipediaLemmaFrequencyTable currentFrequencyTable = null;
+
+			switch(lang) {
+			case English:
+				currentFrequencyTable = frequencyTable_EN;
+				break;
+			case Spanish:
+				currentFrequencyTable = frequencyTable_ES;
+				break;
+			case Catalan:
+				currentFrequencyTable = frequencyTable_CA;
+				break;
+			default:
+				currentFrequencyTable = frequencyTable_EN;
+			}
+
+			if(currentFrequencyTable != null) {
+				return currentFrequencyTable.getFrequency(lemma);
+			}
+
+			TObjectIntHashMap<String> currentWordCounter = null;
 
 			switch(lang) {
 			case English:
@@ -242,15 +387,32 @@ public class WikipediaLemmaTermFrequency {
 				currentWordCounter = wordCounter_EN;
 			}
 
-			if(currentWordCounter.containsKey(lemma)) {
-				return currentWordCounter.get(lemma);
-			}
-
+			// 0 if the lemma is not in the map
+			return currentWordCounter.get(lemma);
 		}
 
 		return 0;
 	}
 
+	/**
+	 * Check if a lemma is unchanged by the normalization (trim, lowercase, spaces replaced by '_'): only ASCII lemmas are checked,
+	 * the others are normalized anyway.
+	 * 
+	 */
+	private static boolean isNormalized(String lemma) {
+		int length = lemma.length();
+		if(length > 0 && (lemma.charAt(0) <= ' ' || lemma.charAt(length - 1) <= ' ')) {
+			return false;
+		}
+		for(int c = 0; c < length; c++) {
+			char character = lemma.charAt(c);
+			if(character == ' ' || character >= 0x80 || (character >= 'A' && character <= 'Z')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 
 	/**
 	 * Maximum lemma frequency for a language
@@ -0,0 +1,137 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+/**
+ * Shortest path between two tokens in the dependency tree of a parsed sentence
+ * (see {@link ParsedSentence#getPath_depTree(int, int) ParsedSentence.getPath_depTree}).<br/>
+ *
+ * The path goes up from the source token to the lowest common ancestor of the two tokens and then down to the target token.
+ * Each edge of the path links a child token to its parent token and is labelled by the dependency function of the child.<br/>
+ *
+ * For instance, in the sentence 'The dog eats the apple.' the path from 'dog' to 'apple' is: dog &lt;SBJ eats &gt;OBJ apple
+ * ('&lt;' edges go up to the parent token, '&gt;' edges go down to a child token).
+ *
+ */
+public final class DependencyPath {
+
+	private final ParsedSentence sentence;
+
+	// Tokens of the path, from the source to the target
+	private final int[] tokens;
+
+	// Position of the lowest common ancestor in the path
+	private final int lcaPosition;
+
+	DependencyPath(ParsedSentence sentence, int[] tokens, int lcaPosition) {
+		this.sentence = sentence;
+		this.tokens = tokens;
+		this.lcaPosition = lcaPosition;
+	}
+
+	public ParsedSentence getSentence() {
+		return sentence;
+	}
+
+	public int getSource() {
+		return tokens[0];
+	}
+
+	public int getTarget() {
+		return tokens[tokens.length - 1];
+	}
+
+	/**
+	 * Get the lowest common ancestor of the source and target tokens.
+	 *
+	 * @return
+	 */
+	public int getLowestCommonAncestor() {
+		return tokens[lcaPosition];
+	}
+
+	/**
+	 * Number of edges of the path (0 if the source and the target are the same token).
+	 *
+	 * @return
+	 */
+	public int getLength() {
+		return tokens.length - 1;
+	}
+
+	/**
+	 * Number of tokens of the path, including the source and the target.
+	 *
+	 * @return
+	 */
+	public int getTokenCount() {
+		return tokens.length;
+	}
+
+	/**
+	 * Get a token of the path.
+	 *
+	 * @param position from 0 (the source) to getTokenCount() - 1 (the target)
+	 * @return the token id
+	 */
+	public int getTokenAt(int position) {
+		return tokens[position];
+	}
+
+	/**
+	 * Check if an edge of the path goes up, from a child token to its parent token.
+	 *
+	 * @param edge from 0 to getLength() - 1: the edge between the tokens at position edge and edge + 1
+	 * @return
+	 */
+	public boolean isUpward(int edge) {
+		checkEdge(edge);
+		return edge < lcaPosition;
+	}
+
+	/**
+	 * Get the dependency function of an edge of the path (the dependency function of the child token of the edge).
+	 *
+	 * @param edge from 0 to getLength() - 1: the edge between the tokens at position edge and edge + 1
+	 * @return
+	 */
+	public String getRelationAt(int edge) {
+		checkEdge(edge);
+		return sentence.getDepFunctAtIndex(edge < lcaPosition ? tokens[edge] : tokens[edge + 1]);
+	}
+
+	/**
+	 * Textual representation of the path, with the tokens represented by their lemma (or the token if the lemma is missing),
+	 * for instance: dog &lt;SBJ eat &gt;OBJ apple
+	 *
+	 * @return
+	 */
+	public String toLemmaString() {
+		StringBuilder path = new StringBuilder();
+		for(int p = 0; p < tokens.length; p++) {
+			if(p > 0) {
+				path.append(' ').append(isUpward(p - 1) ? '<' : '>').append(getRelationAt(p - 1)).append(' ');
+			}
+			String lemma = sentence.getLemmaAtIndex(tokens[p]);
+			path.append((lemma != null) ? lemma : sentence.getTokenAtIndex(tokens[p]));
+		}
+		return path.toString();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder path = new StringBuilder();
+		for(int p = 0; p < tokens.length; p++) {
+			if(p > 0) {
+				path.append(' ').append(isUpward(p - 1) ? '<' : '>').append(getRelationAt(p - 1)).append(' ');
+			}
+			path.append(sentence.getTokenAtIndex(tokens[p])).append('-').append(tokens[p]);
+		}
+		return path.toString();
+	}
+
+	private void checkEdge(int edge) {
+		if(edge < 0 || edge >= tokens.length - 1) {
+			throw new IndexOutOfBoundsException("Edge " + edge + " of a path of length " + (tokens.length - 1));
+		}
+	}
+
+}
@@ -0,0 +1,257 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pattern over the dependency paths of a parsed sentence (see {@link DependencyPath DependencyPath}).<br/>
+ *
+ * A pattern is a sequence of token constraints separated by edge constraints, for instance:<br/>
+ * [pos=NN*] &lt;SBJ [lemma=eat] &gt;OBJ [pos=NN*]<br/>
+ * matches the paths from a noun subject of the verb 'eat' to a noun object of the same verb.<br/>
+ *
+ * Token constraints are enclosed in square brackets and contain comma separated conditions on the token (token=), lemma (lemma=),
+ * POS (pos=) or dependency function (deprel=) of the token; a value ending with '*' matches the values starting with the given prefix,
+ * the value '*' matches any value, including missing values (e.g. lemmas of sentences parsed at TOKENIZE level). Empty brackets [] match any token.<br/>
+ * Edge constraints are '&lt;' (up, from a child token to its parent token) or '&gt;' (down, from a parent token to a child token),
+ * optionally followed by the dependency function of the edge (a prefix if ending with '*'; '*' alone, as no function, matches any edge).<br/>
+ *
+ * A path matches a pattern if it has the same number of edges and each token and edge satisfies the corresponding constraint.
+ * Patterns are immutable and can be used by several threads concurrently.
+ *
+ */
+public final class DependencyPathPattern {
+
+	private final String pattern;
+
+	// Conditions of each token: field, value (prefix if prefixMatch)
+	private final int[][] tokenFields;
+	private final String[][] tokenValues;
+	private final boolean[][] tokenPrefixMatch;
+
+	// Edges: direction, relation (null for any relation)
+	private final boolean[] edgeUpward;
+	private final String[] edgeRelations;
+	private final boolean[] edgePrefixMatch;
+
+	private static final int TOKEN = 0;
+	private static final int LEMMA = 1;
+	private static final int POS = 2;
+	private static final int DEPREL = 3;
+
+	private DependencyPathPattern(String pattern, List<String[]> tokenConditions, List<String> edges) {
+		this.pattern = pattern;
+		int tokenNumber = tokenConditions.size();
+		this.tokenFields = new int[tokenNumber][];
+		this.tokenValues = new String[tokenNumber][];
+		this.tokenPrefixMatch = new boolean[tokenNumber][];
+		for(int t = 0; t < tokenNumber; t++) {
+			String[] conditions = tokenConditions.get(t);
+			tokenFields[t] = new int[conditions.length];
+			tokenValues[t] = new String[conditions.length];
+			tokenPrefixMatch[t] = new boolean[conditions.length];
+			for(int c = 0; c < conditions.length; c++) {
+				int equalsIndex = conditions[c].indexOf('=');
+				if(equalsIndex <= 0) {
+					throw new IllegalArgumentException("Wrong token condition '" + conditions[c] + "' in the pattern: " + pattern);
+				}
+				tokenFields[t][c] = getField(conditions[c].substring(0, equalsIndex).trim(), pattern);
+				String value = conditions[c].substring(equalsIndex + 1).trim();
+				tokenPrefixMatch[t][c] = value.endsWith("*");
+				tokenValues[t][c] = tokenPrefixMatch[t][c] ? value.substring(0, value.length() - 1) : value;
+			}
+		}
+
+		this.edgeUpward = new boolean[edges.size()];
+		this.edgeRelations = new String[edges.size()];
+		this.edgePrefixMatch = new boolean[edges.size()];
+		for(int e = 0; e < edges.size(); e++) {
+			String edge = edges.get(e);
+			edgeUpward[e] = edge.charAt(0) == '<';
+			String relation = edge.substring(1).trim();
+			edgePrefixMatch[e] = relation.endsWith("*");
+			if(edgePrefixMatch[e]) {
+				relation = relation.substring(0, relation.length() - 1);
+			}
+			edgeRelations[e] = (relation.length() > 0 || edgePrefixMatch[e]) ? relation : null;
+		}
+	}
+
+	/**
+	 * Compile a pattern.
+	 *
+	 * @param pattern
+	 * @return
+	 * @throws IllegalArgumentException if the pattern is not valid
+	 */
+	public static DependencyPathPattern compile(String pattern) {
+		if(pattern == null) {
+			throw new IllegalArgumentException("Null dependency path pattern");
+		}
+
+		List<String[]> tokenConditions = new ArrayList<String[]>();
+		List<String> edges = new ArrayList<String>();
+		int position = 0;
+		boolean expectToken = true;
+		while(true) {
+			while(position < pattern.length() && Character.isWhitespace(pattern.charAt(position))) {
+				position++;
+			}
+			if(position >= pattern.length()) {
+				break;
+			}
+
+			if(expectToken) {
+				int end = pattern.indexOf(']', position);
+				if(pattern.charAt(position) != '[' || end < 0) {
+					throw new IllegalArgumentException("Token constraint expected at position " + position + " of the pattern: " + pattern);
+				}
+				String conditions = pattern.substring(position + 1, end).trim();
+				tokenConditions.add((conditions.length() > 0) ? conditions.split(",") : new String[0]);
+				position = end + 1;
+			}
+			else {
+				char direction = pattern.charAt(position);
+				if(direction != '<' && direction != '>') {
+					throw new IllegalArgumentException("Edge constraint expected at position " + position + " of the pattern: " + pattern);
+				}
+				int end = position + 1;
+				while(end < pattern.length() && !Character.isWhitespace(pattern.charAt(end)) && pattern.charAt(end) != '[') {
+					end++;
+				}
+				edges.add(pattern.substring(position, end));
+				position = end;
+			}
+			expectToken = !expectToken;
+		}
+
+		if(tokenConditions.size() == 0 || expectToken) {
+			throw new IllegalArgumentException("The pattern has to start and end with a token constraint: " + pattern);
+		}
+		return new DependencyPathPattern(pattern, tokenConditions, edges);
+	}
+
+	/**
+	 * Number of edges of the paths matched by the pattern.
+	 *
+	 * @return
+	 */
+	public int getLength() {
+		return edgeUpward.length;
+	}
+
+	/**
+	 * Check if a path matches the pattern.
+	 *
+	 * @param path
+	 * @return
+	 */
+	public boolean matches(DependencyPath path) {
+		if(path == null || path.getLength() != edgeUpward.length) {
+			return false;
+		}
+
+		ParsedSentence sentence = path.getSentence();
+		for(int t = 0; t < tokenFields.length; t++) {
+			if(!matchesToken(sentence, path.getTokenAt(t), t)) {
+				return false;
+			}
+		}
+		for(int e = 0; e < edgeUpward.length; e++) {
+			if(path.isUpward(e) != edgeUpward[e] || (edgeRelations[e] != null && !matchesValue(path.getRelationAt(e), edgeRelations[e], edgePrefixMatch[e]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Find all the paths of a sentence that match the pattern, ordered by source and target token.
+	 * Only the token pairs at the distance of the pattern and with matching source and target tokens are considered.
+	 *
+	 * @param sentence
+	 * @return
+	 */
+	public List<DependencyPath> findAll(ParsedSentence sentence) {
+		List<DependencyPath> retPaths = new ArrayList<DependencyPath>();
+		if(sentence == null) {
+			return retPaths;
+		}
+
+		DependencyTreeIndex treeIndex = sentence.getDepTreeIndex();
+		int tokenNumber = sentence.getTokenCount();
+		int last = tokenFields.length - 1;
+		for(int source = 0; source < tokenNumber; source++) {
+			if(!matchesToken(sentence, source, 0)) {
+				continue;
+			}
+			for(int target = 0; target < tokenNumber; target++) {
+				if(treeIndex.getDistance(source, target) != edgeUpward.length || !matchesToken(sentence, target, last)) {
+					continue;
+				}
+				DependencyPath path = sentence.getPath_depTree(source, target);
+				if(matches(path)) {
+					retPaths.add(path);
+				}
+			}
+		}
+		return retPaths;
+	}
+
+	@Override
+	public String toString() {
+		return pattern;
+	}
+
+	private boolean matchesToken(ParsedSentence sentence, int index, int tokenPosition) {
+		for(int c = 0; c < tokenFields[tokenPosition].length; c++) {
+			String value = null;
+			switch(tokenFields[tokenPosition][c]) {
+			case TOKEN:
+				value = sentence.getTokenAtIndex(index);
+				break;
+			case LEMMA:
+				value = sentence.getLemmaAtIndex(index);
+				break;
+			case POS:
+				value = sentence.getPOSatIndex(index);
+				break;
+			default:
+				value = sentence.getDepFunctAtIndex(index);
+				break;
+			}
+			if(!matchesValue(value, tokenValues[tokenPosition][c], tokenPrefixMatch[tokenPosition][c])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean matchesValue(String value, String expected, boolean prefixMatch) {
+		// A bare '*' matches missing values too
+		if(prefixMatch && expected.length() == 0) {
+			return true;
+		}
+		if(value == null) {
+			return false;
+		}
+		return prefixMatch ? value.startsWith(expected) : value.equals(expected);
+	}
+
+	private static int getField(String field, String pattern) {
+		if(field.equalsIgnoreCase("token")) {
+			return TOKEN;
+		}
+		else if(field.equalsIgnoreCase("lemma")) {
+			return LEMMA;
+		}
+		else if(field.equalsIgnoreCase("pos")) {
+			return POS;
+		}
+		else if(field.equalsIgnoreCase("deprel")) {
+			return DEPREL;
+		}
+		throw new IllegalArgumentException("Unknown token field '" + field + "' (token, lemma, pos or deprel) in the pattern: " + pattern);
+	}
+
+}
@@ -0,0 +1,406 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.util.Arrays;
+
+/**
+ * Index of the dependency tree of a parsed sentence, built once from the dependency targets of the tokens
+ * (see {@link ParsedSentence#getDepTreeIndex() ParsedSentence.getDepTreeIndex}).<br/>
+ *
+ * The index stores the children of each token (in order of position), the depth of each token, the roots of the tree and
+ * a pre-order visit of the tree, thus children, depth, subtree and ancestor queries do not walk the tree. The lowest common
+ * ancestor of two tokens is found by a range minimum query over an Euler tour of the tree (built at the first query).
+ * The nodes of the tree are the token ids of the sentence.<br/>
+ *
+ * A parsed sentence can have more than one root (e.g. sentences parsed by chunks). Dependency cycles (malformed trees) are broken:
+ * one token of each cycle is considered a root. The index is immutable and can be used by several threads concurrently.
+ *
+ */
+public final class DependencyTreeIndex {
+
+	private final int[] parent;
+
+	// Children of each node: children[childStart[i]] ... children[childStart[i + 1] - 1]
+	private final int[] childStart;
+	private final int[] children;
+
+	private final int[] roots;
+
+	private final int[] depth;
+
+	// Root of the tree of each node
+	private final int[] treeRoot;
+
+	// Pre-order visit: node visited at each position and position of each node
+	private final int[] preorder;
+	private final int[] preorderIndex;
+	private final int[] subtreeSize;
+
+	// Leftmost and rightmost token of each subtree
+	private final int[] spanStart;
+	private final int[] spanEnd;
+
+	// Euler tour for the lowest common ancestor queries, built when needed
+	private volatile EulerTour eulerTour;
+
+	/**
+	 * Build the index of a dependency tree.
+	 *
+	 * @param depTarget dependency target of each token, -1 for the roots
+	 */
+	DependencyTreeIndex(int[] depTarget) {
+		int tokenNumber = depTarget.length;
+		this.parent = new int[tokenNumber];
+		this.childStart = new int[tokenNumber + 1];
+		this.children = new int[tokenNumber];
+		this.depth = new int[tokenNumber];
+		this.treeRoot = new int[tokenNumber];
+		this.preorder = new int[tokenNumber];
+		this.preorderIndex = new int[tokenNumber];
+		this.subtreeSize = new int[tokenNumber];
+		this.spanStart = new int[tokenNumber];
+		this.spanEnd = new int[tokenNumber];
+
+		// Break the dependency cycles: the first token of a cycle becomes a root
+		int[] state = new int[tokenNumber];
+		for(int i = 0; i < tokenNumber; i++) {
+			int target = depTarget[i];
+			parent[i] = (target >= 0 && target < tokenNumber && target != i) ? target : -1;
+		}
+		for(int i = 0; i < tokenNumber; i++) {
+			// 0 not checked, 1 on the current path, 2 checked
+			int current = i;
+			while(current >= 0 && state[current] == 0) {
+				state[current] = 1;
+				current = parent[current];
+			}
+			int next = -1;
+			if(current >= 0 && state[current] == 1) {
+				// Cycle: the rest of the cycle (from next) hangs from current, now a root
+				next = parent[current];
+				parent[current] = -1;
+			}
+			current = i;
+			while(current >= 0 && state[current] == 1) {
+				state[current] = 2;
+				current = parent[current];
+			}
+			current = next;
+			while(current >= 0 && state[current] == 1) {
+				state[current] = 2;
+				current = parent[current];
+			}
+		}
+
+		// Children
+		int rootCount = 0;
+		for(int i = 0; i < tokenNumber; i++) {
+			if(parent[i] >= 0) {
+				childStart[parent[i] + 1]++;
+			}
+			else {
+				rootCount++;
+			}
+		}
+		for(int i = 0; i < tokenNumber; i++) {
+			childStart[i + 1] += childStart[i];
+		}
+		int[] nextChild = new int[tokenNumber];
+		this.roots = new int[rootCount];
+		rootCount = 0;
+		for(int i = 0; i < tokenNumber; i++) {
+			if(parent[i] >= 0) {
+				children[childStart[parent[i]] + nextChild[parent[i]]++] = i;
+			}
+			else {
+				roots[rootCount++] = i;
+			}
+		}
+
+		// Pre-order visit (the stack holds the nodes still to visit)
+		int[] stack = nextChild;
+		int visited = 0;
+		for(int r = 0; r < roots.length; r++) {
+			int stackSize = 0;
+			stack[stackSize++] = roots[r];
+			depth[roots[r]] = 0;
+			treeRoot[roots[r]] = roots[r];
+			while(stackSize > 0) {
+				int node = stack[--stackSize];
+				preorderIndex[node] = visited;
+				preorder[visited++] = node;
+				for(int c = childStart[node + 1] - 1; c >= childStart[node]; c--) {
+					depth[children[c]] = depth[node] + 1;
+					treeRoot[children[c]] = treeRoot[node];
+					stack[stackSize++] = children[c];
+				}
+			}
+		}
+
+		// Subtree sizes and spans, from the leaves up
+		for(int p = tokenNumber - 1; p >= 0; p--) {
+			int node = preorder[p];
+			subtreeSize[node] = 1;
+			spanStart[node] = node;
+			spanEnd[node] = node;
+			for(int c = childStart[node]; c < childStart[node + 1]; c++) {
+				int child = children[c];
+				subtreeSize[node] += subtreeSize[child];
+				spanStart[node] = Math.min(spanStart[node], spanStart[child]);
+				spanEnd[node] = Math.max(spanEnd[node], spanEnd[child]);
+			}
+		}
+	}
+
+	/**
+	 * Number of tokens / nodes of the tree.
+	 *
+	 * @return
+	 */
+	public int getTokenCount() {
+		return parent.length;
+	}
+
+	/**
+	 * Number of roots of the tree.
+	 *
+	 * @return
+	 */
+	public int getRootCount() {
+		return roots.length;
+	}
+
+	/**
+	 * Get a root of the tree.
+	 *
+	 * @param rootIndex from 0 to getRootCount() - 1, in order of position
+	 * @return the token id of the root
+	 */
+	public int getRoot(int rootIndex) {
+		return roots[rootIndex];
+	}
+
+	/**
+	 * Get the id of the parent of a token.
+	 *
+	 * @param index
+	 * @return -1 if the token is a root or the index is out of the sentence
+	 */
+	public int getParent(int index) {
+		return (index >= 0 && index < parent.length) ? parent[index] : -1;
+	}
+
+	/**
+	 * Number of children of a token.
+	 *
+	 * @param index
+	 * @return 0 if the index is out of the sentence
+	 */
+	public int getChildCount(int index) {
+		return (index >= 0 && index < parent.length) ? childStart[index + 1] - childStart[index] : 0;
+	}
+
+	/**
+	 * Get a child of a token.
+	 *
+	 * @param index
+	 * @param childIndex from 0 to getChildCount(index) - 1, in order of position
+	 * @return the token id of the child
+	 */
+	public int getChild(int index, int childIndex) {
+		if(childIndex < 0 || childIndex >= getChildCount(index)) {
+			throw new IndexOutOfBoundsException("Child " + childIndex + " of the token " + index + " (" + getChildCount(index) + " children)");
+		}
+		return children[childStart[index] + childIndex];
+	}
+
+	/**
+	 * Get the depth of a token. The roots have depth 0.
+	 *
+	 * @param index
+	 * @return -1 if the index is out of the sentence
+	 */
+	public int getDepth(int index) {
+		return (index >= 0 && index < parent.length) ? depth[index] : -1;
+	}
+
+	/**
+	 * Number of tokens of the subtree of a token (including the token).
+	 *
+	 * @param index
+	 * @return 0 if the index is out of the sentence
+	 */
+	public int getSubtreeSize(int index) {
+		return (index >= 0 && index < parent.length) ? subtreeSize[index] : 0;
+	}
+
+	/**
+	 * Get the id of the leftmost token of the subtree of a token.
+	 *
+	 * @param index
+	 * @return -1 if the index is out of the sentence
+	 */
+	public int getSubtreeStart(int index) {
+		return (index >= 0 && index < parent.length) ? spanStart[index] : -1;
+	}
+
+	/**
+	 * Get the id of the rightmost token of the subtree of a token.
+	 *
+	 * @param index
+	 * @return -1 if the index is out of the sentence
+	 */
+	public int getSubtreeEnd(int index) {
+		return (index >= 0 && index < parent.length) ? spanEnd[index] : -1;
+	}
+
+	/**
+	 * Check if a token is an ancestor of another token (a token is an ancestor of itself).
+	 *
+	 * @param ancestorIndex
+	 * @param index
+	 * @return
+	 */
+	public boolean isAncestor(int ancestorIndex, int index) {
+		if(ancestorIndex < 0 || ancestorIndex >= parent.length || index < 0 || index >= parent.length) {
+			return false;
+		}
+		int ancestorPosition = preorderIndex[ancestorIndex];
+		int position = preorderIndex[index];
+		return position >= ancestorPosition && position < ancestorPosition + subtreeSize[ancestorIndex];
+	}
+
+	/**
+	 * Get the position of a token in the pre-order visit of the tree: the subtree of a token is made of the tokens
+	 * from its position to its position + getSubtreeSize(index) - 1.
+	 *
+	 * @param index
+	 * @return -1 if the index is out of the sentence
+	 */
+	public int getPreorderIndex(int index) {
+		return (index >= 0 && index < parent.length) ? preorderIndex[index] : -1;
+	}
+
+	/**
+	 * Get the token visited at a given position of the pre-order visit of the tree.
+	 *
+	 * @param preorderIndex from 0 to getTokenCount() - 1
+	 * @return the token id
+	 */
+	public int getTokenAtPreorderIndex(int preorderIndex) {
+		return preorder[preorderIndex];
+	}
+
+	/**
+	 * Get the root of the tree a token belongs to.
+	 *
+	 * @param index
+	 * @return -1 if the index is out of the sentence
+	 */
+	public int getTreeRoot(int index) {
+		return (index >= 0 && index < parent.length) ? treeRoot[index] : -1;
+	}
+
+	/**
+	 * Get the lowest common ancestor of two tokens: the deepest token that is an ancestor of both.
+	 *
+	 * @param index1
+	 * @param index2
+	 * @return -1 if the tokens belong to different trees or an index is out of the sentence
+	 */
+	public int getLowestCommonAncestor(int index1, int index2) {
+		if(index1 < 0 || index1 >= parent.length || index2 < 0 || index2 >= parent.length || treeRoot[index1] != treeRoot[index2]) {
+			return -1;
+		}
+		if(index1 == index2) {
+			return index1;
+		}
+
+		EulerTour tour = eulerTour;
+		if(tour == null) {
+			tour = new EulerTour();
+			eulerTour = tour;
+		}
+		return tour.minDepthNode(Math.min(tour.first[index1], tour.first[index2]), Math.max(tour.first[index1], tour.first[index2]));
+	}
+
+	/**
+	 * Get the number of dependency edges between two tokens.
+	 *
+	 * @param index1
+	 * @param index2
+	 * @return -1 if the tokens belong to different trees or an index is out of the sentence
+	 */
+	public int getDistance(int index1, int index2) {
+		int lca = getLowestCommonAncestor(index1, index2);
+		return (lca >= 0) ? depth[index1] + depth[index2] - 2 * depth[lca] : -1;
+	}
+
+	/**
+	 * Euler tour of the trees, with a sparse table of the nodes of minimum depth of each range of the tour.
+	 *
+	 */
+	private final class EulerTour {
+
+		// Position of the first visit of each node
+		private final int[] first;
+
+		// minDepth[k][i]: node of minimum depth among the positions i ... i + 2^k - 1 of the tour
+		private final int[][] minDepth;
+
+		EulerTour() {
+			int tokenNumber = parent.length;
+			int[] tour = new int[2 * tokenNumber];
+			int tourLength = 0;
+			first = new int[tokenNumber];
+
+			int[] stack = new int[tokenNumber];
+			int[] nextChild = new int[tokenNumber];
+			for(int r = 0; r < roots.length; r++) {
+				int stackSize = 0;
+				stack[stackSize++] = roots[r];
+				nextChild[roots[r]] = childStart[roots[r]];
+				first[roots[r]] = tourLength;
+				tour[tourLength++] = roots[r];
+				while(stackSize > 0) {
+					int node = stack[stackSize - 1];
+					if(nextChild[node] < childStart[node + 1]) {
+						int child = children[nextChild[node]++];
+						nextChild[child] = childStart[child];
+						first[child] = tourLength;
+						tour[tourLength++] = child;
+						stack[stackSize++] = child;
+					}
+					else {
+						stackSize--;
+						if(stackSize > 0) {
+							tour[tourLength++] = stack[stackSize - 1];
+						}
+					}
+				}
+			}
+
+			int levels = 32 - Integer.numberOfLeadingZeros(Math.max(1, tourLength));
+			minDepth = new int[levels][];
+			minDepth[0] = Arrays.copyOf(tour, tourLength);
+			for(int k = 1; k < levels; k++) {
+				int half = 1 << (k - 1);
+				int[] previous = minDepth[k - 1];
+				int[] current = new int[tourLength - (1 << k) + 1];
+				for(int i = 0; i < current.length; i++) {
+					current[i] = shallower(previous[i], previous[i + half]);
+				}
+				minDepth[k] = current;
+			}
+		}
+
+		int minDepthNode(int from, int to) {
+			int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+			return shallower(minDepth[k][from], minDepth[k][to - (1 << k) + 1]);
+		}
+
+		private int shallower(int node1, int node2) {
+			return (depth[node1] <= depth[node2]) ? node1 : node2;
+		}
+	}
+
+}
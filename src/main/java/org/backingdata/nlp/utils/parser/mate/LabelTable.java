@@ -0,0 +1,118 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of the labels (POS, dependency functions and SRL tags) of the parsed sentences, shared by all the
+ * {@link ParsedSentence ParsedSentence} instances: each label is stored once and referred to by a small integer code.<br/>
+ *
+ * The code 0 stands for no label (null). Codes are assigned in order of first use and never change, thus
+ * they can be used as feature ids. The table can be used by several threads concurrently.
+ *
+ */
+public final class LabelTable {
+
+	private final String name;
+
+	private final int maxCode;
+
+	private final ConcurrentHashMap<String, Integer> labelCodes = new ConcurrentHashMap<String, Integer>();
+
+	// Label of each code (the element 0 is null)
+	private volatile String[] labels = new String[64];
+
+	private int size = 1;
+
+	/**
+	 * Create a label table.
+	 *
+	 * @param name
+	 * @param maxCode maximum code that can be assigned
+	 */
+	LabelTable(String name, int maxCode) {
+		this.name = name;
+		this.maxCode = maxCode;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the code of a label, adding the label to the table if not present.
+	 *
+	 * @param label
+	 * @return 0 if the label is null
+	 * @throws IllegalStateException if the table is full
+	 */
+	public int getCode(String label) {
+		if(label == null) {
+			return 0;
+		}
+		Integer code = labelCodes.get(label);
+		if(code != null) {
+			return code;
+		}
+
+		synchronized(this) {
+			code = labelCodes.get(label);
+			if(code == null) {
+				if(size > maxCode) {
+					throw new IllegalStateException("The label table " + name + " is full (" + maxCode + " labels).");
+				}
+				code = size;
+				String[] currentLabels = labels;
+				if(code >= currentLabels.length) {
+					currentLabels = Arrays.copyOf(currentLabels, Math.min(currentLabels.length * 2, maxCode + 1));
+				}
+				currentLabels[code] = label;
+				// Publish the label before its code
+				labels = currentLabels;
+				size++;
+				labelCodes.put(label, code);
+			}
+			return code;
+		}
+	}
+
+	/**
+	 * Get the code of a label already in the table.
+	 *
+	 * @param label
+	 * @return 0 if the label is null, -1 if the label is not in the table
+	 */
+	public int findCode(String label) {
+		if(label == null) {
+			return 0;
+		}
+		Integer code = labelCodes.get(label);
+		return (code != null) ? code : -1;
+	}
+
+	/**
+	 * Get the label of a code.
+	 *
+	 * @param code
+	 * @return null for the code 0 or unknown codes
+	 */
+	public String getLabel(int code) {
+		String[] currentLabels = labels;
+		return (code > 0 && code < currentLabels.length) ? currentLabels[code] : null;
+	}
+
+	/**
+	 * Number of codes assigned, including the code 0.
+	 *
+	 * @return
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return "LabelTable [name=" + name + ", size=" + size() + "]";
+	}
+
+}
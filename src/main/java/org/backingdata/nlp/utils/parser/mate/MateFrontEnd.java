@@ -0,0 +1,32 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import opennlp.tools.sentdetect.SentenceDetector;
+import opennlp.tools.tokenize.Tokenizer;
+
+/**
+ * Front-end of a {@link MateParser MateParser} engine: splits texts into sentences and sentences into tokens
+ * (see {@link MateParser#setFrontEnd(MateFrontEnd) MateParser.setFrontEnd}).<br/>
+ *
+ * The sentence detectors and tokenizers are used by one thread at a time, thus the engine creates as many instances as
+ * threads that split / tokenize texts concurrently. By default, the OpenNLP models of the language are used (see {@link OpenNLPFrontEnd OpenNLPFrontEnd}).
+ *
+ */
+public interface MateFrontEnd {
+
+	/**
+	 * Create a sentence detector, to be used by one thread at a time.
+	 *
+	 * @return
+	 * @throws Exception
+	 */
+	public SentenceDetector newSentenceDetector() throws Exception;
+
+	/**
+	 * Create a tokenizer, to be used by one thread at a time.
+	 *
+	 * @return
+	 * @throws Exception
+	 */
+	public Tokenizer newTokenizer() throws Exception;
+
+}
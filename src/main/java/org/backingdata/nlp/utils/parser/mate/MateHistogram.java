@@ -0,0 +1,174 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values (latencies in nanoseconds, number of tokens), recorded by several threads without locking.<br/>
+ *
+ * The values are counted in buckets with four sub-buckets for each power of two, thus the percentiles are approximated
+ * by less than 25% of their value (values lower than 4 are exact). Count, sum and maximum are exact.
+ *
+ */
+public final class MateHistogram {
+
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_NUMBER = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_NUMBER);
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder sum = new LongAdder();
+
+	private final AtomicLong max = new AtomicLong(0l);
+
+	/**
+	 * Record a value (negative values are recorded as 0).
+	 *
+	 * @param value
+	 */
+	public void record(long value) {
+		if(value < 0l) {
+			value = 0l;
+		}
+		buckets.incrementAndGet(getBucket(value));
+		count.increment();
+		sum.add(value);
+		long currentMax;
+		while(value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+			// Retry
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSum() {
+		return sum.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Mean of the recorded values.
+	 *
+	 * @return 0 if no value is recorded
+	 */
+	public double getMean() {
+		long valueNumber = count.sum();
+		return (valueNumber > 0l) ? (double) sum.sum() / valueNumber : 0d;
+	}
+
+	/**
+	 * Get an approximation of a percentile of the recorded values: the upper bound of the bucket that contains the percentile.
+	 *
+	 * @param percentile from 0 to 100
+	 * @return 0 if no value is recorded
+	 */
+	public long getPercentile(double percentile) {
+		long valueNumber = 0l;
+		long[] bucketCounts = new long[BUCKET_NUMBER];
+		for(int b = 0; b < BUCKET_NUMBER; b++) {
+			bucketCounts[b] = buckets.get(b);
+			valueNumber += bucketCounts[b];
+		}
+		if(valueNumber == 0l) {
+			return 0l;
+		}
+
+		long rank = Math.max(1l, (long) Math.ceil(Math.min(100d, Math.max(0d, percentile)) / 100d * valueNumber));
+		long seen = 0l;
+		for(int b = 0; b < BUCKET_NUMBER; b++) {
+			seen += bucketCounts[b];
+			if(seen >= rank) {
+				return Math.min(getBucketUpperBound(b), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Number of buckets of the histogram.
+	 *
+	 * @return
+	 */
+	public int getBucketCount() {
+		return BUCKET_NUMBER;
+	}
+
+	/**
+	 * Get the number of recorded values in a bucket.
+	 *
+	 * @param bucket
+	 * @return
+	 */
+	public long getBucketValueCount(int bucket) {
+		return buckets.get(bucket);
+	}
+
+	/**
+	 * Get the lowest value of a bucket.
+	 *
+	 * @param bucket
+	 * @return
+	 */
+	public long getBucketLowerBound(int bucket) {
+		if(bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+		int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + subBucket)) << (exponent - SUB_BUCKET_BITS);
+	}
+
+	/**
+	 * Get the highest value of a bucket.
+	 *
+	 * @param bucket
+	 * @return
+	 */
+	public long getBucketUpperBound(int bucket) {
+		if(bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		if(bucket == BUCKET_NUMBER - 1) {
+			return Long.MAX_VALUE;
+		}
+		return getBucketLowerBound(bucket + 1) - 1l;
+	}
+
+	/**
+	 * Remove all the recorded values. Values recorded concurrently may be partially removed.
+	 *
+	 */
+	public void reset() {
+		for(int b = 0; b < BUCKET_NUMBER; b++) {
+			buckets.set(b, 0l);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0l);
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() + ", mean=" + String.format("%.1f", getMean()) + ", p50=" + getPercentile(50d)
+				+ ", p99=" + getPercentile(99d) + ", max=" + getMax();
+	}
+
+	private static int getBucket(long value) {
+		if(value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+	}
+
+}
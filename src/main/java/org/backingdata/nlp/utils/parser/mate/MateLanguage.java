@@ -0,0 +1,104 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.io.File;
+
+import org.apache.log4j.Logger;
+import org.backingdata.nlp.utils.Manage;
+
+import se.lth.cs.srl.languages.Language;
+
+/**
+ * Languages supported by the Mate-tools parser, together with the names of the model files
+ * (inside the folder 'mate_models' of the resource folder) needed to parse each language.
+ *
+ */
+public enum MateLanguage {
+
+	English(Language.L.eng, "en", "CoNLL2009-ST-English-ALL.anna-3.3", "CoNLL2009-ST-English-ALL.anna-3.3.srl-4.1.srl.model"),
+	Spanish(Language.L.spa, "es", "CoNLL2009-ST-Spanish-ALL.anna-3.3", "CoNLL2009-ST-Spanish-ALL.anna-3.3.srl-4.21.srl-rr.model");
+
+	private static Logger logger = Logger.getLogger(MateLanguage.class);
+
+	private static final String DEFAULT_OPENNLP_CODE = "en";
+
+	private final Language.L srlLanguage;
+	private final String openNLPcode;
+	private final String annaModelPrefix;
+	private final String srlModelName;
+
+	private MateLanguage(Language.L srlLanguage, String openNLPcode, String annaModelPrefix, String srlModelName) {
+		this.srlLanguage = srlLanguage;
+		this.openNLPcode = openNLPcode;
+		this.annaModelPrefix = annaModelPrefix;
+		this.srlModelName = srlModelName;
+	}
+
+	/**
+	 * Language code of the Mate SRL pipeline (eng, spa).
+	 *
+	 * @return
+	 */
+	public Language.L getSrlLanguage() {
+		return srlLanguage;
+	}
+
+	/**
+	 * Language code of the OpenNLP models (en, es).
+	 *
+	 * @return
+	 */
+	public String getOpenNLPcode() {
+		return openNLPcode;
+	}
+
+	public String getLemmatizerModelPath() {
+		return getMateModelFolder() + annaModelPrefix + ".lemmatizer.model";
+	}
+
+	public String getTaggerModelPath() {
+		return getMateModelFolder() + annaModelPrefix + ".postagger.model";
+	}
+
+	public String getParserModelPath() {
+		return getMateModelFolder() + annaModelPrefix + ".parser.model";
+	}
+
+	public String getSrlModelPath() {
+		return getMateModelFolder() + srlModelName;
+	}
+
+	/**
+	 * Path of the OpenNLP tokenizer model of the language (file '&lt;language code&gt;-token.bin' inside the folder 'openNLP_models'
+	 * of the resource folder): if not available, the English model is used.
+	 *
+	 * @return
+	 */
+	public String getTokenizerModelPath() {
+		return getOpenNLPmodelPath("-token.bin");
+	}
+
+	/**
+	 * Path of the OpenNLP sentence detector model of the language (file '&lt;language code&gt;-sent.bin' inside the folder 'openNLP_models'
+	 * of the resource folder): if not available, the English model is used.
+	 *
+	 * @return
+	 */
+	public String getSentenceModelPath() {
+		return getOpenNLPmodelPath("-sent.bin");
+	}
+
+	private String getOpenNLPmodelPath(String modelSuffix) {
+		String openNLPmodelFolder = Manage.getResourceFolder() + File.separator + "openNLP_models" + File.separator;
+		File languageModel = new File(openNLPmodelFolder + openNLPcode + modelSuffix);
+		if(!languageModel.isFile() && !openNLPcode.equals(DEFAULT_OPENNLP_CODE)) {
+			logger.warn("OpenNLP model " + languageModel.getAbsolutePath() + " not available: the English model is used (" + this + ").");
+			return openNLPmodelFolder + DEFAULT_OPENNLP_CODE + modelSuffix;
+		}
+		return languageModel.getPath();
+	}
+
+	private static String getMateModelFolder() {
+		return Manage.getResourceFolder() + File.separator + "mate_models" + File.separator;
+	}
+
+}
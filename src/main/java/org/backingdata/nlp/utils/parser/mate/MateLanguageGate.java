@@ -0,0 +1,348 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Coordinates the access to the JVM-wide state of the Mate-tools libraries among the languages loaded in memory.<br/>
+ *
+ * The anna lemmatizer / parser keep their feature dictionaries in static fields and the SRL pipeline relies on a static
+ * current language, thus loading the models of a language overwrites the state needed to parse another language.
+ * This class keeps a copy of the static state of each loaded language and lets the sentences of only one language at a time
+ * be parsed: when the sentences of another language are waiting, the sentences being parsed are completed, then the static
+ * state of the other language is restored.<br/>
+ *
+ * Switching language has a cost: the engines wait for the sentences being parsed to complete (the pool is drained) and the
+ * static fields are set to the state of the other language (references are swapped, the final static maps are refilled).
+ * To limit the switches, a language keeps the gate for at least {@link #setMinSentencesPerSwitch(int) a minimum number of sentences}
+ * before the sentences of another language are let in.<br/>
+ *
+ * Model loading needs exclusive access: it waits until no sentence is being parsed. Before loading, the static fields are set to
+ * copies of their values, so that the loader never modifies the state captured for a language: this is the only copy of the state.
+ *
+ */
+final class MateLanguageGate {
+
+	private static Logger logger = Logger.getLogger(MateLanguageGate.class);
+
+	// Classes of the Mate-tools libraries with static state that depends on the loaded models
+	private static final String[] STATEFUL_CLASSES = { "is2.data.MFO", "is2.data.Edges",
+			"is2.lemmatizer.MFO", "is2.lemmatizer.Pipe",
+			"is2.tag.ExtractorT2",
+			"is2.parser.MFO", "is2.parser.Extractor", "is2.parser.Edges", "is2.parser.Decoder", "is2.parser.Parser",
+			"se.lth.cs.srl.languages.Language", "se.lth.cs.srl.Parse" };
+
+	private static final ReentrantLock lock = new ReentrantLock();
+	private static final Condition gateChanged = lock.newCondition();
+
+	private static final Map<MateLanguage, StaticState> languageStates = new EnumMap<MateLanguage, StaticState>(MateLanguage.class);
+	private static final Map<MateLanguage, Integer> waitingParses = new EnumMap<MateLanguage, Integer>(MateLanguage.class);
+
+	// Language the static state currently belongs to (null if unknown)
+	private static MateLanguage activeLanguage = null;
+	private static int activeParses = 0;
+	private static boolean loading = false;
+
+	// Sentences let in since the last language switch
+	private static int sentencesSinceSwitch = 0;
+	private static int minSentencesPerSwitch = 256;
+
+	private MateLanguageGate() {
+
+	}
+
+	/**
+	 * Wait until a sentence of the language can be parsed. Each call should be followed by a call to {@link #release() release}.
+	 *
+	 * @param language
+	 * @throws InterruptedException
+	 */
+	static void acquire(MateLanguage language) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			waitingParses.put(language, getWaitingParses(language) + 1);
+			try {
+				while(loading || mustWait(language)) {
+					gateChanged.await();
+				}
+			}
+			finally {
+				waitingParses.put(language, getWaitingParses(language) - 1);
+			}
+
+			if(activeLanguage != language) {
+				restore(language);
+				sentencesSinceSwitch = 0;
+			}
+			sentencesSinceSwitch++;
+			activeParses++;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Set the minimum number of sentences of a language parsed before switching to the sentences of another language that
+	 * are waiting (default 256).
+	 *
+	 * @param minSentences
+	 */
+	static void setMinSentencesPerSwitch(int minSentences) {
+		lock.lock();
+		try {
+			minSentencesPerSwitch = Math.max(1, minSentences);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Signal the end of the parsing of a sentence.
+	 *
+	 */
+	static void release() {
+		lock.lock();
+		try {
+			activeParses--;
+			if(activeParses == 0) {
+				gateChanged.signalAll();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Load models of a language, with exclusive access to the static state of the Mate-tools libraries.
+	 *
+	 * @param language
+	 * @param loader
+	 * @return the value returned by the loader
+	 * @throws Exception
+	 */
+	static <T> T load(MateLanguage language, Callable<T> loader) throws Exception {
+		lock.lockInterruptibly();
+		try {
+			while(loading || activeParses > 0) {
+				gateChanged.await();
+			}
+			loading = true;
+			if(activeLanguage != language && languageStates.containsKey(language)) {
+				restore(language);
+			}
+			if(!languageStates.isEmpty()) {
+				// The static fields refer to a captured state: the loader works on copies
+				StaticState.detach();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+
+		boolean loaded = false;
+		try {
+			T retValue = loader.call();
+			loaded = true;
+			return retValue;
+		}
+		finally {
+			lock.lock();
+			try {
+				if(loaded) {
+					languageStates.put(language, StaticState.capture());
+					activeLanguage = language;
+				}
+				else {
+					// The static state could have been partially overwritten
+					activeLanguage = null;
+				}
+				loading = false;
+				gateChanged.signalAll();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Forget the static state of a language, when its models are freed.
+	 *
+	 * @param language
+	 */
+	static void forget(MateLanguage language) {
+		lock.lock();
+		try {
+			languageStates.remove(language);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private static int getWaitingParses(MateLanguage language) {
+		Integer waiting = waitingParses.get(language);
+		return (waiting != null) ? waiting : 0;
+	}
+
+	/**
+	 * Check if a sentence of a language has to wait: while the sentences of another language are being parsed, or while the
+	 * sentences of other languages are waiting and the active language has used its minimum number of sentences.
+	 *
+	 */
+	private static boolean mustWait(MateLanguage language) {
+		if(activeLanguage != language) {
+			return activeParses > 0;
+		}
+		return sentencesSinceSwitch >= minSentencesPerSwitch && otherLanguagesWaiting(language);
+	}
+
+	private static boolean otherLanguagesWaiting(MateLanguage language) {
+		for(Map.Entry<MateLanguage, Integer> waitingEntry : waitingParses.entrySet()) {
+			if(waitingEntry.getKey() != language && waitingEntry.getValue() > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void restore(MateLanguage language) {
+		StaticState state = languageStates.get(language);
+		if(state != null) {
+			logger.debug("Switching Mate-tools static state from " + activeLanguage + " to " + language);
+			state.restore();
+			activeLanguage = language;
+		}
+		else {
+			logger.warn("No Mate-tools static state for " + language + ": models not loaded.");
+		}
+	}
+
+
+	/**
+	 * Static fields of the Mate-tools classes that depend on the loaded models, with their values for a language.<br/>
+	 *
+	 * The values of the non final fields are kept by reference and set back by reference: they are not modified after the
+	 * capture, since the fields are {@link #detach() detached} before loading other models. The final static maps cannot be
+	 * set, thus they are copied at capture time and refilled when restored.
+	 *
+	 */
+	private static class StaticState {
+
+		private final Map<Field, Object> fieldValues = new HashMap<Field, Object>();
+
+		static StaticState capture() {
+			StaticState state = new StaticState();
+			for(Field field : getStatefulFields()) {
+				try {
+					Object value = field.get(null);
+					state.fieldValues.put(field, Modifier.isFinal(field.getModifiers()) ? copyOf(value) : value);
+				} catch (Exception e) {
+					logger.warn("Impossible to capture the static field " + field.getDeclaringClass().getName() + "." + field.getName() + ": " + e.getMessage());
+				}
+			}
+			return state;
+		}
+
+		/**
+		 * Set the non final static fields to copies of their values, so that loading models does not modify a captured state.
+		 *
+		 */
+		static void detach() {
+			for(Field field : getStatefulFields()) {
+				try {
+					if(!Modifier.isFinal(field.getModifiers())) {
+						field.set(null, copyOf(field.get(null)));
+					}
+				} catch (Exception e) {
+					logger.warn("Impossible to copy the static field " + field.getDeclaringClass().getName() + "." + field.getName() + ": " + e.getMessage());
+				}
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		void restore() {
+			for(Map.Entry<Field, Object> fieldValue : fieldValues.entrySet()) {
+				Field field = fieldValue.getKey();
+				try {
+					if(Modifier.isFinal(field.getModifiers())) {
+						Map staticMap = (Map) field.get(null);
+						staticMap.clear();
+						if(fieldValue.getValue() != null) {
+							staticMap.putAll((Map) fieldValue.getValue());
+						}
+					}
+					else {
+						field.set(null, fieldValue.getValue());
+					}
+				} catch (Exception e) {
+					logger.warn("Impossible to restore the static field " + field.getDeclaringClass().getName() + "." + field.getName() + ": " + e.getMessage());
+				}
+			}
+		}
+
+		private static List<Field> getStatefulFields() {
+			List<Field> retFields = new ArrayList<Field>();
+			for(String className : STATEFUL_CLASSES) {
+				try {
+					Class<?> statefulClass = Class.forName(className);
+					for(Field field : statefulClass.getDeclaredFields()) {
+						int modifiers = field.getModifiers();
+						if(!Modifier.isStatic(modifiers) || Executor.class.isAssignableFrom(field.getType())) {
+							continue;
+						}
+						if(Modifier.isFinal(modifiers) && !Map.class.isAssignableFrom(field.getType())) {
+							continue;
+						}
+						field.setAccessible(true);
+						retFields.add(field);
+					}
+				} catch (ClassNotFoundException e) {
+					logger.debug("Mate-tools class not available: " + className);
+				} catch (Exception e) {
+					logger.warn("Impossible to access the static state of " + className + ": " + e.getMessage());
+				}
+			}
+			return retFields;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static Object copyOf(Object value) {
+			if(value instanceof HashMap) {
+				return new HashMap((HashMap) value);
+			}
+			else if(value != null && value.getClass().isArray()) {
+				int length = Array.getLength(value);
+				Object arrayCopy = Array.newInstance(value.getClass().getComponentType(), length);
+				if(value.getClass().getComponentType().isPrimitive()) {
+					System.arraycopy(value, 0, arrayCopy, 0, length);
+				}
+				else {
+					Object[] values = (Object[]) value;
+					Object[] valueCopies = (Object[]) arrayCopy;
+					for(int i = 0; i < length; i++) {
+						valueCopies[i] = copyOf(values[i]);
+					}
+				}
+				return arrayCopy;
+			}
+			return value;
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+/**
+ * Receiver of the measures of the Mate parser engines (see {@link MateParser#setMetrics(MateMetrics) MateParser.setMetrics}):
+ * the time spent by each stage, the time spent waiting for a pipeline or for the language lock, the parsed sentences and the
+ * sentences not completely parsed.<br/>
+ *
+ * {@link MateMetricsRegistry MateMetricsRegistry} keeps the measures in memory as histograms; other implementations can forward
+ * the measures to external monitoring systems. The methods are called by the parsing threads, thus they should be fast and thread-safe.
+ *
+ */
+public interface MateMetrics {
+
+	/**
+	 * Processing stages of a sentence.
+	 *
+	 */
+	public enum Stage {
+		/** Split of a document into sentences */
+		SPLIT,
+		/** Tokenization of a sentence */
+		TOKENIZE,
+		/** Lemmatizer */
+		LEMMATIZE,
+		/** POS tagger */
+		TAG,
+		/** Dependency parser */
+		PARSE,
+		/** Semantic role labeller */
+		SRL,
+		/** Conversion of the results into a ParsedSentence */
+		CONVERT
+	}
+
+	/**
+	 * Causes of waiting before parsing a sentence.
+	 *
+	 */
+	public enum Wait {
+		/** Wait for a pipeline of the pool of the engine */
+		PIPELINE,
+		/** Wait for the sentences of another language to be parsed (see MateLanguageGate) */
+		LANGUAGE
+	}
+
+	/**
+	 * Causes of sentences not parsed or parsed up to a lower parse level.
+	 *
+	 */
+	public enum Rejection {
+		/** Sentence longer than the maximum length, not parsed */
+		TOO_LONG,
+		/** Time budget expired, sentence parsed up to a lower parse level */
+		TIME_BUDGET_EXPIRED,
+		/** Error while parsing the sentence */
+		ERROR,
+		/** Sentence not accepted because of too many pending sentences */
+		OVERLOAD
+	}
+
+	/**
+	 * Record the time spent by a stage on a sentence (or chunk of a long sentence).
+	 *
+	 * @param language
+	 * @param stage
+	 * @param nanos
+	 */
+	void recordStage(MateLanguage language, Stage stage, long nanos);
+
+	/**
+	 * Record the time spent waiting before parsing a sentence.
+	 *
+	 * @param language
+	 * @param wait
+	 * @param nanos
+	 */
+	void recordWait(MateLanguage language, Wait wait, long nanos);
+
+	/**
+	 * Record a parsed sentence.
+	 *
+	 * @param language
+	 * @param tokenNumber the number of tokens of the sentence
+	 * @param nanos the time spent to parse the sentence, waits included
+	 */
+	void recordSentence(MateLanguage language, int tokenNumber, long nanos);
+
+	/**
+	 * Record a sentence not parsed or parsed up to a lower parse level.
+	 *
+	 * @param language
+	 * @param rejection
+	 */
+	void recordRejection(MateLanguage language, Rejection rejection);
+
+}
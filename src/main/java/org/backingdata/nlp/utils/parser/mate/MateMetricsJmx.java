@@ -0,0 +1,254 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Exposes the measures of a {@link MateMetricsRegistry MateMetricsRegistry} by JMX (platform MBean server), one MBean for each language
+ * named org.backingdata.nlp.utils.parser.mate:type=MateMetrics,language=&lt;language&gt;, thus the measures can be read by JConsole,
+ * VisualVM or any JMX client, without other libraries.<br/>
+ *
+ * MateMetricsRegistry registry = new MateMetricsRegistry();<br/>
+ * MateParserEN.setMetrics(registry);<br/>
+ * MateMetricsJmx.register(registry);
+ *
+ */
+public class MateMetricsJmx implements MateMetricsMXBean {
+
+	private static Logger logger = Logger.getLogger(MateMetricsJmx.class);
+
+	private static final String DOMAIN = "org.backingdata.nlp.utils.parser.mate";
+
+	private static final double NANOS_PER_MILLI = 1000000d;
+
+	private final MateMetricsRegistry registry;
+
+	private final MateLanguage language;
+
+	public MateMetricsJmx(MateMetricsRegistry registry, MateLanguage language) {
+		this.registry = registry;
+		this.language = language;
+	}
+
+	/**
+	 * Register the MBeans of all the languages, replacing the MBeans already registered.
+	 *
+	 * @param registry
+	 * @return false if an MBean cannot be registered
+	 */
+	public static boolean register(MateMetricsRegistry registry) {
+		boolean retVal = true;
+		for(MateLanguage language : MateLanguage.values()) {
+			retVal &= register(registry, language);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Register the MBean of a language, replacing the MBean already registered.
+	 *
+	 * @param registry
+	 * @param language
+	 * @return false if the MBean cannot be registered
+	 */
+	public static synchronized boolean register(MateMetricsRegistry registry, MateLanguage language) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = getObjectName(language);
+			if(server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(new MateMetricsJmx(registry, language), name);
+			return true;
+		} catch (Exception e) {
+			logger.error("Error registering the JMX metrics of Mate parser (" + language + "): " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Unregister the MBeans of all the languages.
+	 *
+	 */
+	public static synchronized void unregister() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for(MateLanguage language : MateLanguage.values()) {
+			try {
+				ObjectName name = getObjectName(language);
+				if(server.isRegistered(name)) {
+					server.unregisterMBean(name);
+				}
+			} catch (Exception e) {
+				logger.error("Error unregistering the JMX metrics of Mate parser (" + language + "): " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Get the name of the MBean of a language.
+	 *
+	 * @param language
+	 * @return
+	 * @throws Exception
+	 */
+	public static ObjectName getObjectName(MateLanguage language) throws Exception {
+		return new ObjectName(DOMAIN + ":type=MateMetrics,language=" + language);
+	}
+
+	@Override
+	public String getLanguage() {
+		return language.toString();
+	}
+
+	@Override
+	public long getSentenceCount() {
+		return registry.getSentenceLatency(language).getCount();
+	}
+
+	@Override
+	public double getSentenceMeanMillis() {
+		return registry.getSentenceLatency(language).getMean() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getSentenceP50Millis() {
+		return registry.getSentenceLatency(language).getPercentile(50d) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getSentenceP99Millis() {
+		return registry.getSentenceLatency(language).getPercentile(99d) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getSentenceMaxMillis() {
+		return registry.getSentenceLatency(language).getMax() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getTokenNumberMean() {
+		return registry.getTokenNumbers(language).getMean();
+	}
+
+	@Override
+	public long getTokenNumberMax() {
+		return registry.getTokenNumbers(language).getMax();
+	}
+
+	@Override
+	public Map<String, Long> getTokenNumberHistogram() {
+		MateHistogram tokenNumbers = registry.getTokenNumbers(language);
+		Map<String, Long> retHistogram = new LinkedHashMap<String, Long>();
+		for(int b = 0; b < tokenNumbers.getBucketCount(); b++) {
+			long count = tokenNumbers.getBucketValueCount(b);
+			if(count > 0l) {
+				long lowerBound = tokenNumbers.getBucketLowerBound(b);
+				long upperBound = tokenNumbers.getBucketUpperBound(b);
+				retHistogram.put((lowerBound == upperBound) ? String.valueOf(lowerBound) : lowerBound + "-" + upperBound, count);
+			}
+		}
+		return retHistogram;
+	}
+
+	@Override
+	public Map<String, Long> getStageCounts() {
+		Map<String, Long> retCounts = new LinkedHashMap<String, Long>();
+		for(MateMetrics.Stage stage : MateMetrics.Stage.values()) {
+			retCounts.put(stage.toString(), registry.getStageLatency(language, stage).getCount());
+		}
+		return retCounts;
+	}
+
+	@Override
+	public Map<String, Double> getStageMeanMillis() {
+		Map<String, Double> retMillis = new LinkedHashMap<String, Double>();
+		for(MateMetrics.Stage stage : MateMetrics.Stage.values()) {
+			retMillis.put(stage.toString(), registry.getStageLatency(language, stage).getMean() / NANOS_PER_MILLI);
+		}
+		return retMillis;
+	}
+
+	@Override
+	public Map<String, Double> getStageP50Millis() {
+		return getStagePercentileMillis(50d);
+	}
+
+	@Override
+	public Map<String, Double> getStageP99Millis() {
+		return getStagePercentileMillis(99d);
+	}
+
+	@Override
+	public Map<String, Double> getStageMaxMillis() {
+		Map<String, Double> retMillis = new LinkedHashMap<String, Double>();
+		for(MateMetrics.Stage stage : MateMetrics.Stage.values()) {
+			retMillis.put(stage.toString(), registry.getStageLatency(language, stage).getMax() / NANOS_PER_MILLI);
+		}
+		return retMillis;
+	}
+
+	@Override
+	public Map<String, Long> getWaitCounts() {
+		Map<String, Long> retCounts = new LinkedHashMap<String, Long>();
+		for(MateMetrics.Wait wait : MateMetrics.Wait.values()) {
+			retCounts.put(wait.toString(), registry.getWaitLatency(language, wait).getCount());
+		}
+		return retCounts;
+	}
+
+	@Override
+	public Map<String, Double> getWaitMeanMillis() {
+		Map<String, Double> retMillis = new LinkedHashMap<String, Double>();
+		for(MateMetrics.Wait wait : MateMetrics.Wait.values()) {
+			retMillis.put(wait.toString(), registry.getWaitLatency(language, wait).getMean() / NANOS_PER_MILLI);
+		}
+		return retMillis;
+	}
+
+	@Override
+	public Map<String, Double> getWaitP99Millis() {
+		Map<String, Double> retMillis = new LinkedHashMap<String, Double>();
+		for(MateMetrics.Wait wait : MateMetrics.Wait.values()) {
+			retMillis.put(wait.toString(), registry.getWaitLatency(language, wait).getPercentile(99d) / NANOS_PER_MILLI);
+		}
+		return retMillis;
+	}
+
+	@Override
+	public Map<String, Double> getWaitMaxMillis() {
+		Map<String, Double> retMillis = new LinkedHashMap<String, Double>();
+		for(MateMetrics.Wait wait : MateMetrics.Wait.values()) {
+			retMillis.put(wait.toString(), registry.getWaitLatency(language, wait).getMax() / NANOS_PER_MILLI);
+		}
+		return retMillis;
+	}
+
+	@Override
+	public Map<String, Long> getRejectionCounts() {
+		Map<String, Long> retCounts = new LinkedHashMap<String, Long>();
+		for(MateMetrics.Rejection rejection : MateMetrics.Rejection.values()) {
+			retCounts.put(rejection.toString(), registry.getRejectionCount(language, rejection));
+		}
+		return retCounts;
+	}
+
+	@Override
+	public void reset() {
+		registry.reset(language);
+	}
+
+	private Map<String, Double> getStagePercentileMillis(double percentile) {
+		Map<String, Double> retMillis = new LinkedHashMap<String, Double>();
+		for(MateMetrics.Stage stage : MateMetrics.Stage.values()) {
+			retMillis.put(stage.toString(), registry.getStageLatency(language, stage).getPercentile(percentile) / NANOS_PER_MILLI);
+		}
+		return retMillis;
+	}
+
+}
@@ -0,0 +1,61 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.util.Map;
+
+/**
+ * JMX view of the measures of the Mate parser engines of a language (see {@link MateMetricsJmx MateMetricsJmx}).
+ * The maps are keyed by stage, cause of waiting or cause of rejection (see {@link MateMetrics MateMetrics}); times are in milliseconds.
+ *
+ */
+public interface MateMetricsMXBean {
+
+	String getLanguage();
+
+	long getSentenceCount();
+
+	double getSentenceMeanMillis();
+
+	double getSentenceP50Millis();
+
+	double getSentenceP99Millis();
+
+	double getSentenceMaxMillis();
+
+	double getTokenNumberMean();
+
+	long getTokenNumberMax();
+
+	/**
+	 * Number of sentences by number of tokens, keyed by range of number of tokens (for instance "16-19").
+	 *
+	 * @return
+	 */
+	Map<String, Long> getTokenNumberHistogram();
+
+	Map<String, Long> getStageCounts();
+
+	Map<String, Double> getStageMeanMillis();
+
+	Map<String, Double> getStageP50Millis();
+
+	Map<String, Double> getStageP99Millis();
+
+	Map<String, Double> getStageMaxMillis();
+
+	Map<String, Long> getWaitCounts();
+
+	Map<String, Double> getWaitMeanMillis();
+
+	Map<String, Double> getWaitP99Millis();
+
+	Map<String, Double> getWaitMaxMillis();
+
+	Map<String, Long> getRejectionCounts();
+
+	/**
+	 * Remove the measures of the language.
+	 *
+	 */
+	void reset();
+
+}
@@ -0,0 +1,182 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps in memory the measures of the Mate parser engines (see {@link MateMetrics MateMetrics}), for each language:
+ * a latency histogram (nanoseconds) for each stage, for each cause of waiting and for the whole sentences, a histogram of
+ * the number of tokens of the parsed sentences and the counts of the sentences not completely parsed.<br/>
+ *
+ * The same registry can be set to several engines. The measures can be exposed by JMX by means of
+ * {@link MateMetricsJmx MateMetricsJmx}.
+ *
+ */
+public class MateMetricsRegistry implements MateMetrics {
+
+	private final Map<MateLanguage, LanguageMetrics> languageMetrics = new EnumMap<MateLanguage, LanguageMetrics>(MateLanguage.class);
+
+	public MateMetricsRegistry() {
+		// The map is filled once, then only read
+		for(MateLanguage language : MateLanguage.values()) {
+			languageMetrics.put(language, new LanguageMetrics());
+		}
+	}
+
+	@Override
+	public void recordStage(MateLanguage language, Stage stage, long nanos) {
+		languageMetrics.get(language).stages[stage.ordinal()].record(nanos);
+	}
+
+	@Override
+	public void recordWait(MateLanguage language, Wait wait, long nanos) {
+		languageMetrics.get(language).waits[wait.ordinal()].record(nanos);
+	}
+
+	@Override
+	public void recordSentence(MateLanguage language, int tokenNumber, long nanos) {
+		LanguageMetrics metrics = languageMetrics.get(language);
+		metrics.sentences.record(nanos);
+		metrics.tokenNumbers.record(tokenNumber);
+	}
+
+	@Override
+	public void recordRejection(MateLanguage language, Rejection rejection) {
+		languageMetrics.get(language).rejections.incrementAndGet(rejection.ordinal());
+	}
+
+	/**
+	 * Get the latencies of a stage (nanoseconds).
+	 *
+	 * @param language
+	 * @param stage
+	 * @return
+	 */
+	public MateHistogram getStageLatency(MateLanguage language, Stage stage) {
+		return languageMetrics.get(language).stages[stage.ordinal()];
+	}
+
+	/**
+	 * Get the waiting times of a cause of waiting (nanoseconds).
+	 *
+	 * @param language
+	 * @param wait
+	 * @return
+	 */
+	public MateHistogram getWaitLatency(MateLanguage language, Wait wait) {
+		return languageMetrics.get(language).waits[wait.ordinal()];
+	}
+
+	/**
+	 * Get the latencies of the parsed sentences (nanoseconds), waits included.
+	 *
+	 * @param language
+	 * @return
+	 */
+	public MateHistogram getSentenceLatency(MateLanguage language) {
+		return languageMetrics.get(language).sentences;
+	}
+
+	/**
+	 * Get the number of tokens of the parsed sentences.
+	 *
+	 * @param language
+	 * @return
+	 */
+	public MateHistogram getTokenNumbers(MateLanguage language) {
+		return languageMetrics.get(language).tokenNumbers;
+	}
+
+	/**
+	 * Get the number of sentences not completely parsed because of a cause.
+	 *
+	 * @param language
+	 * @param rejection
+	 * @return
+	 */
+	public long getRejectionCount(MateLanguage language, Rejection rejection) {
+		return languageMetrics.get(language).rejections.get(rejection.ordinal());
+	}
+
+	/**
+	 * Remove all the measures.
+	 *
+	 */
+	public void reset() {
+		for(LanguageMetrics metrics : languageMetrics.values()) {
+			metrics.reset();
+		}
+	}
+
+	/**
+	 * Remove the measures of a language.
+	 *
+	 * @param language
+	 */
+	public void reset(MateLanguage language) {
+		languageMetrics.get(language).reset();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder("MateMetricsRegistry");
+		for(MateLanguage language : MateLanguage.values()) {
+			if(getSentenceLatency(language).getCount() == 0l && getStageLatency(language, Stage.TOKENIZE).getCount() == 0l) {
+				continue;
+			}
+			report.append("\n").append(language).append(" sentences (ns): ").append(getSentenceLatency(language));
+			report.append("\n").append(language).append(" tokens: ").append(getTokenNumbers(language));
+			for(Stage stage : Stage.values()) {
+				report.append("\n").append(language).append(" ").append(stage).append(" (ns): ").append(getStageLatency(language, stage));
+			}
+			for(Wait wait : Wait.values()) {
+				report.append("\n").append(language).append(" wait ").append(wait).append(" (ns): ").append(getWaitLatency(language, wait));
+			}
+			for(Rejection rejection : Rejection.values()) {
+				report.append("\n").append(language).append(" ").append(rejection).append(": ").append(getRejectionCount(language, rejection));
+			}
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Measures of a language.
+	 *
+	 */
+	private static class LanguageMetrics {
+
+		private final MateHistogram[] stages = newHistograms(Stage.values().length);
+
+		private final MateHistogram[] waits = newHistograms(Wait.values().length);
+
+		private final MateHistogram sentences = new MateHistogram();
+
+		private final MateHistogram tokenNumbers = new MateHistogram();
+
+		private final AtomicLongArray rejections = new AtomicLongArray(Rejection.values().length);
+
+		void reset() {
+			for(MateHistogram stage : stages) {
+				stage.reset();
+			}
+			for(MateHistogram wait : waits) {
+				wait.reset();
+			}
+			sentences.reset();
+			tokenNumbers.reset();
+			for(int r = 0; r < rejections.length(); r++) {
+				rejections.set(r, 0l);
+			}
+		}
+
+		private static MateHistogram[] newHistograms(int number) {
+			MateHistogram[] retHistograms = new MateHistogram[number];
+			for(int h = 0; h < number; h++) {
+				retHistograms[h] = new MateHistogram();
+			}
+			return retHistograms;
+		}
+	}
+
+}
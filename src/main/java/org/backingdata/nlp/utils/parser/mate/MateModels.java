@@ -0,0 +1,365 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipFile;
+
+import org.apache.log4j.Logger;
+
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerModel;
+import se.lth.cs.srl.Parse;
+import se.lth.cs.srl.SemanticRoleLabeler;
+import se.lth.cs.srl.options.CompletePipelineCMDLineOptions;
+import se.lth.cs.srl.pipeline.Pipeline;
+import se.lth.cs.srl.pipeline.Reranker;
+import se.lth.cs.srl.pipeline.Step;
+import se.lth.cs.srl.util.BohnetHelper;
+
+/**
+ * In-memory registry of the models used by the Mate parser engines.<br/>
+ *
+ * The models of each language are loaded once and shared by all the {@link MateParser MateParser} engines
+ * of that language; the OpenNLP tokenizer and sentence detector models (see {@link OpenNLPFrontEnd OpenNLPFrontEnd}) are shared
+ * among languages (keyed by model file).
+ *
+ */
+final class MateModels {
+
+	private static Logger logger = Logger.getLogger(MateModels.class);
+
+	private static final Map<String, TokenizerModel> tokenizerModels = new HashMap<String, TokenizerModel>();
+
+	private static final Map<String, SentenceModel> sentenceModels = new HashMap<String, SentenceModel>();
+
+	private static final Map<MateLanguage, LanguageModels> languageModels = new EnumMap<MateLanguage, LanguageModels>(MateLanguage.class);
+
+	private MateModels() {
+
+	}
+
+	/**
+	 * Get the OpenNLP tokenizer model stored in a file, loading it only the first time.
+	 *
+	 * @param modelPath
+	 * @return
+	 * @throws IOException
+	 */
+	static TokenizerModel getTokenizerModel(String modelPath) throws IOException {
+		String modelKey = new File(modelPath).getCanonicalPath();
+		synchronized(tokenizerModels) {
+			TokenizerModel model = tokenizerModels.get(modelKey);
+			if(model == null) {
+				model = new TokenizerModel(new File(modelKey));
+				tokenizerModels.put(modelKey, model);
+			}
+			return model;
+		}
+	}
+
+	/**
+	 * Get the OpenNLP sentence detector model stored in a file, loading it only the first time.
+	 *
+	 * @param modelPath
+	 * @return
+	 * @throws IOException
+	 */
+	static SentenceModel getSentenceModel(String modelPath) throws IOException {
+		String modelKey = new File(modelPath).getCanonicalPath();
+		synchronized(sentenceModels) {
+			SentenceModel model = sentenceModels.get(modelKey);
+			if(model == null) {
+				model = new SentenceModel(new File(modelKey));
+				sentenceModels.put(modelKey, model);
+			}
+			return model;
+		}
+	}
+
+	/**
+	 * Get the models of a language: the Mate-tools models are loaded lazily, only when needed by a
+	 * pipeline (see {@link LanguageModels#newPipeline(ParseLevel, long) newPipeline}).
+	 * Each call should be followed by a call to {@link #free(MateLanguage) free} when the models are no more used.
+	 *
+	 * @param language
+	 * @return
+	 * @throws Exception
+	 */
+	static synchronized LanguageModels getLanguageModels(MateLanguage language) throws Exception {
+		LanguageModels models = languageModels.get(language);
+		if(models == null) {
+			models = new LanguageModels(language);
+			languageModels.put(language, models);
+		}
+		models.users++;
+		return models;
+	}
+
+	/**
+	 * Signal that the models of a language are no more used by an engine: when no engine uses them, the models are removed
+	 * from the registry and garbage collected.
+	 *
+	 * @param language
+	 */
+	static synchronized void free(MateLanguage language) {
+		LanguageModels models = languageModels.get(language);
+		if(models != null && --models.users <= 0) {
+			languageModels.remove(language);
+			MateLanguageGate.forget(language);
+		}
+	}
+
+
+	/**
+	 * Models of a language, loaded stage by stage as needed by the {@link ParseLevel ParseLevel} of the pipelines.
+	 * The weights of the lemmatizer / tagger / parser are shared by all the pipelines created by means of
+	 * {@link #newPipeline(ParseLevel, long) newPipeline}.
+	 *
+	 */
+	static class LanguageModels {
+
+		private final MateLanguage language;
+
+		private SemanticRoleLabeler srl = null;
+
+		private is2.lemmatizer.Lemmatizer lemmatizer = null;
+
+		private is2.tag.Tagger tagger = null;
+
+		private is2.parser.Parser parser = null;
+
+		// The tools loaded with the models are used by the first pipeline that needs them
+		private boolean lemmatizerUsed = false;
+		private boolean taggerUsed = false;
+		private boolean parserUsed = false;
+
+		// Engines using these models
+		private int users = 0;
+
+		private LanguageModels(MateLanguage language) {
+			this.language = language;
+		}
+
+		MateLanguage getLanguage() {
+			return language;
+		}
+
+		/**
+		 * Load the models needed to parse sentences up to a parse level, if not already loaded.
+		 *
+		 * @param level
+		 * @throws Exception
+		 */
+		synchronized void loadModels(final ParseLevel level) throws Exception {
+			if((!level.includes(ParseLevel.LEMMA) || lemmatizer != null) &&
+					(!level.includes(ParseLevel.POS) || tagger != null) &&
+					(!level.includes(ParseLevel.DEPENDENCY) || parser != null) &&
+					(!level.includes(ParseLevel.SRL) || srl != null)) {
+				return;
+			}
+
+			MateLanguageGate.load(language, new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					logger.info("Loading Mate parser models (" + language + ", " + level + ")...");
+
+					// Each tool (and the SRL) relies on its own static state, thus the models are loaded in parallel
+					ExecutorService loaders = Executors.newFixedThreadPool(4, new MateParser.DaemonThreadFactory("MateModels-" + language + "-loader"));
+					try {
+						Future<is2.lemmatizer.Lemmatizer> lemmatizerLoader = null;
+						if(level.includes(ParseLevel.LEMMA) && lemmatizer == null) {
+							lemmatizerLoader = loaders.submit(new Callable<is2.lemmatizer.Lemmatizer>() {
+								@Override
+								public is2.lemmatizer.Lemmatizer call() throws Exception {
+									return BohnetHelper.getLemmatizer(new File(language.getLemmatizerModelPath()));
+								}
+							});
+						}
+						Future<is2.tag.Tagger> taggerLoader = null;
+						if(level.includes(ParseLevel.POS) && tagger == null) {
+							taggerLoader = loaders.submit(new Callable<is2.tag.Tagger>() {
+								@Override
+								public is2.tag.Tagger call() throws Exception {
+									return BohnetHelper.getTagger(new File(language.getTaggerModelPath()));
+								}
+							});
+						}
+						Future<is2.parser.Parser> parserLoader = null;
+						if(level.includes(ParseLevel.DEPENDENCY) && parser == null) {
+							parserLoader = loaders.submit(new Callable<is2.parser.Parser>() {
+								@Override
+								public is2.parser.Parser call() throws Exception {
+									return BohnetHelper.getParser(new File(language.getParserModelPath()));
+								}
+							});
+						}
+						Future<SemanticRoleLabeler> srlLoader = null;
+						if(level.includes(ParseLevel.SRL) && srl == null) {
+							srlLoader = loaders.submit(new Callable<SemanticRoleLabeler>() {
+								@Override
+								public SemanticRoleLabeler call() throws Exception {
+									return loadSrl(language);
+								}
+							});
+						}
+
+						if(lemmatizerLoader != null) {
+							lemmatizer = getLoaded(lemmatizerLoader);
+						}
+						if(taggerLoader != null) {
+							tagger = getLoaded(taggerLoader);
+						}
+						if(parserLoader != null) {
+							parser = getLoaded(parserLoader);
+						}
+						if(srlLoader != null) {
+							srl = getLoaded(srlLoader);
+						}
+					}
+					finally {
+						loaders.shutdownNow();
+					}
+
+					logger.info("Loaded Mate parser models (" + language + ", " + level + ").");
+					return null;
+				}
+			});
+		}
+
+		/**
+		 * Create a new pipeline, loading the models needed by the parse level if not already loaded.
+		 * The first pipeline that needs a tool uses the one loaded with the models. The following ones get a parser
+		 * built around the read-only state of the loaded parser (weights, options, feature clusters) with its own
+		 * feature extractors, while the (small) lemmatizer and tagger models are read again for their working state.
+		 *
+		 * @param level
+		 * @param generation
+		 * @return
+		 * @throws Exception
+		 */
+		MatePipeline newPipeline(final ParseLevel level, final long generation) throws Exception {
+			loadModels(level);
+
+			final boolean newLemmatizer;
+			final boolean newTagger;
+			final boolean newParser;
+			synchronized(this) {
+				newLemmatizer = level.includes(ParseLevel.LEMMA) && lemmatizerUsed;
+				newTagger = level.includes(ParseLevel.POS) && taggerUsed;
+				newParser = level.includes(ParseLevel.DEPENDENCY) && parserUsed;
+				lemmatizerUsed = lemmatizerUsed || level.includes(ParseLevel.LEMMA);
+				taggerUsed = taggerUsed || level.includes(ParseLevel.POS);
+				parserUsed = parserUsed || level.includes(ParseLevel.DEPENDENCY);
+			}
+
+			if(!newLemmatizer && !newTagger && !newParser) {
+				return new MatePipeline(level, lemmatizer, tagger, parser, srl, generation);
+			}
+
+			return MateLanguageGate.load(language, new Callable<MatePipeline>() {
+				@Override
+				public MatePipeline call() throws Exception {
+					MatePipeline pipeline = new MatePipeline(level,
+							newLemmatizer ? BohnetHelper.getLemmatizer(new File(language.getLemmatizerModelPath())) : lemmatizer,
+							newTagger ? BohnetHelper.getTagger(new File(language.getTaggerModelPath())) : tagger,
+							newParser ? newParser(parser) : parser,
+							srl, generation);
+					pipeline.shareWeightsOf(lemmatizer, tagger, parser);
+					return pipeline;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Create a parser that shares the read-only state of a loaded parser (weights, options, feature clusters and the
+	 * feature maps, kept in static fields by the Mate-tools libraries) and has its own feature extractors and working state,
+	 * without reading the model file again. To invoke by means of {@link MateLanguageGate#load(MateLanguage, Callable) MateLanguageGate.load}
+	 * since the extractors are initialized from the static feature maps of the language.
+	 *
+	 * @param loadedParser
+	 * @return
+	 */
+	private static is2.parser.Parser newParser(is2.parser.Parser loadedParser) {
+		is2.parser.Parser retParser = new is2.parser.Parser();
+		retParser.options = loadedParser.options;
+		retParser.params = loadedParser.params;
+		retParser.l2i = loadedParser.l2i;
+
+		retParser.pipe = new is2.parser.Pipe(loadedParser.options);
+		retParser.pipe.cl = loadedParser.pipe.cl;
+		is2.parser.Extractor[] loadedExtractors = loadedParser.pipe.extractor;
+		retParser.pipe.extractor = new is2.parser.Extractor[loadedExtractors.length];
+		for(int e = 0; e < loadedExtractors.length; e++) {
+			retParser.pipe.extractor[e] = new is2.parser.Extractor(retParser.l2i, loadedExtractors[e].s_stack, loadedParser.options.featureCreation);
+			retParser.pipe.extractor[e].init();
+		}
+		return retParser;
+	}
+
+	private static <T> T getLoaded(Future<T> loader) throws Exception {
+		try {
+			return loader.get();
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Load the SRL models of a language. To invoke by means of {@link MateLanguageGate#load(MateLanguage, Callable) MateLanguageGate.load}
+	 * since the SRL options are set JVM-wide.
+	 *
+	 * @param language
+	 * @return
+	 * @throws Exception
+	 */
+	private static SemanticRoleLabeler loadSrl(MateLanguage language) throws Exception {
+		List<String> argumentList = new ArrayList<String>();
+		argumentList.add(language.getSrlLanguage().toString());
+
+		argumentList.add("-lemma");
+		argumentList.add(language.getLemmatizerModelPath());
+		argumentList.add("-tagger");
+		argumentList.add(language.getTaggerModelPath());
+		argumentList.add("-parser");
+		argumentList.add(language.getParserModelPath());
+		argumentList.add("-srl");
+		argumentList.add(language.getSrlModelPath());
+
+		// Set options
+		String[] arguments = argumentList.toArray(new String[argumentList.size()]);
+
+		CompletePipelineCMDLineOptions options = new CompletePipelineCMDLineOptions();
+		options.parseCmdLineArgs(arguments);
+
+		Parse.parseOptions = options.getParseOptions();
+
+		SemanticRoleLabeler srl = null;
+		if (options.reranker) {
+			srl = new Reranker(Parse.parseOptions);
+		} else {
+			ZipFile zipFile = new ZipFile(Parse.parseOptions.modelFile);
+			if (Parse.parseOptions.skipPI) {
+				srl = Pipeline.fromZipFile(zipFile, new Step[] { Step.pd, Step.ai, Step.ac });
+			} else {
+				srl = Pipeline.fromZipFile(zipFile);
+			}
+			zipFile.close();
+		}
+		return srl;
+	}
+
+}
@@ -0,0 +1,298 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Cache of the results of the Mate parser, to avoid parsing again sentences already parsed.<br/>
+ *
+ * The parsed sentences are keyed by language, parse level and list of tokens (trimmed and Unicode NFC normalized).
+ * The cache has a size-bounded in-memory tier with LRU eviction and, optionally, an unbounded on-disk tier: each sentence
+ * is stored in a binary file (see {@link ParsedSentenceBinaryWriter ParsedSentenceBinaryWriter}) named by the hash of its key,
+ * thus the on-disk tier can be shared by different processes and survives restarts.<br/>
+ *
+ * Only the sentences parsed up to the parse level of the parser are cached (not the ones parsed within an expired time budget).
+ * The cache returns copies of the cached sentences, thus the returned sentences can be modified.<br/>
+ *
+ * A cache can be shared by several {@link MateParser MateParser} engines (see {@link MateParser#setCache(MateParseCache) MateParser.setCache}).
+ *
+ */
+public class MateParseCache {
+
+	private static Logger logger = Logger.getLogger(MateParseCache.class);
+
+	private final int maxEntries;
+
+	private final File diskFolder;
+
+	private final Map<String, ParsedSentence> memoryTier;
+
+	private final AtomicLong hits = new AtomicLong(0l);
+	private final AtomicLong diskHits = new AtomicLong(0l);
+	private final AtomicLong misses = new AtomicLong(0l);
+	private final AtomicLong evictions = new AtomicLong(0l);
+	private final AtomicLong diskErrors = new AtomicLong(0l);
+
+	/**
+	 * Create an in-memory cache.
+	 *
+	 * @param maxEntries maximum number of sentences kept in memory
+	 */
+	public MateParseCache(int maxEntries) {
+		this(maxEntries, null);
+	}
+
+	/**
+	 * Create a cache with an in-memory tier and an on-disk tier.
+	 *
+	 * @param maxEntries maximum number of sentences kept in memory
+	 * @param diskFolder folder of the on-disk tier (created if not existing), null to cache in memory only
+	 */
+	public MateParseCache(int maxEntries, File diskFolder) {
+		this.maxEntries = Math.max(1, maxEntries);
+		this.diskFolder = diskFolder;
+		if(diskFolder != null && !diskFolder.isDirectory() && !diskFolder.mkdirs()) {
+			throw new IllegalArgumentException("Impossible to create the parse cache folder " + diskFolder.getAbsolutePath());
+		}
+
+		this.memoryTier = new LinkedHashMap<String, ParsedSentence>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ParsedSentence> eldest) {
+				if(size() > MateParseCache.this.maxEntries) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Get a parsed sentence from the cache.
+	 *
+	 * @param language
+	 * @param level
+	 * @param tokens
+	 * @return a copy of the cached sentence, null if not cached
+	 */
+	public ParsedSentence get(MateLanguage language, ParseLevel level, List<String> tokens) {
+		String key = getKey(language, level, tokens);
+
+		ParsedSentence cached = null;
+		synchronized(memoryTier) {
+			cached = memoryTier.get(key);
+		}
+		if(cached != null) {
+			hits.incrementAndGet();
+			return new ParsedSentence(cached);
+		}
+
+		if(diskFolder != null) {
+			cached = readFromDisk(key, level, tokens);
+			if(cached != null) {
+				diskHits.incrementAndGet();
+				synchronized(memoryTier) {
+					memoryTier.put(key, cached);
+				}
+				return new ParsedSentence(cached);
+			}
+		}
+
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Add a parsed sentence to the cache. Sentences not parsed up to the parse level are ignored.
+	 *
+	 * @param language
+	 * @param level
+	 * @param tokens
+	 * @param parsedSentence
+	 */
+	public void put(MateLanguage language, ParseLevel level, List<String> tokens, ParsedSentence parsedSentence) {
+		if(parsedSentence == null || parsedSentence.getParseLevel() != level || parsedSentence.getToken().size() != tokens.size()) {
+			return;
+		}
+
+		String key = getKey(language, level, tokens);
+		ParsedSentence cached = new ParsedSentence(parsedSentence);
+		synchronized(memoryTier) {
+			memoryTier.put(key, cached);
+		}
+
+		if(diskFolder != null) {
+			writeToDisk(key, cached);
+		}
+	}
+
+	/**
+	 * Remove all the sentences from the in-memory tier (the on-disk tier is not modified).
+	 *
+	 */
+	public void clear() {
+		synchronized(memoryTier) {
+			memoryTier.clear();
+		}
+	}
+
+	/**
+	 * Number of sentences in the in-memory tier.
+	 *
+	 * @return
+	 */
+	public int size() {
+		synchronized(memoryTier) {
+			return memoryTier.size();
+		}
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getDiskHitCount() {
+		return diskHits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * Ratio of requests served by the cache (in-memory or on-disk tier).
+	 *
+	 * @return
+	 */
+	public double getHitRate() {
+		long served = hits.get() + diskHits.get();
+		long requests = served + misses.get();
+		return (requests > 0l) ? ((double) served) / ((double) requests) : 0d;
+	}
+
+	@Override
+	public String toString() {
+		return "MateParseCache [size=" + size() + "/" + maxEntries + ", hits=" + hits.get() + ", diskHits=" + diskHits.get()
+				+ ", misses=" + misses.get() + ", evictions=" + evictions.get() + ", diskErrors=" + diskErrors.get()
+				+ ", hitRate=" + String.format("%.3f", getHitRate()) + "]";
+	}
+
+	/**
+	 * Normalize the tokens of a sentence, as compared by the cache.
+	 *
+	 * @param tokens
+	 * @return
+	 */
+	static List<String> normalize(List<String> tokens) {
+		List<String> normalizedTokens = new ArrayList<String>(tokens.size());
+		for(String token : tokens) {
+			normalizedTokens.add((token != null) ? Normalizer.normalize(token.trim(), Normalizer.Form.NFC) : "");
+		}
+		return Collections.unmodifiableList(normalizedTokens);
+	}
+
+	private static String getKey(MateLanguage language, ParseLevel level, List<String> tokens) {
+		StringBuilder key = new StringBuilder();
+		key.append(language.name()).append('\u0001').append(level.name());
+		for(String token : normalize(tokens)) {
+			key.append('\u0001').append(token);
+		}
+		return key.toString();
+	}
+
+	private File getDiskFile(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hash = new StringBuilder();
+			for(byte b : digest) {
+				hash.append(String.format("%02x", b & 0xff));
+			}
+			return new File(new File(diskFolder, hash.substring(0, 2)), hash.toString() + ".psb");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private ParsedSentence readFromDisk(String key, ParseLevel level, List<String> tokens) {
+		File diskFile = getDiskFile(key);
+		if(!diskFile.isFile()) {
+			return null;
+		}
+
+		ParsedSentenceBinaryReader reader = null;
+		try {
+			reader = new ParsedSentenceBinaryReader(diskFile.toPath());
+			ParsedSentence cached = reader.hasNext() ? reader.next() : null;
+			if(cached == null || !normalize(cached.getToken()).equals(normalize(tokens))) {
+				return null;
+			}
+			return (cached.getParseLevel() == level) ? cached : null;
+		} catch (Exception e) {
+			diskErrors.incrementAndGet();
+			logger.warn("Error reading the parse cache file " + diskFile.getAbsolutePath() + ": " + e.getMessage());
+			return null;
+		}
+		finally {
+			if(reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// Nothing to do
+				}
+			}
+		}
+	}
+
+	private void writeToDisk(String key, ParsedSentence parsedSentence) {
+		File diskFile = getDiskFile(key);
+		if(diskFile.isFile()) {
+			return;
+		}
+
+		File tempFile = null;
+		try {
+			File subFolder = diskFile.getParentFile();
+			if(!subFolder.isDirectory() && !subFolder.mkdirs() && !subFolder.isDirectory()) {
+				throw new IOException("Impossible to create the folder " + subFolder.getAbsolutePath());
+			}
+
+			// Written to a temporary file and then moved, since the folder can be shared by other processes
+			tempFile = File.createTempFile(diskFile.getName(), ".tmp", subFolder);
+			ParsedSentenceBinaryWriter writer = new ParsedSentenceBinaryWriter(tempFile.toPath());
+			try {
+				writer.write(parsedSentence);
+			}
+			finally {
+				writer.close();
+			}
+			Files.move(tempFile.toPath(), diskFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (Exception e) {
+			diskErrors.incrementAndGet();
+			logger.warn("Error writing the parse cache file " + diskFile.getAbsolutePath() + ": " + e.getMessage());
+			if(tempFile != null) {
+				tempFile.delete();
+			}
+		}
+	}
+
+}
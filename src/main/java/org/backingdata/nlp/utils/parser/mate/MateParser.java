@@ -0,0 +1,1350 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.log4j.Logger;
+
+import opennlp.tools.sentdetect.SentenceDetector;
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.util.Span;
+
+
+
+/**
+ * Mate-tools parser engine (pos tagger, lemmatizer, dep parser and semantic role labeller) for a language.<br/>
+ * REF: https://code.google.com/p/mate-tools/<br/>
+ *
+ * Each engine manages a bounded pool of processing pipelines, thus up to {@link #getPoolSize() getPoolSize()} sentences
+ * can be parsed concurrently by different threads. All the pipelines of the pool are created when the models are loaded,
+ * thus no model data is read while parsing.
+ * Each pipeline has its own tagger / lemmatizer / parser working state, while the model weights and the SRL models
+ * are loaded once (see {@link MateModels}) and shared by all the pipelines of the engines of the same language.<br/>
+ *
+ * Engines of different languages can be used in the same JVM: since the Mate-tools libraries keep part of the model data
+ * in static fields, sentences of different languages are not parsed at the same time (see {@link MateLanguageGate}). Each switch
+ * of language waits for the sentences being parsed to complete, thus with mixed traffic the throughput is lower than with one language:
+ * a language is parsed for at least {@link #setMinSentencesPerLanguageSwitch(int) a minimum number of sentences} before switching.<br/>
+ *
+ * Each engine analyzes the sentences up to a {@link ParseLevel ParseLevel} (by default the full analysis, up to the
+ * semantic role labelling): the models of the stages not needed are not loaded and the stages are not executed.<br/>
+ *
+ * The models can be loaded in background by means of {@link #warmUp() warmUp}, while {@link #isReady() isReady} tells
+ * (without blocking) whether the engine is ready to parse.<br/>
+ *
+ * Batches of sentences can be parsed in parallel by means of the methods {@link #parseSentences(List) parseSentences} and
+ * {@link #parseSentencesTokens(List) parseSentencesTokens}: the worker threads of the engine borrow a pipeline once per batch.
+ * Whole documents can be parsed by means of {@link #parseDocument(String) parseDocument}: the document is split into sentences and
+ * tokenized by the {@link MateFrontEnd front-end} of the engine (by default the OpenNLP models of the language) while the sentences
+ * already tokenized are parsed by the worker threads.<br/>
+ *
+ * The classes {@link MateParserEN MateParserEN} and {@link MateParserES MateParserES} expose the shared engine
+ * of each language by means of static methods.<br/>
+ *
+ * NB: you need at least 3Gb of Java memory to execute the full parser (-Xmx3000m), plus the working memory of each additional pipeline.
+ * Lower parse levels require less memory.
+ *
+ */
+public class MateParser {
+
+	private static Logger logger = Logger.getLogger(MateParser.class);
+
+	private static final Map<MateLanguage, Map<ParseLevel, MateParser>> instances = new EnumMap<MateLanguage, Map<ParseLevel, MateParser>>(MateLanguage.class);
+
+	private static int defaultPoolSize = Runtime.getRuntime().availableProcessors();
+
+	private final MateLanguage language;
+
+	private final int poolSize;
+
+	private final ParseLevel level;
+
+	private Integer maxSentenceLengthTokens = 250;
+
+	private boolean longSentenceChunking = true;
+
+	private long parseTimeoutMillis = 0l;
+
+	private volatile MateParseCache cache = null;
+
+	private volatile MateMetrics metrics = null;
+
+	// Front-end with its idle sentence detectors and tokenizers
+	private volatile FrontEndInstances frontEndInstances = null;
+
+	// Models shared by all the pipelines of this language
+	private MateModels.LanguageModels models = null;
+
+	private MatePipeline prototypePipeline = null;
+
+	// Pool of pipelines
+	private BlockingQueue<MatePipeline> idlePipelines = null;
+
+	// Worker threads that parse batches of sentences
+	private ExecutorService batchExecutor = null;
+
+	// Set when the models are loaded, read by the health checks without locking
+	private volatile boolean ready = false;
+
+	private final Object warmUpLock = new Object();
+
+	private CompletableFuture<MateParser> warmUpFuture = null;
+
+	// Incremented each time the models are freed, to discard pipelines created with old models
+	private long generation = 0l;
+
+	/**
+	 * Create a new parser engine that performs the full analysis of the sentences ({@link ParseLevel#SRL ParseLevel.SRL}).
+	 *
+	 * @param language
+	 * @param poolSize maximum number of sentences that can be parsed concurrently (at least 1)
+	 */
+	public MateParser(MateLanguage language, int poolSize) {
+		this(language, poolSize, ParseLevel.SRL);
+	}
+
+	/**
+	 * Create a new parser engine that analyzes the sentences up to a parse level: only the models needed
+	 * by the parse level are loaded.
+	 *
+	 * @param language
+	 * @param poolSize maximum number of sentences that can be parsed concurrently (at least 1)
+	 * @param level
+	 */
+	public MateParser(MateLanguage language, int poolSize, ParseLevel level) {
+		if(language == null) {
+			throw new IllegalArgumentException("Specify the language of the Mate parser.");
+		}
+		if(level == null) {
+			throw new IllegalArgumentException("Specify the parse level of the Mate parser.");
+		}
+		this.language = language;
+		this.poolSize = Math.max(1, poolSize);
+		this.level = level;
+	}
+
+	/**
+	 * Get the shared parser engine of a language, that performs the full analysis of the sentences.
+	 *
+	 * @param language
+	 * @return
+	 */
+	public static MateParser getInstance(MateLanguage language) {
+		return getInstance(language, ParseLevel.SRL);
+	}
+
+	/**
+	 * Get the shared parser engine of a language that analyzes the sentences up to a parse level.
+	 * The engines of the same language share the models loaded in memory.
+	 *
+	 * @param language
+	 * @param level
+	 * @return
+	 */
+	public static MateParser getInstance(MateLanguage language, ParseLevel level) {
+		synchronized(instances) {
+			Map<ParseLevel, MateParser> languageInstances = instances.get(language);
+			if(languageInstances == null) {
+				languageInstances = new EnumMap<ParseLevel, MateParser>(ParseLevel.class);
+				instances.put(language, languageInstances);
+			}
+			MateParser instance = languageInstances.get(level);
+			if(instance == null) {
+				instance = new MateParser(language, defaultPoolSize, level);
+				languageInstances.put(level, instance);
+			}
+			return instance;
+		}
+	}
+
+	/**
+	 * Free the memory from the shared parser engines of a language, at all parse levels.
+	 *
+	 * @param language
+	 */
+	public static void freeInstances(MateLanguage language) {
+		List<MateParser> languageInstances = new ArrayList<MateParser>();
+		synchronized(instances) {
+			if(instances.containsKey(language)) {
+				languageInstances.addAll(instances.get(language).values());
+			}
+		}
+		for(MateParser instance : languageInstances) {
+			instance.free();
+		}
+	}
+
+	/**
+	 * Set the size of the pipeline pool of the shared engines created from now on by {@link #getInstance(MateLanguage) getInstance}.
+	 * By default equal to the number of available processors.
+	 *
+	 * @param poolSize
+	 */
+	public static void setDefaultPoolSize(int poolSize) {
+		defaultPoolSize = Math.max(1, poolSize);
+	}
+
+	/**
+	 * Set the minimum number of sentences of a language parsed before switching to the sentences of another language waiting
+	 * to be parsed (default 256): higher values reduce the switches of language, lower values reduce the wait of the sentences
+	 * of the other languages.
+	 *
+	 * @param minSentences
+	 */
+	public static void setMinSentencesPerLanguageSwitch(int minSentences) {
+		MateLanguageGate.setMinSentencesPerSwitch(minSentences);
+	}
+
+	public MateLanguage getLanguage() {
+		return language;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public ParseLevel getLevel() {
+		return level;
+	}
+
+	public Integer getMaxSentenceLengthTokens() {
+		return maxSentenceLengthTokens;
+	}
+
+	/**
+	 * Sentences with more tokens (the root token included) are not parsed as a whole (see {@link #setLongSentenceChunking(boolean) setLongSentenceChunking}).
+	 *
+	 * @param maxSentenceLengthTokens
+	 */
+	public void setMaxSentenceLengthTokens(Integer maxSentenceLengthTokens) {
+		if(maxSentenceLengthTokens != null && maxSentenceLengthTokens > 0) {
+			this.maxSentenceLengthTokens = maxSentenceLengthTokens;
+		}
+	}
+
+	public MateParseCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Set the cache of the parsed sentences (default none). The same cache can be shared by several engines.
+	 *
+	 * @param cache null to disable caching
+	 */
+	public void setCache(MateParseCache cache) {
+		this.cache = cache;
+	}
+
+	public MateMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the receiver of the measures of the engine (default none): time spent by each stage, waits for a pipeline or for
+	 * the sentences of other languages, parsed and rejected sentences. The same receiver can be shared by several engines.
+	 *
+	 * @param metrics null to disable the measures
+	 */
+	public void setMetrics(MateMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Get the front-end that splits texts into sentences and tokenizes sentences (by default an {@link OpenNLPFrontEnd OpenNLPFrontEnd}
+	 * with the models of the language of the engine).
+	 *
+	 * @return
+	 */
+	public MateFrontEnd getFrontEnd() {
+		return getFrontEndInstances().frontEnd;
+	}
+
+	/**
+	 * Set the front-end that splits texts into sentences and tokenizes sentences.
+	 *
+	 * @param frontEnd null to use the default front-end
+	 */
+	public void setFrontEnd(MateFrontEnd frontEnd) {
+		this.frontEndInstances = (frontEnd != null) ? new FrontEndInstances(frontEnd) : null;
+	}
+
+	public long getParseTimeoutMillis() {
+		return parseTimeoutMillis;
+	}
+
+	/**
+	 * Set the time budget to parse a sentence, starting from the invocation of the parse method (default 0, no limit).<br/>
+	 * The Mate-tools libraries cannot be interrupted while processing a sentence, thus the budget is checked before the
+	 * dependency parsing and before the semantic role labelling: once expired, these stages are skipped and the sentence
+	 * is returned with the analyses completed so far (at least lemmas and POS, see {@link ParsedSentence#getParseLevel() ParsedSentence.getParseLevel()}).
+	 * The pipeline is returned to the pool as soon as the stage in progress is completed.
+	 *
+	 * @param parseTimeoutMillis
+	 */
+	public void setParseTimeoutMillis(long parseTimeoutMillis) {
+		this.parseTimeoutMillis = Math.max(0l, parseTimeoutMillis);
+	}
+
+	public boolean isLongSentenceChunking() {
+		return longSentenceChunking;
+	}
+
+	/**
+	 * If enabled (default), sentences longer than {@link #getMaxSentenceLengthTokens() getMaxSentenceLengthTokens()} tokens
+	 * are split into chunks at clause / punctuation boundaries, the chunks are parsed in parallel and merged into a single
+	 * parsed sentence (see {@link MateSentenceChunker MateSentenceChunker}). If disabled, these sentences are not parsed.
+	 *
+	 * @param longSentenceChunking
+	 */
+	public void setLongSentenceChunking(boolean longSentenceChunking) {
+		this.longSentenceChunking = longSentenceChunking;
+	}
+
+	/**
+	 * Force the loading of the parser into memory (only the models needed by the parse level of the engine).
+	 *
+	 * @param force if true, the models are reloaded even if already loaded
+	 * @return
+	 */
+	public synchronized boolean init(boolean force) {
+		try {
+			load(force);
+		} catch (Exception e) {
+			logger.error("Error initializing Mate parser (" + language + "): " + e.getMessage());
+			e.printStackTrace();
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Start loading the parser into memory in background, without blocking the calling thread.
+	 * The models needed by the parse level of the engine are loaded in parallel.
+	 * Sentences submitted while loading wait until the parser is ready.
+	 *
+	 * @return a future completed with this engine when the parser is ready, or exceptionally if the models cannot be loaded
+	 */
+	public CompletableFuture<MateParser> warmUp() {
+		synchronized(warmUpLock) {
+			if(warmUpFuture == null || warmUpFuture.isCompletedExceptionally()) {
+				final CompletableFuture<MateParser> future = new CompletableFuture<MateParser>();
+				Thread warmUpThread = new DaemonThreadFactory("MateParser-" + language + "-" + level + "-warmup").newThread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							load(false);
+							future.complete(MateParser.this);
+						} catch (Throwable e) {
+							logger.error("Error initializing Mate parser (" + language + "): " + e.getMessage());
+							future.completeExceptionally(e);
+						}
+					}
+				});
+				warmUpFuture = future;
+				warmUpThread.start();
+			}
+			return warmUpFuture;
+		}
+	}
+
+	/**
+	 * Check if the parser is loaded in memory and ready to parse sentences without waiting. Never blocks.
+	 *
+	 * @return
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	private synchronized void load(boolean force) throws Exception {
+		if(prototypePipeline != null && !force) {
+			return;
+		}
+
+		free();
+
+		try {
+			models = MateModels.getLanguageModels(language);
+			prototypePipeline = models.newPipeline(level, generation);
+
+			// Load the tokenizer model
+			FrontEndInstances currentFrontEnd = getFrontEndInstances();
+			currentFrontEnd.releaseTokenizer(currentFrontEnd.borrowTokenizer());
+
+			// The whole pool is created now, since creating a pipeline blocks the parsing of the language
+			BlockingQueue<MatePipeline> pipelines = new ArrayBlockingQueue<MatePipeline>(poolSize);
+			pipelines.add(prototypePipeline);
+			while(pipelines.size() < poolSize) {
+				pipelines.add(models.newPipeline(level, generation));
+			}
+			logger.debug("Created " + poolSize + " Mate parser (" + language + ") pipelines.");
+			idlePipelines = pipelines;
+			ready = true;
+		} catch (Exception e) {
+			free();
+			throw e;
+		}
+	}
+
+	/**
+	 * Free the memory from the parser: the models are removed from memory when no more used by any engine of the same language.
+	 * Sentences that are being parsed by other threads complete with the old models.
+	 *
+	 */
+	public synchronized void free() {
+		if(models != null) {
+			MateModels.free(language);
+		}
+		models = null;
+		prototypePipeline = null;
+		idlePipelines = null;
+		generation++;
+		ready = false;
+		synchronized(warmUpLock) {
+			warmUpFuture = null;
+		}
+		System.gc();
+	}
+
+	/**
+	 * Get a pipeline from the pool, waiting until a pipeline is released if all the pipelines are busy.
+	 *
+	 * @return
+	 * @throws Exception
+	 */
+	private MatePipeline borrowPipeline() throws Exception {
+		return borrowPipeline(true);
+	}
+
+	/**
+	 * Get a pipeline from the pool.
+	 *
+	 * @param wait if true, wait until a pipeline is released when all the pipelines are busy, otherwise return null
+	 * @return
+	 * @throws Exception
+	 */
+	private MatePipeline borrowPipeline(boolean wait) throws Exception {
+		MateMetrics currentMetrics = metrics;
+		if(currentMetrics == null) {
+			return takePipeline(wait);
+		}
+
+		// The wait includes the loading of the models, if needed
+		long startNanos = System.nanoTime();
+		MatePipeline pipeline = takePipeline(wait);
+		if(pipeline != null) {
+			currentMetrics.recordWait(language, MateMetrics.Wait.PIPELINE, System.nanoTime() - startNanos);
+		}
+		return pipeline;
+	}
+
+	private MatePipeline takePipeline(boolean wait) throws Exception {
+		BlockingQueue<MatePipeline> pool = null;
+
+		synchronized(this) {
+			if(!init(false)) {
+				throw new Exception("Mate parser (" + language + ") not initialized.");
+			}
+			pool = idlePipelines;
+
+			MatePipeline pipeline = pool.poll();
+			if(pipeline != null || !wait) {
+				return pipeline;
+			}
+		}
+
+		MatePipeline pipeline = null;
+		while((pipeline = pool.poll(1, TimeUnit.SECONDS)) == null) {
+			synchronized(this) {
+				if(pool != idlePipelines) {
+					// The parser has been freed or reloaded in the meanwhile
+					return takePipeline(wait);
+				}
+			}
+		}
+		return pipeline;
+	}
+
+	private void releasePipeline(MatePipeline pipeline) {
+		if(pipeline != null) {
+			synchronized(this) {
+				// Pipelines created before a free() / reload are discarded
+				if(idlePipelines != null && pipeline.getGeneration() == generation) {
+					idlePipelines.offer(pipeline);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parse a sentence string - should be terminated with a full stop or a question/exclamation mark,
+	 * if not a full stop is added at the end of the sentence.
+	 * The sentence is tokenized by the front-end of the engine (see {@link #getFrontEnd() getFrontEnd}): the parsed sentence keeps
+	 * the character offsets of its tokens in the given string (see {@link ParsedSentence#getTokenStartAtIndex(int) getTokenStartAtIndex}).
+	 *
+	 * @param sentence
+	 * @return null if the sentence is empty or cannot be parsed
+	 */
+	public ParsedSentence parseSentence(String sentence) {
+		return parseByPipeline(sentence, SENTENCE_TEXT_PARSER, ParseDeadline.NONE);
+	}
+
+	/**
+	 * Parse a sentence as a list of tokens - should be terminated with a full stop or a question/exclamation mark if not a full stop is added
+	 * at the end of the sentence.
+	 *
+	 * @param sentenceTokens
+	 * @return null if the sentence is empty or cannot be parsed
+	 */
+	public ParsedSentence parseSentenceTokens(List<String> sentenceTokens) {
+		return parseByPipeline(sentenceTokens, SENTENCE_TOKENS_PARSER, ParseDeadline.NONE);
+	}
+
+	/**
+	 * Parse a batch of sentence strings in parallel, by means of the pipelines of this engine.
+	 * Each sentence is processed as by the method {@link #parseSentence(String) parseSentence}.
+	 *
+	 * @param sentences
+	 * @return the list of parsed sentences, in the same order of the input sentences (null elements for the sentences that cannot be parsed)
+	 */
+	public List<ParsedSentence> parseSentences(List<String> sentences) {
+		return parseBatch(sentences, SENTENCE_TEXT_PARSER, ParseDeadline.NONE);
+	}
+
+	/**
+	 * Parse a batch of sentence strings in parallel within a time budget for the whole batch (see {@link #parseSentences(List) parseSentences}).
+	 * Once the budget is expired, the sentences still to parse are returned with lemmas and POS only
+	 * (see {@link #setParseTimeoutMillis(long) setParseTimeoutMillis}).
+	 *
+	 * @param sentences
+	 * @param batchTimeoutMillis time budget of the batch (if lower than 1, no limit)
+	 * @return the list of parsed sentences, in the same order of the input sentences (null elements for the sentences that cannot be parsed)
+	 */
+	public List<ParsedSentence> parseSentences(List<String> sentences, long batchTimeoutMillis) {
+		return parseBatch(sentences, SENTENCE_TEXT_PARSER, ParseDeadline.after(batchTimeoutMillis));
+	}
+
+	/**
+	 * Parse a batch of sentences, each one as a list of tokens, in parallel by means of the pipelines of this engine.
+	 * Each sentence is processed as by the method {@link #parseSentenceTokens(List) parseSentenceTokens}.
+	 *
+	 * @param sentencesTokens
+	 * @return the list of parsed sentences, in the same order of the input sentences (null elements for the sentences that cannot be parsed)
+	 */
+	public List<ParsedSentence> parseSentencesTokens(List<List<String>> sentencesTokens) {
+		return parseBatch(sentencesTokens, SENTENCE_TOKENS_PARSER, ParseDeadline.NONE);
+	}
+
+	/**
+	 * Parse a batch of sentences, each one as a list of tokens, in parallel within a time budget for the whole batch
+	 * (see {@link #parseSentences(List, long) parseSentences}).
+	 *
+	 * @param sentencesTokens
+	 * @param batchTimeoutMillis time budget of the batch (if lower than 1, no limit)
+	 * @return the list of parsed sentences, in the same order of the input sentences (null elements for the sentences that cannot be parsed)
+	 */
+	public List<ParsedSentence> parseSentencesTokens(List<List<String>> sentencesTokens, long batchTimeoutMillis) {
+		return parseBatch(sentencesTokens, SENTENCE_TOKENS_PARSER, ParseDeadline.after(batchTimeoutMillis));
+	}
+
+	/**
+	 * Lazily parse a stream of sentence strings: the sentences are read and parsed in parallel in batches of batchSize
+	 * sentences, thus only one batch at a time is kept in memory.
+	 *
+	 * @param sentences
+	 * @param batchSize number of sentences parsed in parallel at a time (if lower than 1, the pool size is used)
+	 * @return the stream of parsed sentences, in the same order of the input sentences (null elements for the sentences that cannot be parsed)
+	 */
+	public Stream<ParsedSentence> parseSentences(Stream<String> sentences, int batchSize) {
+		final Iterator<String> sentenceIterator = sentences.iterator();
+		final int actualBatchSize = (batchSize > 0) ? batchSize : poolSize;
+
+		Iterator<ParsedSentence> parsedIterator = new Iterator<ParsedSentence>() {
+
+			private Iterator<ParsedSentence> currentBatch = Collections.<ParsedSentence>emptyList().iterator();
+
+			@Override
+			public boolean hasNext() {
+				if(!currentBatch.hasNext() && sentenceIterator.hasNext()) {
+					List<String> batch = new ArrayList<String>(actualBatchSize);
+					while(batch.size() < actualBatchSize && sentenceIterator.hasNext()) {
+						batch.add(sentenceIterator.next());
+					}
+					currentBatch = parseSentences(batch).iterator();
+				}
+				return currentBatch.hasNext();
+			}
+
+			@Override
+			public ParsedSentence next() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return currentBatch.next();
+			}
+		};
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(parsedIterator, Spliterator.ORDERED), false).onClose(new Runnable() {
+			@Override
+			public void run() {
+				sentences.close();
+			}
+		});
+	}
+
+	/**
+	 * Parse a document: the document is split into sentences and each sentence is tokenized by the front-end of the engine
+	 * (see {@link #getFrontEnd() getFrontEnd}) in the calling thread, while the sentences already tokenized are parsed in parallel
+	 * by the worker threads of the engine.
+	 *
+	 * @param text
+	 * @return the parsed document, with the character offsets of each sentence and token (null elements for the sentences that cannot be parsed),
+	 * null if the document cannot be split into sentences
+	 */
+	public ParsedDocument parseDocument(String text) {
+		return parseDocument(text, null);
+	}
+
+	/**
+	 * Parse a new version of a document already parsed, parsing again only the sentences that changed: the parsed sentences of the
+	 * unchanged sentences are taken from the previous version (the same objects, shared by both documents).<br/>
+	 *
+	 * The text before the first changed character and after the last changed character is not split again into sentences, except
+	 * the sentences next to the change. The sentences of the changed part are reused when equal to a sentence of the changed part
+	 * of the previous version (for instance when sentences are moved). The sentences of the previous version not parsed or not
+	 * completely parsed are parsed again.
+	 *
+	 * @param text
+	 * @param previousDocument the previous version of the document, parsed by an engine of the same language and parse level
+	 * (null to parse the whole document)
+	 * @return the parsed document, with the character offsets of each sentence and token (null elements for the sentences that cannot be parsed),
+	 * null if the document cannot be split into sentences
+	 */
+	public ParsedDocument parseDocument(String text, ParsedDocument previousDocument) {
+		if(text == null) {
+			return null;
+		}
+		if(previousDocument != null && previousDocument.getLanguage() != language) {
+			logger.warn("The previous version of the document was parsed in " + previousDocument.getLanguage() + ", parsing the whole document (" + language + ").");
+			previousDocument = null;
+		}
+
+		// Unchanged sentences at the beginning (head) and at the end (tail) of the document: the sentences next to the change
+		// are split again, since the change may move their boundaries
+		int headSentences = 0;
+		int tailSentences = 0;
+		int regionStart = 0;
+		int regionEnd = text.length();
+		int lengthDelta = 0;
+		if(previousDocument != null) {
+			String previousText = previousDocument.getText();
+			int previousCount = previousDocument.getSentenceCount();
+			int maxCommon = Math.min(text.length(), previousText.length());
+			int prefix = 0;
+			while(prefix < maxCommon && text.charAt(prefix) == previousText.charAt(prefix)) {
+				prefix++;
+			}
+			int suffix = 0;
+			while(suffix < maxCommon - prefix && text.charAt(text.length() - 1 - suffix) == previousText.charAt(previousText.length() - 1 - suffix)) {
+				suffix++;
+			}
+			lengthDelta = text.length() - previousText.length();
+
+			while(headSentences < previousCount && previousDocument.getSentenceEnd(headSentences) <= prefix) {
+				headSentences++;
+			}
+			headSentences = Math.max(0, headSentences - 1);
+			while(tailSentences < previousCount - headSentences && previousDocument.getSentenceStart(previousCount - 1 - tailSentences) >= previousText.length() - suffix) {
+				tailSentences++;
+			}
+			tailSentences = Math.max(0, tailSentences - 1);
+
+			regionStart = (headSentences > 0) ? previousDocument.getSentenceEnd(headSentences - 1) : 0;
+			regionEnd = ((tailSentences > 0) ? previousDocument.getSentenceStart(previousCount - tailSentences) : previousText.length()) + lengthDelta;
+		}
+
+		FrontEndInstances currentFrontEnd = getFrontEndInstances();
+		MateMetrics currentMetrics = metrics;
+		Span[] sentenceSpans = null;
+		Tokenizer tokenizer = null;
+		try {
+			SentenceDetector sentenceDetector = currentFrontEnd.borrowSentenceDetector();
+			try {
+				long startNanos = System.nanoTime();
+				sentenceSpans = sentenceDetector.sentPosDetect((regionStart == 0 && regionEnd == text.length()) ? text : text.substring(regionStart, regionEnd));
+				if(currentMetrics != null) {
+					currentMetrics.recordStage(language, MateMetrics.Stage.SPLIT, System.nanoTime() - startNanos);
+				}
+			}
+			finally {
+				currentFrontEnd.releaseSentenceDetector(sentenceDetector);
+			}
+			tokenizer = currentFrontEnd.borrowTokenizer();
+		} catch (Exception e) {
+			logger.error("Error splitting a document into sentences (" + language + "): " + e.getMessage());
+			return null;
+		}
+
+		// Parsed sentences of the changed part of the previous version, by text
+		Map<String, ArrayDeque<ParsedSentence>> previousSentences = new HashMap<String, ArrayDeque<ParsedSentence>>();
+		if(previousDocument != null) {
+			for(int s = headSentences; s < previousDocument.getSentenceCount() - tailSentences; s++) {
+				ParsedSentence previousSentence = previousDocument.getSentence(s);
+				if(isReusable(previousSentence)) {
+					String previousSentenceText = previousDocument.getSentenceText(s);
+					ArrayDeque<ParsedSentence> sameText = previousSentences.get(previousSentenceText);
+					if(sameText == null) {
+						sameText = new ArrayDeque<ParsedSentence>();
+						previousSentences.put(previousSentenceText, sameText);
+					}
+					sameText.add(previousSentence);
+				}
+			}
+		}
+
+		// Offsets of the sentences and parsed sentences reused from the previous version
+		int sentenceNumber = headSentences + sentenceSpans.length + tailSentences;
+		int[] sentenceStart = new int[sentenceNumber];
+		int[] sentenceEnd = new int[sentenceNumber];
+		ParsedSentence[] reusedSentences = new ParsedSentence[sentenceNumber];
+		for(int s = 0; s < sentenceNumber; s++) {
+			if(s < headSentences) {
+				sentenceStart[s] = previousDocument.getSentenceStart(s);
+				sentenceEnd[s] = previousDocument.getSentenceEnd(s);
+				reusedSentences[s] = isReusable(previousDocument.getSentence(s)) ? previousDocument.getSentence(s) : null;
+			}
+			else if(s < headSentences + sentenceSpans.length) {
+				sentenceStart[s] = regionStart + sentenceSpans[s - headSentences].getStart();
+				sentenceEnd[s] = regionStart + sentenceSpans[s - headSentences].getEnd();
+				ArrayDeque<ParsedSentence> sameText = previousSentences.get(text.substring(sentenceStart[s], sentenceEnd[s]));
+				reusedSentences[s] = (sameText != null) ? sameText.poll() : null;
+			}
+			else {
+				int previousIndex = s - sentenceSpans.length - headSentences + previousDocument.getSentenceCount() - tailSentences;
+				sentenceStart[s] = previousDocument.getSentenceStart(previousIndex) + lengthDelta;
+				sentenceEnd[s] = previousDocument.getSentenceEnd(previousIndex) + lengthDelta;
+				reusedSentences[s] = isReusable(previousDocument.getSentence(previousIndex)) ? previousDocument.getSentence(previousIndex) : null;
+			}
+		}
+
+		// Tokenize each sentence not reused and start parsing it
+		List<Future<ParsedSentence>> parsedSentences = new ArrayList<Future<ParsedSentence>>(sentenceNumber);
+		int parsedNumber = 0;
+		ExecutorService executor = getBatchExecutor();
+		try {
+			for(int s = 0; s < sentenceNumber; s++) {
+				if(reusedSentences[s] != null) {
+					parsedSentences.add(CompletableFuture.completedFuture(reusedSentences[s]));
+					continue;
+				}
+
+				final String sentenceText = text.substring(sentenceStart[s], sentenceEnd[s]);
+				long startNanos = System.nanoTime();
+				Span[] tokenSpans = tokenizer.tokenizePos(sentenceText);
+				if(currentMetrics != null) {
+					currentMetrics.recordStage(language, MateMetrics.Stage.TOKENIZE, System.nanoTime() - startNanos);
+				}
+				final List<String> sentenceTokens = new ArrayList<String>(tokenSpans.length);
+				final int[] tokenStart = new int[tokenSpans.length];
+				final int[] tokenEnd = new int[tokenSpans.length];
+				for(int t = 0; t < tokenSpans.length; t++) {
+					tokenStart[t] = tokenSpans[t].getStart();
+					tokenEnd[t] = tokenSpans[t].getEnd();
+					sentenceTokens.add(sentenceText.substring(tokenStart[t], tokenEnd[t]));
+				}
+				parsedSentences.add(executor.submit(new Callable<ParsedSentence>() {
+					@Override
+					public ParsedSentence call() throws Exception {
+						ParsedSentence parsedSentence = parseByPipeline(sentenceTokens, SENTENCE_TOKENS_PARSER, ParseDeadline.NONE);
+						if(parsedSentence != null) {
+							parsedSentence.setSentenceText(sentenceText);
+							setTokenOffsets(parsedSentence, tokenStart, tokenEnd);
+						}
+						return parsedSentence;
+					}
+				}));
+				parsedNumber++;
+			}
+		}
+		finally {
+			currentFrontEnd.releaseTokenizer(tokenizer);
+		}
+		if(previousDocument != null) {
+			logger.debug("Parsing " + parsedNumber + " changed sentences of a document of " + sentenceNumber + " sentences (" + language + ").");
+		}
+
+		List<ParsedSentence> retSentences = new ArrayList<ParsedSentence>(parsedSentences.size());
+		for(Future<ParsedSentence> parsedSentence : parsedSentences) {
+			try {
+				retSentences.add(parsedSentence.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.error("Interrupted while parsing a document by Mate parser (" + language + ").");
+				for(Future<ParsedSentence> toCancel : parsedSentences) {
+					toCancel.cancel(true);
+				}
+				return null;
+			} catch (ExecutionException e) {
+				logger.error("Error parsing a sentence of a document by Mate parser (" + language + "): " + e.getCause().getMessage());
+				retSentences.add(null);
+			}
+		}
+
+		return new ParsedDocument(language, text, retSentences, sentenceStart, sentenceEnd);
+	}
+
+	/**
+	 * Check if a sentence of a previous version of a document can be reused: parsed up to the parse level of the engine.
+	 *
+	 * @param previousSentence
+	 * @return
+	 */
+	private boolean isReusable(ParsedSentence previousSentence) {
+		return previousSentence != null && previousSentence.getParseLevel() == level;
+	}
+
+	/**
+	 * Parse the elements of a batch by up to {@link #getPoolSize() getPoolSize()} worker threads.
+	 * Each worker borrows a pipeline once and keeps on parsing the next not yet parsed element of the batch, longest elements
+	 * (estimated number of tokens) first: since the parse time grows more than linearly with the number of tokens, the long sentences
+	 * are not left to the end of the batch, while the short ones fill the gaps of the workers.
+	 *
+	 * @param inputs
+	 * @param parseFunction
+	 * @param batchDeadline
+	 * @return
+	 */
+	private <T> List<ParsedSentence> parseBatch(final List<T> inputs, final PipelineFunction<T> parseFunction, final ParseDeadline batchDeadline) {
+		if(inputs == null || inputs.size() == 0) {
+			return new ArrayList<ParsedSentence>();
+		}
+		else if(inputs.size() == 1) {
+			return new ArrayList<ParsedSentence>(Collections.singletonList(parseByPipeline(inputs.get(0), parseFunction, batchDeadline)));
+		}
+
+		final ParsedSentence[] results = new ParsedSentence[inputs.size()];
+		final int[] inputOrder = getLongestFirstOrder(inputs, parseFunction);
+		final AtomicInteger nextInput = new AtomicInteger(0);
+
+		List<Future<Void>> workers = new ArrayList<Future<Void>>();
+		int numWorkers = Math.min(poolSize, inputs.size());
+		ExecutorService executor = getBatchExecutor();
+		for(int w = 0; w < numWorkers; w++) {
+			workers.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					MatePipeline pipeline = borrowPipeline();
+					try {
+						int n;
+						while((n = nextInput.getAndIncrement()) < inputs.size()) {
+							int i = inputOrder[n];
+							try {
+								long startNanos = System.nanoTime();
+								ParseDeadline deadline = ParseDeadline.after(parseTimeoutMillis).min(batchDeadline);
+								results[i] = parseFunction.parse(MateParser.this, pipeline, inputs.get(i), deadline);
+								recordSentence(results[i], startNanos);
+							} catch (InterruptedException e) {
+								throw e;
+							} catch (Exception e) {
+								logger.error("Error parsing sentence by Mate parser (" + language + "): " + e.getMessage());
+								recordRejection(MateMetrics.Rejection.ERROR);
+							}
+						}
+					}
+					finally {
+						releasePipeline(pipeline);
+					}
+					return null;
+				}
+			}));
+		}
+
+		for(Future<Void> worker : workers) {
+			try {
+				worker.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.error("Interrupted while parsing a batch of sentences by Mate parser (" + language + ").");
+				for(Future<Void> toCancel : workers) {
+					toCancel.cancel(true);
+				}
+				break;
+			} catch (ExecutionException e) {
+				logger.error("Error parsing a batch of sentences by Mate parser (" + language + "): " + e.getCause().getMessage());
+			}
+		}
+
+		return new ArrayList<ParsedSentence>(Arrays.asList(results));
+	}
+
+	/**
+	 * Get the indexes of the elements of a batch sorted by decreasing estimated number of tokens
+	 * (elements with the same estimate in order of position).
+	 *
+	 * @param inputs
+	 * @param parseFunction
+	 * @return
+	 */
+	private static <T> int[] getLongestFirstOrder(List<T> inputs, PipelineFunction<T> parseFunction) {
+		// Sort keys: complement of the number of tokens in the high bits, index in the low bits
+		long[] keys = new long[inputs.size()];
+		for(int i = 0; i < keys.length; i++) {
+			long tokenNumber = Math.max(0, parseFunction.estimateTokenNumber(inputs.get(i)));
+			keys[i] = ((Integer.MAX_VALUE - tokenNumber) << 32) | i;
+		}
+		Arrays.sort(keys);
+
+		int[] retOrder = new int[keys.length];
+		for(int n = 0; n < keys.length; n++) {
+			retOrder[n] = (int) keys[n];
+		}
+		return retOrder;
+	}
+
+	private synchronized ExecutorService getBatchExecutor() {
+		if(batchExecutor == null) {
+			batchExecutor = Executors.newFixedThreadPool(poolSize, new DaemonThreadFactory("MateParser-" + language + "-" + level + "-batch"));
+		}
+		return batchExecutor;
+	}
+
+	/**
+	 * Borrow a pipeline and parse an input with it.
+	 *
+	 * @param input
+	 * @param parseFunction
+	 * @param otherDeadline deadline to respect in addition to the time budget of the sentence
+	 * @return null if the input cannot be parsed
+	 */
+	private <T> ParsedSentence parseByPipeline(T input, PipelineFunction<T> parseFunction, ParseDeadline otherDeadline) {
+		ParsedSentence retSentence = null;
+
+		if(input != null) {
+			long startNanos = System.nanoTime();
+			ParseDeadline deadline = ParseDeadline.after(parseTimeoutMillis).min(otherDeadline);
+			MatePipeline pipeline = null;
+			try {
+				pipeline = borrowPipeline();
+				retSentence = parseFunction.parse(this, pipeline, input, deadline);
+				recordSentence(retSentence, startNanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.error("Interrupted while waiting for a Mate parser (" + language + ") pipeline.");
+			} catch (Exception e) {
+				logger.error("Error parsing sentence by Mate parser (" + language + "): " + e.getMessage());
+				recordRejection(MateMetrics.Rejection.ERROR);
+			}
+			finally {
+				releasePipeline(pipeline);
+			}
+		}
+
+		return retSentence;
+	}
+
+	private ParsedSentence parseSentence(MatePipeline pipeline, String sentence, ParseDeadline deadline) throws InterruptedException {
+		if(sentence == null || sentence.trim().equals("")) {
+			return null;
+		}
+
+		// The offsets of the tokens refer to the sentence as given
+		String sentenceText = sentence;
+		int textStart = 0;
+		while(sentence.charAt(textStart) <= ' ') {
+			textStart++;
+		}
+		sentence = sentence.trim();
+		int textLength = sentence.length();
+		if(sentence.charAt(sentence.length() - 1) != '.' &&
+				sentence.charAt(sentence.length() - 1) != '!' &&
+				sentence.charAt(sentence.length() - 1) != '?') {
+			sentence = sentence + ".";
+		}
+
+		// Tokenize
+		Span[] tokenSpans = null;
+		FrontEndInstances currentFrontEnd = getFrontEndInstances();
+		Tokenizer tokenizer = null;
+		try {
+			tokenizer = currentFrontEnd.borrowTokenizer();
+			long startNanos = System.nanoTime();
+			tokenSpans = tokenizer.tokenizePos(sentence);
+			MateMetrics currentMetrics = metrics;
+			if(currentMetrics != null) {
+				currentMetrics.recordStage(language, MateMetrics.Stage.TOKENIZE, System.nanoTime() - startNanos);
+			}
+		} catch (Exception e) {
+			logger.error("Error tokenizing sentence (" + language + "): " + e.getMessage());
+			return null;
+		}
+		finally {
+			currentFrontEnd.releaseTokenizer(tokenizer);
+		}
+
+		List<String> tokenList = new ArrayList<String>(tokenSpans.length);
+		int[] tokenStart = new int[tokenSpans.length];
+		int[] tokenEnd = new int[tokenSpans.length];
+		for(int t = 0; t < tokenSpans.length; t++) {
+			tokenList.add(sentence.substring(tokenSpans[t].getStart(), tokenSpans[t].getEnd()));
+			// The full stop added to the sentence is not part of the text
+			tokenStart[t] = textStart + Math.min(tokenSpans[t].getStart(), textLength);
+			tokenEnd[t] = textStart + Math.min(tokenSpans[t].getEnd(), textLength);
+		}
+
+		ParsedSentence retSentence = parseSentenceTokens(pipeline, tokenList, deadline);
+		if(retSentence != null) {
+			retSentence.setSentenceText(sentenceText);
+			setTokenOffsets(retSentence, tokenStart, tokenEnd);
+		}
+		return retSentence;
+	}
+
+	/**
+	 * Set the character offsets of the tokens of a parsed sentence: the full stop added at the end of the tokens, if any,
+	 * gets an empty span at the end of the last token.
+	 *
+	 * @param parsedSentence
+	 * @param tokenStart
+	 * @param tokenEnd
+	 */
+	private static void setTokenOffsets(ParsedSentence parsedSentence, int[] tokenStart, int[] tokenEnd) {
+		int tokenNumber = parsedSentence.getTokenCount();
+		if(tokenStart.length == 0 || tokenNumber < tokenStart.length) {
+			return;
+		}
+		if(tokenNumber > tokenStart.length) {
+			int lastEnd = tokenEnd[tokenEnd.length - 1];
+			int givenTokens = tokenStart.length;
+			tokenStart = Arrays.copyOf(tokenStart, tokenNumber);
+			tokenEnd = Arrays.copyOf(tokenEnd, tokenNumber);
+			Arrays.fill(tokenStart, givenTokens, tokenNumber, lastEnd);
+			Arrays.fill(tokenEnd, givenTokens, tokenNumber, lastEnd);
+		}
+		parsedSentence.setTokenOffsets(tokenStart, tokenEnd);
+	}
+
+	private ParsedSentence parseSentenceTokens(MatePipeline pipeline, List<String> sentenceTokens, ParseDeadline deadline) throws InterruptedException {
+		if(sentenceTokens == null || sentenceTokens.size() == 0) {
+			return null;
+		}
+
+		List<String> tokensToProcess = new ArrayList<String>(sentenceTokens);
+		if(!tokensToProcess.get(tokensToProcess.size() - 1).equals(".") &&
+				!tokensToProcess.get(tokensToProcess.size() - 1).equals("!") &&
+				!tokensToProcess.get(tokensToProcess.size() - 1).equals("?")) {
+			tokensToProcess.add(".");
+		}
+
+		// The root token is added by the pipeline
+		boolean longSentence = tokensToProcess.size() + 1 > maxSentenceLengthTokens;
+		if(longSentence && !longSentenceChunking) {
+			logger.debug("Impossible to parse the sentence " + tokensToProcess.toString() + "(token size is " + (tokensToProcess.size() + 1) + ", greater than " + maxSentenceLengthTokens + ")");
+			recordRejection(MateMetrics.Rejection.TOO_LONG);
+			return null;
+		}
+
+		MateParseCache currentCache = cache;
+		if(currentCache != null) {
+			ParsedSentence cachedSentence = currentCache.get(language, level, tokensToProcess);
+			if(cachedSentence != null) {
+				return cachedSentence;
+			}
+		}
+
+		ParsedSentence retSentence = (longSentence) ? parseLongSentence(pipeline, tokensToProcess, deadline) : parseChunk(pipeline, tokensToProcess, deadline);
+
+		if(currentCache != null) {
+			currentCache.put(language, level, tokensToProcess, retSentence);
+		}
+		return retSentence;
+	}
+
+	/**
+	 * Parse a sentence too long to be parsed as a whole, by splitting it into chunks. The chunks are parsed by the pipeline
+	 * of the calling thread and, in parallel, by the pipelines of the pool that are idle: no thread waits for a pipeline
+	 * while holding another one.
+	 *
+	 * @param pipeline
+	 * @param sentenceTokens
+	 * @param deadline
+	 * @return
+	 * @throws InterruptedException
+	 */
+	private ParsedSentence parseLongSentence(MatePipeline pipeline, List<String> sentenceTokens, final ParseDeadline deadline) throws InterruptedException {
+		final List<List<String>> chunks = MateSentenceChunker.split(sentenceTokens, maxSentenceLengthTokens - 1);
+		final ParsedSentence[] parsedChunks = new ParsedSentence[chunks.size()];
+		final AtomicInteger nextChunk = new AtomicInteger(0);
+		final CountDownLatch chunksDone = new CountDownLatch(chunks.size());
+		logger.debug("Parsing a sentence of " + sentenceTokens.size() + " tokens in " + chunks.size() + " chunks (" + language + ").");
+
+		List<Future<Void>> helpers = new ArrayList<Future<Void>>();
+		int numHelpers = Math.min(poolSize, chunks.size()) - 1;
+		if(numHelpers > 0) {
+			ExecutorService executor = getBatchExecutor();
+			for(int h = 0; h < numHelpers; h++) {
+				helpers.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						MatePipeline helperPipeline = borrowPipeline(false);
+						if(helperPipeline != null) {
+							try {
+								parseChunks(helperPipeline, chunks, parsedChunks, nextChunk, chunksDone, deadline);
+							}
+							finally {
+								releasePipeline(helperPipeline);
+							}
+						}
+						return null;
+					}
+				}));
+			}
+		}
+
+		try {
+			parseChunks(pipeline, chunks, parsedChunks, nextChunk, chunksDone, deadline);
+			// Helpers not yet started are not needed any more, wait for the chunks being parsed by the others
+			for(Future<Void> helper : helpers) {
+				helper.cancel(false);
+			}
+			chunksDone.await();
+		}
+		finally {
+			for(Future<Void> helper : helpers) {
+				helper.cancel(false);
+			}
+		}
+
+		return MateSentenceChunker.merge(chunks, parsedChunks);
+	}
+
+	private void parseChunks(MatePipeline pipeline, List<List<String>> chunks, ParsedSentence[] parsedChunks,
+			AtomicInteger nextChunk, CountDownLatch chunksDone, ParseDeadline deadline) throws InterruptedException {
+		int c;
+		while((c = nextChunk.getAndIncrement()) < chunks.size()) {
+			try {
+				parsedChunks[c] = parseChunk(pipeline, chunks.get(c), deadline);
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				logger.error("Error parsing a sentence chunk by Mate parser (" + language + "): " + e.getMessage());
+			}
+			finally {
+				chunksDone.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Parse a list of tokens as is, with exclusive access to the static state of the language.
+	 *
+	 * @param pipeline
+	 * @param tokensToProcess
+	 * @param deadline
+	 * @return
+	 * @throws InterruptedException
+	 */
+	private ParsedSentence parseChunk(MatePipeline pipeline, List<String> tokensToProcess, ParseDeadline deadline) throws InterruptedException {
+		MateMetrics currentMetrics = metrics;
+		long[] stageNanos = (currentMetrics != null) ? new long[MateMetrics.Stage.values().length] : null;
+
+		ParsedSentence retSentence = null;
+		if(!level.includes(ParseLevel.LEMMA)) {
+			// No Mate-tools model involved
+			retSentence = pipeline.parse(tokensToProcess, deadline, stageNanos);
+		}
+		else {
+			long startNanos = System.nanoTime();
+			MateLanguageGate.acquire(language);
+			try {
+				if(currentMetrics != null) {
+					currentMetrics.recordWait(language, MateMetrics.Wait.LANGUAGE, System.nanoTime() - startNanos);
+				}
+				retSentence = pipeline.parse(tokensToProcess, deadline, stageNanos);
+			}
+			finally {
+				MateLanguageGate.release();
+			}
+		}
+
+		if(currentMetrics != null) {
+			for(MateMetrics.Stage stage : MateMetrics.Stage.values()) {
+				if(stageNanos[stage.ordinal()] > 0l) {
+					currentMetrics.recordStage(language, stage, stageNanos[stage.ordinal()]);
+				}
+			}
+		}
+		if(retSentence.getParseLevel() != level) {
+			logger.debug("Parsing time budget expired, sentence parsed up to " + retSentence.getParseLevel() + " (" + language + ", " + tokensToProcess.size() + " tokens).");
+			recordRejection(MateMetrics.Rejection.TIME_BUDGET_EXPIRED);
+		}
+		return retSentence;
+	}
+
+	private void recordSentence(ParsedSentence parsedSentence, long startNanos) {
+		MateMetrics currentMetrics = metrics;
+		if(currentMetrics != null && parsedSentence != null) {
+			currentMetrics.recordSentence(language, parsedSentence.getTokenCount(), System.nanoTime() - startNanos);
+		}
+	}
+
+	private void recordRejection(MateMetrics.Rejection rejection) {
+		MateMetrics currentMetrics = metrics;
+		if(currentMetrics != null) {
+			currentMetrics.recordRejection(language, rejection);
+		}
+	}
+
+
+	/**
+	 * Parse an input (sentence string, list of tokens) by means of a pipeline.
+	 *
+	 * @param <T>
+	 */
+	private interface PipelineFunction<T> {
+		ParsedSentence parse(MateParser engine, MatePipeline pipeline, T input, ParseDeadline deadline) throws InterruptedException;
+
+		/**
+		 * Estimate the number of tokens of an input, without tokenizing it.
+		 *
+		 * @param input
+		 * @return
+		 */
+		int estimateTokenNumber(T input);
+	}
+
+	private static final PipelineFunction<String> SENTENCE_TEXT_PARSER = new PipelineFunction<String>() {
+		@Override
+		public ParsedSentence parse(MateParser engine, MatePipeline pipeline, String input, ParseDeadline deadline) throws InterruptedException {
+			return engine.parseSentence(pipeline, input, deadline);
+		}
+
+		@Override
+		public int estimateTokenNumber(String input) {
+			// Number of sequences of non-whitespace characters
+			int retTokenNumber = 0;
+			if(input != null) {
+				boolean inToken = false;
+				for(int c = 0; c < input.length(); c++) {
+					boolean whitespace = Character.isWhitespace(input.charAt(c));
+					if(!whitespace && !inToken) {
+						retTokenNumber++;
+					}
+					inToken = !whitespace;
+				}
+			}
+			return retTokenNumber;
+		}
+	};
+
+	private static final PipelineFunction<List<String>> SENTENCE_TOKENS_PARSER = new PipelineFunction<List<String>>() {
+		@Override
+		public ParsedSentence parse(MateParser engine, MatePipeline pipeline, List<String> input, ParseDeadline deadline) throws InterruptedException {
+			return engine.parseSentenceTokens(pipeline, input, deadline);
+		}
+
+		@Override
+		public int estimateTokenNumber(List<String> input) {
+			return (input != null) ? input.size() : 0;
+		}
+	};
+
+	private FrontEndInstances getFrontEndInstances() {
+		FrontEndInstances currentFrontEnd = frontEndInstances;
+		if(currentFrontEnd == null) {
+			synchronized(this) {
+				if(frontEndInstances == null) {
+					frontEndInstances = new FrontEndInstances(new OpenNLPFrontEnd(language));
+				}
+				currentFrontEnd = frontEndInstances;
+			}
+		}
+		return currentFrontEnd;
+	}
+
+	/**
+	 * A front-end with the sentence detectors and tokenizers created so far and not in use.
+	 *
+	 */
+	private static class FrontEndInstances {
+
+		private final MateFrontEnd frontEnd;
+
+		private final ConcurrentLinkedQueue<SentenceDetector> idleSentenceDetectors = new ConcurrentLinkedQueue<SentenceDetector>();
+
+		private final ConcurrentLinkedQueue<Tokenizer> idleTokenizers = new ConcurrentLinkedQueue<Tokenizer>();
+
+		FrontEndInstances(MateFrontEnd frontEnd) {
+			this.frontEnd = frontEnd;
+		}
+
+		SentenceDetector borrowSentenceDetector() throws Exception {
+			SentenceDetector sentenceDetector = idleSentenceDetectors.poll();
+			return (sentenceDetector != null) ? sentenceDetector : frontEnd.newSentenceDetector();
+		}
+
+		void releaseSentenceDetector(SentenceDetector sentenceDetector) {
+			if(sentenceDetector != null) {
+				idleSentenceDetectors.offer(sentenceDetector);
+			}
+		}
+
+		Tokenizer borrowTokenizer() throws Exception {
+			Tokenizer tokenizer = idleTokenizers.poll();
+			return (tokenizer != null) ? tokenizer : frontEnd.newTokenizer();
+		}
+
+		void releaseTokenizer(Tokenizer tokenizer) {
+			if(tokenizer != null) {
+				idleTokenizers.offer(tokenizer);
+			}
+		}
+	}
+
+	/**
+	 * Creates named daemon threads, so that the worker threads of the engine do not prevent the JVM from exiting.
+	 *
+	 */
+	static class DaemonThreadFactory implements ThreadFactory {
+
+		private final String namePrefix;
+		private final AtomicInteger threadCount = new AtomicInteger(0);
+
+		DaemonThreadFactory(String namePrefix) {
+			this.namePrefix = namePrefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, namePrefix + "-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
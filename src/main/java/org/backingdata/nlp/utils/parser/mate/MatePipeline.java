@@ -0,0 +1,194 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import is2.data.SentenceData09;
+import se.lth.cs.srl.SemanticRoleLabeler;
+import se.lth.cs.srl.corpus.Sentence;
+
+/**
+ * A single Mate-tools processing pipeline (lemmatizer, POS tagger, dependency parser and SRL) of tokenized sentences.
+ * Only the stages needed by the {@link ParseLevel ParseLevel} of the pipeline are executed.<br/>
+ *
+ * The lemmatizer, tagger and parser keep per-sentence working buffers, thus a pipeline
+ * can be used by only one thread at a time: the {@link MateParser} engine hands out pipelines from
+ * a pool. The model weights and the SRL pipeline (read-only at parse time) are shared among
+ * all the pipelines of the same language (see {@link MateModels}).
+ *
+ */
+class MatePipeline {
+
+	private final SemanticRoleLabeler srl;
+
+	private final is2.lemmatizer.Lemmatizer lemmatizer;
+
+	private final is2.tag.Tagger tagger;
+
+	private final is2.parser.Parser parser;
+
+	private final ParseLevel level;
+
+	private final long generation;
+
+	/**
+	 * Create a pipeline: the tools not needed by the parse level can be null.
+	 *
+	 * @param level
+	 * @param lemmatizer
+	 * @param tagger
+	 * @param parser
+	 * @param srl
+	 * @param generation
+	 */
+	MatePipeline(ParseLevel level, is2.lemmatizer.Lemmatizer lemmatizer, is2.tag.Tagger tagger,
+			is2.parser.Parser parser, SemanticRoleLabeler srl, long generation) {
+		this.level = level;
+		this.lemmatizer = level.includes(ParseLevel.LEMMA) ? lemmatizer : null;
+		this.tagger = level.includes(ParseLevel.POS) ? tagger : null;
+		this.parser = level.includes(ParseLevel.DEPENDENCY) ? parser : null;
+		this.srl = level.includes(ParseLevel.SRL) ? srl : null;
+		this.generation = generation;
+	}
+
+	ParseLevel getLevel() {
+		return level;
+	}
+
+	/**
+	 * Generation of the models of the {@link MateParser} engine this pipeline has been created with.
+	 *
+	 * @return
+	 */
+	long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Make this pipeline use the model weights of tools loaded from the same model files,
+	 * so that only one copy of the weights is kept in memory.
+	 *
+	 * @param sharedLemmatizer
+	 * @param sharedTagger
+	 * @param sharedParser
+	 */
+	void shareWeightsOf(is2.lemmatizer.Lemmatizer sharedLemmatizer, is2.tag.Tagger sharedTagger, is2.parser.Parser sharedParser) {
+		if(lemmatizer != null && sharedLemmatizer != null) {
+			lemmatizer.params = sharedLemmatizer.params;
+		}
+		if(tagger != null && sharedTagger != null) {
+			tagger.params = sharedTagger.params;
+		}
+		if(parser != null && sharedParser != null) {
+			parser.params = sharedParser.params;
+		}
+	}
+
+	/**
+	 * Parse a list of tokens. The list should not contain the root token.
+	 *
+	 * @param sentenceTokens
+	 * @return
+	 */
+	ParsedSentence parse(List<String> sentenceTokens) {
+		return parse(sentenceTokens, ParseDeadline.NONE);
+	}
+
+	/**
+	 * Parse a list of tokens within a deadline. The list should not contain the root token.
+	 * The deadline is checked before the dependency parsing and before the semantic role labelling: once expired,
+	 * the remaining stages are skipped and the sentence is returned with the analyses completed so far
+	 * (see {@link ParsedSentence#getParseLevel() ParsedSentence.getParseLevel()}).
+	 *
+	 * @param sentenceTokens
+	 * @param deadline
+	 * @return
+	 */
+	ParsedSentence parse(List<String> sentenceTokens, ParseDeadline deadline) {
+		return parse(sentenceTokens, deadline, null);
+	}
+
+	/**
+	 * Parse a list of tokens within a deadline (see {@link #parse(List, ParseDeadline) parse}), measuring the time spent by each stage.
+	 *
+	 * @param sentenceTokens
+	 * @param deadline
+	 * @param stageNanos the nanoseconds spent by each stage are added to this array, indexed by {@link MateMetrics.Stage stage} ordinal (null not to measure)
+	 * @return
+	 */
+	ParsedSentence parse(List<String> sentenceTokens, ParseDeadline deadline, long[] stageNanos) {
+		long time = (stageNanos != null) ? System.nanoTime() : 0l;
+		String[] tokensToProcess = new String[sentenceTokens.size() + 1];
+		tokensToProcess[0] = "<root>";
+		for (int i = 0; i < sentenceTokens.size(); i++) {
+			tokensToProcess[i + 1] = String.valueOf(sentenceTokens.get(i));
+		}
+
+		if(!level.includes(ParseLevel.LEMMA)) {
+			ParsedSentence retSentence = new ParsedSentence(tokensToProcess.length - 1);
+			for(int w = 1; w < tokensToProcess.length; w++) {
+				retSentence.setToken(w - 1, tokensToProcess[w]);
+			}
+			retSentence.setParseLevel(ParseLevel.TOKENIZE);
+			addStageTime(stageNanos, MateMetrics.Stage.CONVERT, time);
+			return retSentence;
+		}
+
+		// Same steps of the SRL Preprocessor, checking the deadline before the dependency parser
+		SentenceData09 preprocessed = new SentenceData09();
+		preprocessed.init(tokensToProcess);
+		if(lemmatizer != null) {
+			lemmatizer.apply(preprocessed);
+			time = addStageTime(stageNanos, MateMetrics.Stage.LEMMATIZE, time);
+		}
+		if(tagger != null) {
+			tagger.apply(preprocessed);
+			time = addStageTime(stageNanos, MateMetrics.Stage.TAG, time);
+		}
+		preprocessed.pfeats = new String[preprocessed.forms.length];
+		Arrays.fill(preprocessed.pfeats, "_");
+
+		ParseLevel completedLevel = level.includes(ParseLevel.POS) ? ParseLevel.POS : ParseLevel.LEMMA;
+		// The preprocessed sentence does not include the root token
+		if(parser != null && !deadline.isExpired()) {
+			preprocessed = parser.apply(preprocessed);
+			completedLevel = ParseLevel.DEPENDENCY;
+			time = addStageTime(stageNanos, MateMetrics.Stage.PARSE, time);
+		}
+		else {
+			preprocessed = new SentenceData09(preprocessed);
+		}
+
+		if(srl == null || completedLevel != ParseLevel.DEPENDENCY || deadline.isExpired()) {
+			ParsedSentence retSentence = ParsedSentenceConverter.convert(tokensToProcess, preprocessed, completedLevel);
+			addStageTime(stageNanos, MateMetrics.Stage.CONVERT, time);
+			return retSentence;
+		}
+
+		Sentence s = new Sentence(preprocessed);
+		srl.parseSentence(s);
+		time = addStageTime(stageNanos, MateMetrics.Stage.SRL, time);
+
+		ParsedSentence retSentence = ParsedSentenceConverter.convert(tokensToProcess, s);
+		addStageTime(stageNanos, MateMetrics.Stage.CONVERT, time);
+		return retSentence;
+	}
+
+	/**
+	 * Add the time elapsed since the start of a stage to the time of the stage.
+	 *
+	 * @param stageNanos null if the time is not measured
+	 * @param stage
+	 * @param startNanos
+	 * @return the end of the stage, that is the start of the next one
+	 */
+	private static long addStageTime(long[] stageNanos, MateMetrics.Stage stage, long startNanos) {
+		if(stageNanos == null) {
+			return 0l;
+		}
+		long endNanos = System.nanoTime();
+		stageNanos[stage.ordinal()] += endNanos - startNanos;
+		return endNanos;
+	}
+
+}
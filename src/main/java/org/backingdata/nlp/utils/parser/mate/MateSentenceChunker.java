@@ -0,0 +1,155 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits sentences too long to be parsed as a whole into chunks and merges the parsed chunks into a single sentence.<br/>
+ *
+ * Chunks are split preferably after clause boundaries (; : and the like), then after commas and other punctuation, and
+ * only when no punctuation is found after any token. Each chunk is parsed as a sentence, thus the dependency tree of a
+ * merged sentence has one root for each chunk and the semantic frames do not cross the chunk boundaries.
+ *
+ */
+final class MateSentenceChunker {
+
+	private static final Set<String> CLAUSE_BOUNDARIES = new HashSet<String>();
+	private static final Set<String> PHRASE_BOUNDARIES = new HashSet<String>();
+
+	static {
+		CLAUSE_BOUNDARIES.add(";");
+		CLAUSE_BOUNDARIES.add(":");
+		CLAUSE_BOUNDARIES.add(".");
+		CLAUSE_BOUNDARIES.add("!");
+		CLAUSE_BOUNDARIES.add("?");
+
+		PHRASE_BOUNDARIES.add(",");
+		PHRASE_BOUNDARIES.add("-");
+		PHRASE_BOUNDARIES.add("--");
+		PHRASE_BOUNDARIES.add(")");
+		PHRASE_BOUNDARIES.add("]");
+		PHRASE_BOUNDARIES.add("\"");
+		PHRASE_BOUNDARIES.add("''");
+		PHRASE_BOUNDARIES.add("|");
+	}
+
+	private MateSentenceChunker() {
+
+	}
+
+	/**
+	 * Split a list of tokens into chunks of at most maxChunkTokens tokens.
+	 * The split point of each chunk is searched in the second half of the chunk, so that chunks are not too short.
+	 *
+	 * @param tokens
+	 * @param maxChunkTokens
+	 * @return
+	 */
+	static List<List<String>> split(List<String> tokens, int maxChunkTokens) {
+		List<List<String>> chunks = new ArrayList<List<String>>();
+		int chunkSize = Math.max(2, maxChunkTokens);
+
+		int start = 0;
+		while(start < tokens.size()) {
+			int end = tokens.size();
+			if(end - start > chunkSize) {
+				int minEnd = start + Math.max(1, chunkSize / 2);
+				int maxEnd = start + chunkSize;
+				end = findBoundary(tokens, minEnd, maxEnd, CLAUSE_BOUNDARIES);
+				if(end < 0) {
+					end = findBoundary(tokens, minEnd, maxEnd, PHRASE_BOUNDARIES);
+				}
+				if(end < 0) {
+					end = maxEnd;
+				}
+			}
+			chunks.add(new ArrayList<String>(tokens.subList(start, end)));
+			start = end;
+		}
+
+		return chunks;
+	}
+
+	/**
+	 * Merge the parsed chunks of a sentence: the dependency targets and SRL root ids of each chunk are
+	 * re-based to the position of the chunk in the sentence, as well as the semantic frames.
+	 *
+	 * @param chunks
+	 * @param parsedChunks the parsed chunks (null elements for the chunks that could not be parsed: only their tokens are kept)
+	 * @return
+	 */
+	static ParsedSentence merge(List<List<String>> chunks, ParsedSentence[] parsedChunks) {
+		int tokenNumber = 0;
+		for(List<String> chunk : chunks) {
+			tokenNumber += chunk.size();
+		}
+
+		ParsedSentence retSentence = new ParsedSentence(tokenNumber);
+		ParseLevel mergedLevel = ParseLevel.SRL;
+		int offset = 0;
+		for(int c = 0; c < chunks.size(); c++) {
+			List<String> chunk = chunks.get(c);
+			ParsedSentence parsedChunk = parsedChunks[c];
+			ParseLevel chunkLevel = (parsedChunk != null) ? parsedChunk.getParseLevel() : ParseLevel.TOKENIZE;
+			if(!chunkLevel.includes(mergedLevel)) {
+				mergedLevel = chunkLevel;
+			}
+
+			for(int i = 0; i < chunk.size(); i++) {
+				int index = offset + i;
+				retSentence.setToken(index, chunk.get(i));
+				if(parsedChunk == null) {
+					continue;
+				}
+
+				retSentence.setLemma(index, parsedChunk.getLemmaAtIndex(i));
+				retSentence.setPos(index, parsedChunk.getPOSatIndex(i));
+				retSentence.setDepFunct(index, parsedChunk.getDepFunctAtIndex(i));
+				Integer depTarget = parsedChunk.getDepTargetAtIndex(i);
+				if(depTarget != null) {
+					retSentence.setDepTarget(index, offset + depTarget);
+				}
+				retSentence.setSRLtag(index, parsedChunk.getSRLtagatIndex(i));
+				Integer SRLrootID = parsedChunk.getSRLrootIDatIndex(i);
+				if(SRLrootID != null) {
+					retSentence.setSRLrootID(index, offset + SRLrootID);
+				}
+				retSentence.setSRLsense(index, parsedChunk.getSRLsenseatIndex(i));
+			}
+
+			for(int f = 0; parsedChunk != null && f < parsedChunk.getSRLframeCount(); f++) {
+				SRLFrame frame = parsedChunk.getSRLframe(f);
+				int[] argumentIndexes = new int[frame.getArgumentCount()];
+				String[] roles = new String[frame.getArgumentCount()];
+				for(int a = 0; a < argumentIndexes.length; a++) {
+					argumentIndexes[a] = offset + frame.getArgument(a);
+					roles[a] = frame.getRole(a);
+				}
+				retSentence.addSRLframe(offset + frame.getPredicate(), frame.getSense(), argumentIndexes, roles);
+			}
+
+			offset += chunk.size();
+		}
+
+		// The analyses performed on all the chunks
+		retSentence.setParseLevel(mergedLevel);
+		return retSentence;
+	}
+
+	/**
+	 * Find the last boundary token in the range [minEnd - 1, maxEnd - 1].
+	 *
+	 * @return the index after the boundary token, -1 if not found
+	 */
+	private static int findBoundary(List<String> tokens, int minEnd, int maxEnd, Set<String> boundaries) {
+		for(int end = Math.min(maxEnd, tokens.size()); end >= minEnd; end--) {
+			if(boundaries.contains(tokens.get(end - 1))) {
+				return end;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,57 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import opennlp.tools.sentdetect.SentenceDetector;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.tokenize.TokenizerME;
+
+/**
+ * Front-end of the Mate parser based on the OpenNLP sentence detector and tokenizer models (see {@link MateFrontEnd MateFrontEnd}).<br/>
+ *
+ * The models are loaded when the first sentence detector / tokenizer is created and shared by all the front-ends
+ * that use the same model files.
+ *
+ */
+public class OpenNLPFrontEnd implements MateFrontEnd {
+
+	private final String sentenceModelPath;
+
+	private final String tokenizerModelPath;
+
+	/**
+	 * Create a front-end that uses the OpenNLP models of a language (see {@link MateLanguage#getSentenceModelPath() getSentenceModelPath}
+	 * and {@link MateLanguage#getTokenizerModelPath() getTokenizerModelPath}).
+	 *
+	 * @param language
+	 */
+	public OpenNLPFrontEnd(MateLanguage language) {
+		this(language.getSentenceModelPath(), language.getTokenizerModelPath());
+	}
+
+	/**
+	 * Create a front-end that uses the given OpenNLP models.
+	 *
+	 * @param sentenceModelPath path of the sentence detector model
+	 * @param tokenizerModelPath path of the tokenizer model
+	 */
+	public OpenNLPFrontEnd(String sentenceModelPath, String tokenizerModelPath) {
+		this.sentenceModelPath = sentenceModelPath;
+		this.tokenizerModelPath = tokenizerModelPath;
+	}
+
+	@Override
+	public SentenceDetector newSentenceDetector() throws Exception {
+		return new SentenceDetectorME(MateModels.getSentenceModel(sentenceModelPath));
+	}
+
+	@Override
+	public Tokenizer newTokenizer() throws Exception {
+		return new TokenizerME(MateModels.getTokenizerModel(tokenizerModelPath));
+	}
+
+	@Override
+	public String toString() {
+		return "OpenNLPFrontEnd [sentenceModelPath=" + sentenceModelPath + ", tokenizerModelPath=" + tokenizerModelPath + "]";
+	}
+
+}
@@ -0,0 +1,56 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+/**
+ * Time by which the parsing of a sentence (or a batch of sentences) should be completed.<br/>
+ *
+ * The Mate-tools libraries cannot be interrupted while processing a sentence, thus the deadline is checked
+ * before each stage of a pipeline: once expired, the following stages are skipped.
+ *
+ */
+final class ParseDeadline {
+
+	static final ParseDeadline NONE = new ParseDeadline(0l, false);
+
+	private final long deadlineNanos;
+
+	private final boolean limited;
+
+	private ParseDeadline(long deadlineNanos, boolean limited) {
+		this.deadlineNanos = deadlineNanos;
+		this.limited = limited;
+	}
+
+	/**
+	 * Get the deadline that expires after a time budget from now.
+	 *
+	 * @param timeoutMillis if lower than 1, no deadline
+	 * @return
+	 */
+	static ParseDeadline after(long timeoutMillis) {
+		if(timeoutMillis <= 0l) {
+			return NONE;
+		}
+		return new ParseDeadline(System.nanoTime() + timeoutMillis * 1000000l, true);
+	}
+
+	/**
+	 * Get the earlier between this deadline and another one.
+	 *
+	 * @param other
+	 * @return
+	 */
+	ParseDeadline min(ParseDeadline other) {
+		if(other == null || !other.limited) {
+			return this;
+		}
+		if(!limited) {
+			return other;
+		}
+		return (other.deadlineNanos - deadlineNanos < 0l) ? other : this;
+	}
+
+	boolean isExpired() {
+		return limited && System.nanoTime() - deadlineNanos >= 0l;
+	}
+
+}
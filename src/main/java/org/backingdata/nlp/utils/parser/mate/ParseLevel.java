@@ -0,0 +1,25 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+/**
+ * Analyses performed by the Mate parser on a sentence. Each level includes the analyses of the previous ones,
+ * and only the models needed by the selected level are loaded in memory:<br/>
+ *  - TOKENIZE: tokens only (no Mate model is loaded)<br/>
+ *  - LEMMA: tokens and lemmas<br/>
+ *  - POS: tokens, lemmas and Part-Of-Speech (the Mate POS tagger relies on lemmas as features)<br/>
+ *  - DEPENDENCY: tokens, lemmas, POS and dependency tree<br/>
+ *  - SRL: full analysis, including semantic role labelling.
+ *
+ */
+public enum ParseLevel {
+	TOKENIZE, LEMMA, POS, DEPENDENCY, SRL;
+
+	/**
+	 * Check if this level includes the analyses of another level.
+	 *
+	 * @param level
+	 * @return
+	 */
+	public boolean includes(ParseLevel level) {
+		return level != null && this.ordinal() >= level.ordinal();
+	}
+}
@@ -0,0 +1,136 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of a document parsed by the Mate parser (see {@link MateParser#parseDocument(String) MateParser.parseDocument}): the sentences
+ * of the document, each one with its character offsets (and the character offsets of its tokens) in the text of the document.<br/>
+ *
+ * A new version of the document can be parsed by {@link MateParser#parseDocument(String, ParsedDocument) MateParser.parseDocument(text, previousDocument)},
+ * reusing the parsed sentences not changed: thus the parsed sentences can be shared by several versions of a document.
+ *
+ */
+public class ParsedDocument {
+
+	private final MateLanguage language;
+
+	private final String text;
+
+	private final List<ParsedSentence> sentences;
+
+	private final int[] sentenceStart;
+
+	private final int[] sentenceEnd;
+
+	ParsedDocument(MateLanguage language, String text, List<ParsedSentence> sentences, int[] sentenceStart, int[] sentenceEnd) {
+		this.language = language;
+		this.text = text;
+		this.sentences = Collections.unmodifiableList(sentences);
+		this.sentenceStart = sentenceStart;
+		this.sentenceEnd = sentenceEnd;
+	}
+
+	public MateLanguage getLanguage() {
+		return language;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Get the parsed sentences, in order of position (null elements for the sentences that cannot be parsed).
+	 *
+	 * @return
+	 */
+	public List<ParsedSentence> getSentences() {
+		return sentences;
+	}
+
+	public int getSentenceCount() {
+		return sentences.size();
+	}
+
+	public ParsedSentence getSentence(int sentenceIndex) {
+		return sentences.get(sentenceIndex);
+	}
+
+	/**
+	 * Get the offset of the first character of a sentence in the text of the document.
+	 *
+	 * @param sentenceIndex
+	 * @return
+	 */
+	public int getSentenceStart(int sentenceIndex) {
+		checkSentence(sentenceIndex);
+		return sentenceStart[sentenceIndex];
+	}
+
+	/**
+	 * Get the offset after the last character of a sentence in the text of the document.
+	 *
+	 * @param sentenceIndex
+	 * @return
+	 */
+	public int getSentenceEnd(int sentenceIndex) {
+		checkSentence(sentenceIndex);
+		return sentenceEnd[sentenceIndex];
+	}
+
+	/**
+	 * Get the text of a sentence.
+	 *
+	 * @param sentenceIndex
+	 * @return
+	 */
+	public String getSentenceText(int sentenceIndex) {
+		checkSentence(sentenceIndex);
+		return text.substring(sentenceStart[sentenceIndex], sentenceEnd[sentenceIndex]);
+	}
+
+	/**
+	 * Get the offset of the first character of a token of a sentence in the text of the document.
+	 *
+	 * @param sentenceIndex
+	 * @param tokenIndex the index of the token in the sentence
+	 * @return -1 if the sentence is not parsed or the token is out of the sentence
+	 */
+	public int getTokenStart(int sentenceIndex, int tokenIndex) {
+		checkSentence(sentenceIndex);
+		ParsedSentence sentence = sentences.get(sentenceIndex);
+		int tokenStart = (sentence != null) ? sentence.getTokenStartAtIndex(tokenIndex) : -1;
+		return (tokenStart >= 0) ? sentenceStart[sentenceIndex] + tokenStart : -1;
+	}
+
+	/**
+	 * Get the offset after the last character of a token of a sentence in the text of the document.
+	 *
+	 * @param sentenceIndex
+	 * @param tokenIndex the index of the token in the sentence
+	 * @return -1 if the sentence is not parsed or the token is out of the sentence
+	 */
+	public int getTokenEnd(int sentenceIndex, int tokenIndex) {
+		checkSentence(sentenceIndex);
+		ParsedSentence sentence = sentences.get(sentenceIndex);
+		int tokenEnd = (sentence != null) ? sentence.getTokenEndAtIndex(tokenIndex) : -1;
+		return (tokenEnd >= 0) ? sentenceStart[sentenceIndex] + tokenEnd : -1;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder document = new StringBuilder();
+		document.append("ParsedDocument [sentences=").append(sentences.size()).append("]");
+		for(int s = 0; s < sentences.size(); s++) {
+			document.append("\n[").append(sentenceStart[s]).append(", ").append(sentenceEnd[s]).append("] ").append(sentences.get(s));
+		}
+		return document.toString();
+	}
+
+	private void checkSentence(int sentenceIndex) {
+		if(sentenceIndex < 0 || sentenceIndex >= sentences.size()) {
+			throw new IndexOutOfBoundsException("Sentence " + sentenceIndex + " of a document with " + sentences.size() + " sentences");
+		}
+	}
+
+}
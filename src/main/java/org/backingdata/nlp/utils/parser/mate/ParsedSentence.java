@@ -1,9 +1,11 @@
 package org.backingdata.nlp.utils.parser.mate;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
 
 /**
  * Results of a sentence parsed by the Mate parser.<P>
@@ -26,32 +28,152 @@ import java.util.List;
  * 
  * NB: Each token can be related to one parent one by means of one dependency function.<P>
  * 
+ * The analyses are stored in primitive arrays: the POS, dependency functions and SRL tags (closed sets of labels) are stored as codes of
+ * label tables shared by all the parsed sentences (see {@link #getPosLabels() getPosLabels}, {@link #getDepFunctLabels() getDepFunctLabels}
+ * and {@link #getSRLtagLabels() getSRLtagLabels}), thus each label is kept in memory once. The SRL senses (an open set, one for each
+ * predicate lemma) are kept by each sentence.<P>
+ * 
+ * The read methods do not allocate memory: the lists returned by the getters are read-only views of the sentence, created once,
+ * while the methods {@link #getDepTargetIdAtIndex(int) getDepTargetIdAtIndex}, {@link #getChildrenIds_depTree(int, int[]) getChildrenIds_depTree}
+ * and {@link #forEachChild_depTree(int, IntConsumer) forEachChild_depTree} give access to the dependency tree by primitive values.<P>
+ * 
+ * The semantic frames of the sentence (predicate, sense and arguments with their roles) are available by means of
+ * {@link #getSRLframes() getSRLframes}: a token can be argument of several frames. The methods {@link #getSRLtagatIndex(int) getSRLtagatIndex},
+ * {@link #getSRLrootIDatIndex(int) getSRLrootIDatIndex} and {@link #getSRLsenseatIndex(int) getSRLsenseatIndex} give, for each token,
+ * the role in the first frame (in order of predicate position) the token is argument of.<P>
+ * 
+ * The methods that browse the dependency tree rely on an index of the tree (see {@link #getDepTreeIndex() getDepTreeIndex}),
+ * built at the first use and rebuilt when a dependency target changes.<P>
+ * 
+ * The sentences parsed from a string keep the character offsets of their tokens in the sentence text (see {@link #getTokenStartAtIndex(int) getTokenStartAtIndex}
+ * and {@link #getTokenEndAtIndex(int) getTokenEndAtIndex}), thus the tokens can be mapped back to the text without searching it.<P>
+ * 
  * @author Francesco Ronzano
  *
  */
 public class ParsedSentence {
 
+	// Label tables shared by all the parsed sentences
+	private static final LabelTable posLabels = new LabelTable("POS", Short.MAX_VALUE);
+	private static final LabelTable depFunctLabels = new LabelTable("depFunct", Short.MAX_VALUE);
+	private static final LabelTable SRLtagLabels = new LabelTable("SRLtag", Short.MAX_VALUE);
+
+	// No dependency target / SRL root
+	private static final int NONE = -1;
+
+	private static final int[] NO_FRAMES = new int[0];
+	private static final String[] NO_SENSES = new String[0];
+	private static final int[] NO_ARGUMENTS = new int[] {0};
+
 	private String sentenceText;
 	private String[] token;
 	private String[] lemma;
-	private String[] pos;
-	private String[] depFunct;
-	private Integer[] depTarget;
-	private String[] SRLtag;
-	private Integer[] SRLrootID;
+	private short[] pos;
+	private short[] depFunct;
+	private int[] depTarget;
+	private short[] SRLtag;
+	private int[] SRLrootID;
 	private String[] SRLsense;
+	private ParseLevel parseLevel;
+
+	// SRL frames: predicate and sense of each frame, the arguments of the frame f are at the positions
+	// frameArgumentStart[f] ... frameArgumentStart[f + 1] - 1 of argumentToken and argumentRole
+	private int[] framePredicate;
+	private String[] frameSense;
+	private int[] frameArgumentStart;
+	private int[] argumentToken;
+	private short[] argumentRole;
+
+	// Character offsets of the tokens in the sentence text, null if not known (never modified, only replaced)
+	private int[] tokenStart;
+	private int[] tokenEnd;
+
+	// Read-only views of the arrays, created once
+	private List<String> tokenView;
+	private List<String> lemmaView;
+	private List<String> posView;
+	private List<String> depFunctView;
+	private List<Integer> depTargetView;
+	private List<String> SRLtagView;
+	private List<Integer> SRLrootIDView;
+	private List<String> SRLsenseView;
+
+	// Index of the dependency tree, built when needed
+	private volatile DependencyTreeIndex depTreeIndex;
 
 	public ParsedSentence(Integer tokenNumber) {
 		super();
 		this.sentenceText = "";
 		this.token = new String[tokenNumber];
 		this.lemma = new String[tokenNumber];
-		this.pos = new String[tokenNumber];
-		this.depFunct = new String[tokenNumber];
-		this.depTarget = new Integer[tokenNumber];
-		this.SRLtag = new String[tokenNumber];
-		this.SRLrootID = new Integer[tokenNumber];
+		this.pos = new short[tokenNumber];
+		this.depFunct = new short[tokenNumber];
+		this.depTarget = new int[tokenNumber];
+		Arrays.fill(this.depTarget, NONE);
+		this.SRLtag = new short[tokenNumber];
+		this.SRLrootID = new int[tokenNumber];
+		Arrays.fill(this.SRLrootID, NONE);
 		this.SRLsense = new String[tokenNumber];
+		this.parseLevel = ParseLevel.SRL;
+		this.framePredicate = NO_FRAMES;
+		this.frameSense = NO_SENSES;
+		this.frameArgumentStart = NO_ARGUMENTS;
+		this.argumentToken = NO_FRAMES;
+		this.argumentRole = new short[0];
+	}
+
+	/**
+	 * Create a copy of a parsed sentence.
+	 * 
+	 * @param parsedSentence
+	 */
+	public ParsedSentence(ParsedSentence parsedSentence) {
+		super();
+		this.sentenceText = parsedSentence.sentenceText;
+		this.token = parsedSentence.token.clone();
+		this.lemma = parsedSentence.lemma.clone();
+		this.pos = parsedSentence.pos.clone();
+		this.depFunct = parsedSentence.depFunct.clone();
+		this.depTarget = parsedSentence.depTarget.clone();
+		this.SRLtag = parsedSentence.SRLtag.clone();
+		this.SRLrootID = parsedSentence.SRLrootID.clone();
+		this.SRLsense = parsedSentence.SRLsense.clone();
+		this.parseLevel = parsedSentence.parseLevel;
+		// The frames are never modified, only replaced
+		this.framePredicate = parsedSentence.framePredicate;
+		this.frameSense = parsedSentence.frameSense;
+		this.frameArgumentStart = parsedSentence.frameArgumentStart;
+		this.argumentToken = parsedSentence.argumentToken;
+		this.argumentRole = parsedSentence.argumentRole;
+		this.tokenStart = parsedSentence.tokenStart;
+		this.tokenEnd = parsedSentence.tokenEnd;
+	}
+
+	/**
+	 * Table of the POS labels.
+	 * 
+	 * @return
+	 */
+	public static LabelTable getPosLabels() {
+		return posLabels;
+	}
+
+	/**
+	 * Table of the dependency function labels.
+	 * 
+	 * @return
+	 */
+	public static LabelTable getDepFunctLabels() {
+		return depFunctLabels;
+	}
+
+	/**
+	 * Table of the SRL tag labels.
+	 * 
+	 * @return
+	 */
+	public static LabelTable getSRLtagLabels() {
+		return SRLtagLabels;
 	}
 
 	public String getSentenceText() {
@@ -62,43 +184,90 @@ public class ParsedSentence {
 		this.sentenceText = sentenceText;
 	}
 
+	/**
+	 * Get the analyses performed on the sentence: lower than the parse level of the parser if the
+	 * parsing time budget expired before completing all the analyses.
+	 * 
+	 * @return
+	 */
+	public ParseLevel getParseLevel() {
+		return parseLevel;
+	}
+
+	public void setParseLevel(ParseLevel parseLevel) {
+		this.parseLevel = parseLevel;
+	}
+
 	public List<String> getToken() {
-		return Collections.unmodifiableList(Arrays.asList(token));
+		if(tokenView == null) {
+			tokenView = new StringView(token);
+		}
+		return tokenView;
 	}
 
 	public List<String> getLemma() {
-		return Collections.unmodifiableList(Arrays.asList(lemma));
+		if(lemmaView == null) {
+			lemmaView = new StringView(lemma);
+		}
+		return lemmaView;
 	}
 
 	public List<String> getPos() {
-		return Collections.unmodifiableList(Arrays.asList(pos));
+		if(posView == null) {
+			posView = new LabelView(pos, posLabels);
+		}
+		return posView;
 	}
 
 	public List<String> getDepFunct() {
-		return Collections.unmodifiableList(Arrays.asList(depFunct));
+		if(depFunctView == null) {
+			depFunctView = new LabelView(depFunct, depFunctLabels);
+		}
+		return depFunctView;
 	}
 
 	public List<Integer> getDepTarget() {
-		return Collections.unmodifiableList(Arrays.asList(depTarget));
+		if(depTargetView == null) {
+			depTargetView = new IdView(depTarget);
+		}
+		return depTargetView;
 	}
 
 	public List<String> getSRLtag() {
-		return Collections.unmodifiableList(Arrays.asList(SRLtag));
+		if(SRLtagView == null) {
+			SRLtagView = new LabelView(SRLtag, SRLtagLabels);
+		}
+		return SRLtagView;
 	}
 
 	public List<Integer> getSRLrootID() {
-		return Collections.unmodifiableList(Arrays.asList(SRLrootID));
+		if(SRLrootIDView == null) {
+			SRLrootIDView = new IdView(SRLrootID);
+		}
+		return SRLrootIDView;
 	}
 
 	public List<String> getSRLsense() {
-		return Collections.unmodifiableList(Arrays.asList(SRLsense));
+		if(SRLsenseView == null) {
+			SRLsenseView = new StringView(SRLsense);
+		}
+		return SRLsenseView;
+	}
+
+	/**
+	 * Number of tokens of the sentence.
+	 * 
+	 * @return
+	 */
+	public int getTokenCount() {
+		return token.length;
 	}
 
 
 	// Other methods
 	public boolean setToken(int index, String tk) {
 		if(index >= 0 && index < token.length && tk != null) {
-			token[index] = new String(tk);
+			token[index] = tk;
 			return true;
 		}
 		return false;
@@ -106,7 +275,7 @@ public class ParsedSentence {
 
 	public boolean setLemma(int index, String lm) {
 		if(index >= 0 && index < lemma.length && lm != null) {
-			lemma[index] = new String(lm);
+			lemma[index] = lm;
 			return true;
 		}
 		return false;
@@ -114,7 +283,7 @@ public class ParsedSentence {
 
 	public boolean setPos(int index, String ps) {
 		if(index >= 0 && index < pos.length && ps != null) {
-			pos[index] = new String(ps);
+			pos[index] = (short) posLabels.getCode(ps);
 			return true;
 		}
 		return false;
@@ -122,7 +291,7 @@ public class ParsedSentence {
 
 	public boolean setDepFunct(int index, String df) {
 		if(index >= 0 && index < depFunct.length && df != null) {
-			depFunct[index] = new String(df);
+			depFunct[index] = (short) depFunctLabels.getCode(df);
 			return true;
 		}
 		return false;
@@ -130,7 +299,8 @@ public class ParsedSentence {
 
 	public boolean setDepTarget(int index, Integer dt) {
 		if(index >= 0 && index < depTarget.length && dt != null && dt >= 0 && dt < depTarget.length) {
-			depTarget[index] = new Integer(dt);
+			depTarget[index] = dt;
+			depTreeIndex = null;
 			return true;
 		}
 		return false;
@@ -138,7 +308,7 @@ public class ParsedSentence {
 
 	public boolean setSRLtag(int index, String st) {
 		if(index >= 0 && index < SRLtag.length && st != null) {
-			SRLtag[index] = new String(st);
+			SRLtag[index] = (short) SRLtagLabels.getCode(st);
 			return true;
 		}
 		return false;
@@ -146,7 +316,7 @@ public class ParsedSentence {
 
 	public boolean setSRLrootID(int index, Integer sroot) {
 		if(index >= 0 && index < SRLrootID.length && sroot != null && sroot >= 0 && sroot < SRLrootID.length) {
-			SRLrootID[index] = new Integer(sroot);
+			SRLrootID[index] = sroot;
 			return true;
 		}
 		return false;
@@ -154,13 +324,46 @@ public class ParsedSentence {
 
 	public boolean setSRLsense(int index, String sSense) {
 		if(index >= 0 && index < SRLsense.length && sSense != null) {
-			SRLsense[index] = new String(sSense);
+			SRLsense[index] = sSense;
 			return true;
 		}
 		return false;
 	}	
 
 
+	// Label codes
+
+	/**
+	 * Get the code of the POS of a token (see {@link #getPosLabels() getPosLabels}).
+	 * 
+	 * @param index
+	 * @return 0 if no POS, -1 if the index is out of the sentence
+	 */
+	public int getPosCodeAtIndex(int index) {
+		return (index >= 0 && index < pos.length) ? pos[index] : -1;
+	}
+
+	/**
+	 * Get the code of the dependency function of a token (see {@link #getDepFunctLabels() getDepFunctLabels}).
+	 * 
+	 * @param index
+	 * @return 0 if no dependency function, -1 if the index is out of the sentence
+	 */
+	public int getDepFunctCodeAtIndex(int index) {
+		return (index >= 0 && index < depFunct.length) ? depFunct[index] : -1;
+	}
+
+	/**
+	 * Get the code of the SRL tag of a token (see {@link #getSRLtagLabels() getSRLtagLabels}).
+	 * 
+	 * @param index
+	 * @return 0 if no SRL tag, -1 if the index is out of the sentence
+	 */
+	public int getSRLtagCodeAtIndex(int index) {
+		return (index >= 0 && index < SRLtag.length) ? SRLtag[index] : -1;
+	}
+
+
 	// Utility methods
 
 	/**
@@ -171,8 +374,8 @@ public class ParsedSentence {
 	 */
 	public String getTokenAtIndex(int index) {
 		String retToken = null;
-		if(index >= 0 && index < this.getToken().size()) {
-			retToken = this.getToken().get(index);
+		if(index >= 0 && index < token.length) {
+			retToken = token[index];
 		}
 		return retToken;
 	}
@@ -185,8 +388,8 @@ public class ParsedSentence {
 	 */
 	public String getLemmaAtIndex(int index) {
 		String retLemma = null;
-		if(index >= 0 && index < this.getToken().size() && this.getLemma() != null) {
-			retLemma = this.getLemma().get(index);
+		if(index >= 0 && index < token.length) {
+			retLemma = lemma[index];
 		}
 		return retLemma;
 	}
@@ -199,12 +402,40 @@ public class ParsedSentence {
 	 */
 	public String getPOSatIndex(int index) {
 		String retPOS = null;
-		if(index >= 0 && index < this.getToken().size() && this.getPos() != null) {
-			retPOS = this.getPos().get(index);
+		if(index >= 0 && index < token.length) {
+			retPOS = posLabels.getLabel(pos[index]);
 		}
 		return retPOS;
 	}
 
+	/**
+	 * Get the dependency function of a sentence token at a given index.
+	 * 
+	 * @param index
+	 * @return
+	 */
+	public String getDepFunctAtIndex(int index) {
+		String retDepFunct = null;
+		if(index >= 0 && index < token.length) {
+			retDepFunct = depFunctLabels.getLabel(depFunct[index]);
+		}
+		return retDepFunct;
+	}
+
+	/**
+	 * Get the id of the dependency target (parent token) of a sentence token at a given index.
+	 * 
+	 * @param index
+	 * @return null if the token is the root of the dependency tree or has no dependency target
+	 */
+	public Integer getDepTargetAtIndex(int index) {
+		Integer retDepTarget = null;
+		if(index >= 0 && index < token.length && depTarget[index] != NONE) {
+			retDepTarget = depTarget[index];
+		}
+		return retDepTarget;
+	}
+
 	/**
 	 * Get the SRL tag of the a sentence token at a given index.
 	 * 
@@ -213,8 +444,8 @@ public class ParsedSentence {
 	 */
 	public String getSRLtagatIndex(int index) {
 		String retSRLtag = null;
-		if(index >= 0 && index < this.getToken().size() && this.getSRLtag() != null) {
-			retSRLtag = this.getSRLtag().get(index);
+		if(index >= 0 && index < token.length) {
+			retSRLtag = SRLtagLabels.getLabel(SRLtag[index]);
 		}
 		return retSRLtag;
 	}
@@ -227,8 +458,8 @@ public class ParsedSentence {
 	 */
 	public String getSRLsenseatIndex(int index) {
 		String retSRLsense = null;
-		if(index >= 0 && index < this.getToken().size() && this.getSRLsense() != null) {
-			retSRLsense = this.getSRLsense().get(index);
+		if(index >= 0 && index < token.length) {
+			retSRLsense = SRLsense[index];
 		}
 		return retSRLsense;
 	}
@@ -241,8 +472,8 @@ public class ParsedSentence {
 	 */
 	public Integer getSRLrootIDatIndex(int index) {
 		Integer retSRLrootID = null;
-		if(index >= 0 && index < this.getToken().size() && this.getSRLrootID() != null) {
-			retSRLrootID = this.getSRLrootID().get(index);
+		if(index >= 0 && index < token.length && SRLrootID[index] != NONE) {
+			retSRLrootID = SRLrootID[index];
 		}
 		return retSRLrootID;
 	}
@@ -268,6 +499,110 @@ public class ParsedSentence {
 				(getSRLsenseatIndex(index) != null && !getSRLsenseatIndex(index).equals(""))) ? true : false;
 	}
 
+	/**
+	 * Add a semantic frame to the sentence. The SRL tag, root id and sense of the arguments (and the sense of the predicate)
+	 * are set if not already set by a previous frame.
+	 * 
+	 * @param predicateIndex the id of the predicate token
+	 * @param sense the sense of the predicate (e.g. eat.01)
+	 * @param argumentIndexes the ids of the argument tokens
+	 * @param roles the role of each argument (e.g. A0)
+	 * @return false if the predicate or an argument is out of the sentence (the frame is not added)
+	 */
+	public boolean addSRLframe(int predicateIndex, String sense, int[] argumentIndexes, String[] roles) {
+		return addSRLframe(predicateIndex, sense, argumentIndexes, roles, true);
+	}
+
+	/**
+	 * Add a semantic frame to the sentence.
+	 * 
+	 * @param predicateIndex
+	 * @param sense
+	 * @param argumentIndexes
+	 * @param roles
+	 * @param setTokenRoles true to set the SRL tag, root id and sense of the tokens not already set
+	 * @return
+	 */
+	boolean addSRLframe(int predicateIndex, String sense, int[] argumentIndexes, String[] roles, boolean setTokenRoles) {
+		if(predicateIndex < 0 || predicateIndex >= token.length || argumentIndexes.length != roles.length) {
+			return false;
+		}
+		for(int a = 0; a < argumentIndexes.length; a++) {
+			if(argumentIndexes[a] < 0 || argumentIndexes[a] >= token.length) {
+				return false;
+			}
+		}
+
+		int frameCount = framePredicate.length;
+		int argumentCount = argumentToken.length;
+		int[] newFramePredicate = Arrays.copyOf(framePredicate, frameCount + 1);
+		String[] newFrameSense = Arrays.copyOf(frameSense, frameCount + 1);
+		int[] newFrameArgumentStart = Arrays.copyOf(frameArgumentStart, frameCount + 2);
+		int[] newArgumentToken = Arrays.copyOf(argumentToken, argumentCount + argumentIndexes.length);
+		short[] newArgumentRole = Arrays.copyOf(argumentRole, argumentCount + argumentIndexes.length);
+
+		newFramePredicate[frameCount] = predicateIndex;
+		newFrameSense[frameCount] = sense;
+		newFrameArgumentStart[frameCount + 1] = argumentCount + argumentIndexes.length;
+		for(int a = 0; a < argumentIndexes.length; a++) {
+			int argument = argumentIndexes[a];
+			short roleCode = (short) SRLtagLabels.getCode(roles[a]);
+			newArgumentToken[argumentCount + a] = argument;
+			newArgumentRole[argumentCount + a] = roleCode;
+			if(setTokenRoles && SRLtag[argument] == 0 && roleCode != 0) {
+				SRLtag[argument] = roleCode;
+				SRLrootID[argument] = predicateIndex;
+				SRLsense[argument] = sense;
+			}
+		}
+		if(setTokenRoles && SRLtag[predicateIndex] == 0 && SRLsense[predicateIndex] == null) {
+			SRLsense[predicateIndex] = sense;
+		}
+
+		framePredicate = newFramePredicate;
+		frameSense = newFrameSense;
+		frameArgumentStart = newFrameArgumentStart;
+		argumentToken = newArgumentToken;
+		argumentRole = newArgumentRole;
+		return true;
+	}
+
+	/**
+	 * Number of semantic frames of the sentence.
+	 * 
+	 * @return
+	 */
+	public int getSRLframeCount() {
+		return framePredicate.length;
+	}
+
+	/**
+	 * Get a semantic frame of the sentence.
+	 * 
+	 * @param frameIndex from 0 to getSRLframeCount() - 1
+	 * @return
+	 */
+	public SRLFrame getSRLframe(int frameIndex) {
+		if(frameIndex < 0 || frameIndex >= framePredicate.length) {
+			throw new IndexOutOfBoundsException("Frame " + frameIndex + " of a sentence with " + framePredicate.length + " frames");
+		}
+		return new SRLFrame(this, framePredicate[frameIndex], frameSense[frameIndex],
+				argumentToken, argumentRole, frameArgumentStart[frameIndex], frameArgumentStart[frameIndex + 1]);
+	}
+
+	/**
+	 * Get the semantic frames of the sentence, in the order they were added (order of predicate position for the parsed sentences).
+	 * 
+	 * @return
+	 */
+	public List<SRLFrame> getSRLframes() {
+		List<SRLFrame> retFrames = new ArrayList<SRLFrame>(framePredicate.length);
+		for(int f = 0; f < framePredicate.length; f++) {
+			retFrames.add(getSRLframe(f));
+		}
+		return retFrames;
+	}
+
 	/**
 	 * Get the depth in the dependency tree of the token at a given index.
 	 * The root token has depth 0.
@@ -275,26 +610,7 @@ public class ParsedSentence {
 	 * @param index
 	 */
 	public Integer getDepthOfToken_depTree(int index) {
-		Integer depthValue = 0;
-
-		Integer currentIndex = new Integer(index);
-		String currentWord = new String(this.getToken().get(currentIndex));
-		// System.out.println("Determining depth of word: " + currentWord + " at index: " + currentIndex);
-		if(index >= 0 && index < this.getToken().size()) {
-			List<Integer> targetIdList = this.getDepTarget();
-			List<String> depFunctList = this.getDepFunct();
-			while(targetIdList.get(currentIndex) != null && targetIdList.get(currentIndex) >= 0) {
-				depthValue++;
-				// System.out.println("Word: " + currentWord + " at index: " + currentIndex + " with function: " + depFunctList.get(currentIndex));
-				currentIndex = targetIdList.get(currentIndex);
-				currentWord = new String(this.getToken().get(currentIndex));
-				// System.out.println("Word: " + currentWord + " at index: " + currentIndex + " with function: " + depFunctList.get(currentIndex));
-			}
-		}
-		else {
-			depthValue = -1;
-		}
-		return depthValue;
+		return getDepTreeIndex().getDepth(index);
 	}
 
 	/**
@@ -306,9 +622,8 @@ public class ParsedSentence {
 	public Integer getParentId_depTree(int index) {
 		Integer retVal = -1;
 
-		if(index < this.getDepTarget().size() && this.getDepTarget().get(index) != null &&
-				this.getDepTarget().get(index) >= 0) {
-			retVal = new Integer(this.getDepTarget().get(index));
+		if(index >= 0 && index < depTarget.length && depTarget[index] >= 0) {
+			retVal = depTarget[index];
 		}
 
 		return retVal;
@@ -321,17 +636,219 @@ public class ParsedSentence {
 	 * @return empty list if no children nodes exist
 	 */
 	public List<Integer> getChildrenIds_depTree(int index) {
-		List<Integer> retChildrenList = new ArrayList<Integer>();
+		DependencyTreeIndex treeIndex = getDepTreeIndex();
+		int childCount = treeIndex.getChildCount(index);
+		List<Integer> retChildrenList = new ArrayList<Integer>(childCount);
+
+		for(int c = 0; c < childCount; c++) {
+			retChildrenList.add(treeIndex.getChild(index, c));
+		}
 
-		if(this.getDepTarget().size() > 0) {
-			for(int i = 0; i < this.getToken().size(); i++) {
-				if(this.getDepTarget().get(i) != null && this.getDepTarget().get(i).equals(index) ) {
-					retChildrenList.add(new Integer(i));
+		return retChildrenList;
+	}
+
+	/**
+	 * Get the id of the dependency target (parent token) of a sentence token at a given index, without boxing.
+	 * 
+	 * @param index
+	 * @return -1 if the token has no dependency target or the index is out of the sentence
+	 */
+	public int getDepTargetIdAtIndex(int index) {
+		return (index >= 0 && index < depTarget.length) ? depTarget[index] : NONE;
+	}
+
+	/**
+	 * Get the id of the root of the semantic frame of a sentence token at a given index, without boxing.
+	 * 
+	 * @param index
+	 * @return -1 if the token is not part of a semantic frame or the index is out of the sentence
+	 */
+	public int getSRLrootIdAtIndex(int index) {
+		return (index >= 0 && index < SRLrootID.length) ? SRLrootID[index] : NONE;
+	}
+
+	/**
+	 * Check if the character offsets of the tokens in the sentence text are known.
+	 * 
+	 * @return
+	 */
+	public boolean hasTokenOffsets() {
+		return tokenStart != null;
+	}
+
+	/**
+	 * Get the offset of the first character of a sentence token at a given index in the sentence text (see {@link #getSentenceText() getSentenceText}).
+	 * 
+	 * @param index
+	 * @return -1 if the offsets of the tokens are not known or the index is out of the sentence
+	 */
+	public int getTokenStartAtIndex(int index) {
+		return (tokenStart != null && index >= 0 && index < tokenStart.length) ? tokenStart[index] : NONE;
+	}
+
+	/**
+	 * Get the offset after the last character of a sentence token at a given index in the sentence text (see {@link #getSentenceText() getSentenceText}).
+	 * 
+	 * @param index
+	 * @return -1 if the offsets of the tokens are not known or the index is out of the sentence
+	 */
+	public int getTokenEndAtIndex(int index) {
+		return (tokenEnd != null && index >= 0 && index < tokenEnd.length) ? tokenEnd[index] : NONE;
+	}
+
+	/**
+	 * Set the character offsets of the tokens in the sentence text. A token not present in the text (as the full stop added at the end
+	 * of a sentence) has an empty span.
+	 * 
+	 * @param tokenStart the offset of the first character of each token, null to remove the offsets
+	 * @param tokenEnd the offset after the last character of each token, null to remove the offsets
+	 * @return false if the number of offsets is not equal to the number of tokens or a span is not valid
+	 */
+	public boolean setTokenOffsets(int[] tokenStart, int[] tokenEnd) {
+		if(tokenStart == null || tokenEnd == null) {
+			this.tokenStart = null;
+			this.tokenEnd = null;
+			return true;
+		}
+		if(tokenStart.length != token.length || tokenEnd.length != token.length) {
+			return false;
+		}
+		for(int i = 0; i < token.length; i++) {
+			if(tokenStart[i] < 0 || tokenEnd[i] < tokenStart[i]) {
+				return false;
+			}
+		}
+		this.tokenStart = tokenStart.clone();
+		this.tokenEnd = tokenEnd.clone();
+		return true;
+	}
+
+	/**
+	 * Get the number of children of a dependency tree node / token.
+	 * 
+	 * @param index
+	 * @return
+	 */
+	public int getChildCount_depTree(int index) {
+		return getDepTreeIndex().getChildCount(index);
+	}
+
+	/**
+	 * Get the ids of the children of a dependency tree node / token, in order of position, without allocating memory.
+	 * 
+	 * @param index
+	 * @param childrenIds array filled with the ids of the children (up to its length)
+	 * @return the number of children (it can be greater than the length of the array)
+	 */
+	public int getChildrenIds_depTree(int index, int[] childrenIds) {
+		DependencyTreeIndex treeIndex = getDepTreeIndex();
+		int childCount = treeIndex.getChildCount(index);
+		for(int c = 0; c < childCount && c < childrenIds.length; c++) {
+			childrenIds[c] = treeIndex.getChild(index, c);
+		}
+		return childCount;
+	}
+
+	/**
+	 * Pass the ids of the children of a dependency tree node / token to a consumer, in order of position.
+	 * 
+	 * @param index
+	 * @param childConsumer
+	 */
+	public void forEachChild_depTree(int index, IntConsumer childConsumer) {
+		DependencyTreeIndex treeIndex = getDepTreeIndex();
+		int childCount = treeIndex.getChildCount(index);
+		for(int c = 0; c < childCount; c++) {
+			childConsumer.accept(treeIndex.getChild(index, c));
+		}
+	}
+
+	/**
+	 * Get the lowest common ancestor of two tokens in the dependency tree: the deepest token that is an ancestor of both.
+	 * 
+	 * @param index1
+	 * @param index2
+	 * @return -1 if the tokens are not connected in the dependency tree (e.g. in different chunks) or an index is out of the sentence
+	 */
+	public int getLowestCommonAncestor_depTree(int index1, int index2) {
+		return getDepTreeIndex().getLowestCommonAncestor(index1, index2);
+	}
+
+	/**
+	 * Get the shortest path between two tokens in the dependency tree, with the dependency functions of its edges.
+	 * 
+	 * @param sourceIndex
+	 * @param targetIndex
+	 * @return null if the tokens are not connected in the dependency tree or an index is out of the sentence
+	 */
+	public DependencyPath getPath_depTree(int sourceIndex, int targetIndex) {
+		DependencyTreeIndex treeIndex = getDepTreeIndex();
+		int lca = treeIndex.getLowestCommonAncestor(sourceIndex, targetIndex);
+		if(lca < 0) {
+			return null;
+		}
+
+		int upLength = treeIndex.getDepth(sourceIndex) - treeIndex.getDepth(lca);
+		int downLength = treeIndex.getDepth(targetIndex) - treeIndex.getDepth(lca);
+		int[] pathTokens = new int[upLength + downLength + 1];
+		int current = sourceIndex;
+		for(int p = 0; p <= upLength; p++) {
+			pathTokens[p] = current;
+			current = treeIndex.getParent(current);
+		}
+		current = targetIndex;
+		for(int p = pathTokens.length - 1; p > upLength; p--) {
+			pathTokens[p] = current;
+			current = treeIndex.getParent(current);
+		}
+		return new DependencyPath(this, pathTokens, upLength);
+	}
+
+	/**
+	 * Get the ids of the tokens of the subtree of a token (including the token), in order of position.
+	 * The first and last token of the subtree are given by getDepTreeIndex().getSubtreeStart(index) and getSubtreeEnd(index).
+	 * 
+	 * @param index
+	 * @return empty list if the index is out of the sentence
+	 */
+	public List<Integer> getSubtreeIds_depTree(int index) {
+		DependencyTreeIndex treeIndex = getDepTreeIndex();
+		List<Integer> retSubtreeList = new ArrayList<Integer>(treeIndex.getSubtreeSize(index));
+		if(index >= 0 && index < token.length) {
+			for(int i = treeIndex.getSubtreeStart(index); i <= treeIndex.getSubtreeEnd(index); i++) {
+				if(treeIndex.isAncestor(index, i)) {
+					retSubtreeList.add(i);
 				}
 			}
 		}
+		return retSubtreeList;
+	}
 
-		return retChildrenList;
+	/**
+	 * Find all the dependency paths of the sentence that match a pattern (see {@link DependencyPathPattern DependencyPathPattern}),
+	 * for instance: [pos=NN*] &lt;SBJ [lemma=eat] &gt;OBJ [pos=NN*]
+	 * 
+	 * @param pattern
+	 * @return
+	 * @throws IllegalArgumentException if the pattern is not valid
+	 */
+	public List<DependencyPath> findPaths_depTree(String pattern) {
+		return DependencyPathPattern.compile(pattern).findAll(this);
+	}
+
+	/**
+	 * Get the index of the dependency tree of the sentence: children, depth, roots, subtrees and ancestors of the tokens.
+	 * The index is built at the first invocation and kept until a dependency target is changed.
+	 * 
+	 * @return
+	 */
+	public DependencyTreeIndex getDepTreeIndex() {
+		DependencyTreeIndex treeIndex = depTreeIndex;
+		if(treeIndex == null) {
+			treeIndex = new DependencyTreeIndex(depTarget);
+			depTreeIndex = treeIndex;
+		}
+		return treeIndex;
 	}
 
 	/**
@@ -346,10 +863,10 @@ public class ParsedSentence {
 	 */
 	public String getChildParentDep_depTree(int childIndex, int parentIndex) {
 		String retDependency = null;
-		if(childIndex >= 0 && childIndex < this.getToken().size() && parentIndex >= 0 && parentIndex < this.getToken().size()) {
+		if(childIndex >= 0 && childIndex < token.length && parentIndex >= 0 && parentIndex < token.length) {
 			int parentId = this.getParentId_depTree(childIndex);
-			if(parentId != -1 && this.getDepFunct() != null) {
-				retDependency = this.getDepFunct().get(childIndex);
+			if(parentId != -1) {
+				retDependency = depFunctLabels.getLabel(depFunct[childIndex]);
 			}
 		}
 		return retDependency;
@@ -360,12 +877,99 @@ public class ParsedSentence {
 		return "ParsedSentence [sentenceText=" + sentenceText + "\n"
 				+ " token    =" + Arrays.toString(token) + "\n"
 				+ " lemma    =" + Arrays.toString(lemma) + "\n"
-				+ " pos      =" + Arrays.toString(pos) + "\n"
-				+ " depFunct =" + Arrays.toString(depFunct) + "\n"
-				+ " depTarget=" + Arrays.toString(depTarget) + "\n"
-				+ " SRLtag   =" + Arrays.toString(SRLtag) + "\n"
-				+ " SRLrootID=" + Arrays.toString(SRLrootID) + "\n"
+				+ " pos      =" + Arrays.toString(decode(pos, posLabels)) + "\n"
+				+ " depFunct =" + Arrays.toString(decode(depFunct, depFunctLabels)) + "\n"
+				+ " depTarget=" + Arrays.toString(decode(depTarget)) + "\n"
+				+ " SRLtag   =" + Arrays.toString(decode(SRLtag, SRLtagLabels)) + "\n"
+				+ " SRLrootID=" + Arrays.toString(decode(SRLrootID)) + "\n"
 				+ " SRLsense =" + Arrays.toString(SRLsense) + "]";
 	}
 
+	/**
+	 * Read-only view of an array of strings.
+	 *
+	 */
+	private static final class StringView extends AbstractList<String> implements RandomAccess {
+
+		private final String[] values;
+
+		StringView(String[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public String get(int index) {
+			return values[index];
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+	}
+
+	/**
+	 * Read-only view of an array of label codes.
+	 *
+	 */
+	private static final class LabelView extends AbstractList<String> implements RandomAccess {
+
+		private final short[] codes;
+		private final LabelTable labels;
+
+		LabelView(short[] codes, LabelTable labels) {
+			this.codes = codes;
+			this.labels = labels;
+		}
+
+		@Override
+		public String get(int index) {
+			return labels.getLabel(codes[index]);
+		}
+
+		@Override
+		public int size() {
+			return codes.length;
+		}
+	}
+
+	/**
+	 * Read-only view of an array of token ids (null for the missing ids).
+	 *
+	 */
+	private static final class IdView extends AbstractList<Integer> implements RandomAccess {
+
+		private final int[] ids;
+
+		IdView(int[] ids) {
+			this.ids = ids;
+		}
+
+		@Override
+		public Integer get(int index) {
+			return (ids[index] != NONE) ? Integer.valueOf(ids[index]) : null;
+		}
+
+		@Override
+		public int size() {
+			return ids.length;
+		}
+	}
+
+	private static String[] decode(short[] codes, LabelTable labels) {
+		String[] retLabels = new String[codes.length];
+		for(int i = 0; i < codes.length; i++) {
+			retLabels[i] = labels.getLabel(codes[i]);
+		}
+		return retLabels;
+	}
+
+	private static Integer[] decode(int[] ids) {
+		Integer[] retIds = new Integer[ids.length];
+		for(int i = 0; i < ids.length; i++) {
+			retIds[i] = (ids[i] != NONE) ? Integer.valueOf(ids[i]) : null;
+		}
+		return retIds;
+	}
+
 }
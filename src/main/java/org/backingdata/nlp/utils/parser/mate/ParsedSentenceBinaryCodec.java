@@ -0,0 +1,435 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of parsed sentences, shared by {@link ParsedSentenceBinaryWriter ParsedSentenceBinaryWriter},
+ * {@link ParsedSentenceBinaryReader ParsedSentenceBinaryReader} and {@link ParsedSentenceBinaryFile ParsedSentenceBinaryFile}.<br/>
+ *
+ * File layout:<br/>
+ * - header: the bytes 'P' 'S' 'B' 'N' and the format version (1 byte);<br/>
+ * - one record for each sentence: the length of the record (varint) followed by the encoded sentence;<br/>
+ * - end of the records: a record length equal to 0;<br/>
+ * - footer: the dictionary (number of entries and entries) and the offset of each record (number of records and
+ * delta encoded offsets), all varints;<br/>
+ * - trailer: the offset of the footer (8 bytes) and the bytes 'P' 'S' 'B' 'F'.<br/>
+ *
+ * The text of the sentence, the tokens and the lemmas are written in the record: length of the UTF-8 bytes + 1 (0 for null)
+ * followed by the bytes. The labels (POS, dependency functions, SRL tags, senses and roles) are encoded by a dictionary shared by all
+ * the records of a file: the first occurrence of a label is written in the record (code 2 followed by the label) and the following ones
+ * by their dictionary entry (code entry + 3); the code 0 stands for null. The dictionary is limited to {@value #MAX_ENTRIES} labels:
+ * the labels that do not fit are always written in the record (code 1 followed by the label). Thus the dictionary kept by writers
+ * and readers and written in the footer is bounded by the label vocabulary, not by the size of the file.
+ * The ids of the tokens are written as varints (id + 1, 0 for none).<br/>
+ *
+ * Since version 2 each record ends with the character offsets of the tokens (1 followed by the distance of the start of each token
+ * from the end of the previous one and the length of the token, 0 if the offsets are not known).<br/>
+ *
+ * In versions 1 and 2 all the strings (text, tokens and lemmas included) are dictionary encoded, without limit: the first occurrence
+ * of a string is written with code 1 and the dictionary entries have code entry + 2.
+ *
+ */
+final class ParsedSentenceBinaryCodec {
+
+	static final byte[] MAGIC = new byte[] {'P', 'S', 'B', 'N'};
+	static final byte[] FOOTER_MAGIC = new byte[] {'P', 'S', 'B', 'F'};
+	static final int VERSION = 3;
+
+	// Oldest version that can be read (version 1: no character offsets of the tokens)
+	static final int MIN_VERSION = 1;
+
+	static final int TRAILER_LENGTH = 12;
+
+	// Maximum number of labels of the dictionary of a file
+	static final int MAX_ENTRIES = 1 << 16;
+
+	private static final int NULL_STRING = 0;
+	private static final int INLINE_STRING = 1;
+	private static final int NEW_ENTRY = 2;
+	private static final int FIRST_ENTRY = 3;
+
+	// Codes of the versions 1 and 2
+	private static final int V2_NEW_ENTRY = 1;
+	private static final int V2_FIRST_ENTRY = 2;
+
+	private ParsedSentenceBinaryCodec() {
+
+	}
+
+	/**
+	 * Encoder of the records of a file: it keeps the dictionary of the labels of the file.
+	 *
+	 */
+	static final class Encoder {
+
+		private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+		private final List<String> entries = new ArrayList<String>();
+
+		private byte[] buffer = new byte[1024];
+		private int length = 0;
+
+		/**
+		 * Encode a sentence (null for the sentences not parsed).
+		 *
+		 * @return the length of the record, stored in the buffer of the encoder (see getBuffer)
+		 */
+		int encode(ParsedSentence sentence) {
+			length = 0;
+			if(sentence == null) {
+				writeVarint(0);
+				return length;
+			}
+
+			int tokenNumber = sentence.getTokenCount();
+			writeVarint(sentence.getParseLevel().ordinal() + 1);
+			writeVarint(tokenNumber);
+			writeText(sentence.getSentenceText());
+			for(int i = 0; i < tokenNumber; i++) {
+				writeText(sentence.getTokenAtIndex(i));
+				writeText(sentence.getLemmaAtIndex(i));
+				writeLabel(sentence.getPOSatIndex(i));
+				writeLabel(sentence.getDepFunctAtIndex(i));
+				writeVarint(sentence.getDepTargetIdAtIndex(i) + 1);
+				writeLabel(sentence.getSRLtagatIndex(i));
+				writeVarint(sentence.getSRLrootIdAtIndex(i) + 1);
+				writeLabel(sentence.getSRLsenseatIndex(i));
+			}
+
+			writeVarint(sentence.getSRLframeCount());
+			for(int f = 0; f < sentence.getSRLframeCount(); f++) {
+				SRLFrame frame = sentence.getSRLframe(f);
+				writeVarint(frame.getPredicate());
+				writeLabel(frame.getSense());
+				writeVarint(frame.getArgumentCount());
+				for(int a = 0; a < frame.getArgumentCount(); a++) {
+					writeVarint(frame.getArgument(a));
+					writeLabel(frame.getRole(a));
+				}
+			}
+
+			if(sentence.hasTokenOffsets()) {
+				writeVarint(1);
+				int previousEnd = 0;
+				for(int i = 0; i < tokenNumber; i++) {
+					writeVarint(sentence.getTokenStartAtIndex(i) - previousEnd);
+					writeVarint(sentence.getTokenEndAtIndex(i) - sentence.getTokenStartAtIndex(i));
+					previousEnd = sentence.getTokenEndAtIndex(i);
+				}
+			}
+			else {
+				writeVarint(0);
+			}
+			return length;
+		}
+
+		byte[] getBuffer() {
+			return buffer;
+		}
+
+		List<String> getEntries() {
+			return entries;
+		}
+
+		private void writeText(String value) {
+			if(value == null) {
+				writeVarint(0);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length + 1);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, buffer, length, bytes.length);
+			length += bytes.length;
+		}
+
+		private void writeLabel(String value) {
+			if(value == null) {
+				writeVarint(NULL_STRING);
+				return;
+			}
+			Integer entry = dictionary.get(value);
+			if(entry != null) {
+				writeVarint(entry + FIRST_ENTRY);
+				return;
+			}
+			if(entries.size() < MAX_ENTRIES) {
+				dictionary.put(value, entries.size());
+				entries.add(value);
+				writeVarint(NEW_ENTRY);
+			}
+			else {
+				writeVarint(INLINE_STRING);
+			}
+			writeBytes(value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		private void writeBytes(byte[] bytes) {
+			writeVarint(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, buffer, length, bytes.length);
+			length += bytes.length;
+		}
+
+		private void writeVarint(int value) {
+			ensureCapacity(5);
+			length = ParsedSentenceBinaryCodec.writeVarint(value, buffer, length);
+		}
+
+		private void ensureCapacity(int bytes) {
+			if(length + bytes > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + bytes));
+			}
+		}
+	}
+
+	/**
+	 * Decoder of the records of a file: it keeps the dictionary of the labels of the file, built record by record (streaming)
+	 * or read from the footer (random access).
+	 *
+	 */
+	static final class Decoder {
+
+		private final List<String> entries;
+		private final boolean addEntries;
+		private final int version;
+
+		/**
+		 * Create a decoder.
+		 *
+		 * @param entries the dictionary of the file (empty if the records are decoded in order)
+		 * @param addEntries true to add to the dictionary the strings defined in the records (records decoded in order)
+		 * @param version the format version of the file
+		 */
+		Decoder(List<String> entries, boolean addEntries, int version) {
+			this.entries = entries;
+			this.addEntries = addEntries;
+			this.version = version;
+		}
+
+		/**
+		 * Decode a record.
+		 *
+		 * @param record the bytes of the record, from the current position
+		 * @return the sentence, null for the sentences not parsed
+		 * @throws IOException if the record is not valid
+		 */
+		ParsedSentence decode(ByteBuffer record) throws IOException {
+			try {
+				int level = readVarint(record);
+				if(level == 0) {
+					return null;
+				}
+				if(level > ParseLevel.values().length) {
+					throw new IOException("Wrong parse level " + level);
+				}
+
+				int tokenNumber = readVarint(record);
+				ParsedSentence retSentence = new ParsedSentence(tokenNumber);
+				String sentenceText = readText(record);
+				retSentence.setSentenceText((sentenceText != null) ? sentenceText : "");
+				for(int i = 0; i < tokenNumber; i++) {
+					retSentence.setToken(i, readText(record));
+					retSentence.setLemma(i, readText(record));
+					retSentence.setPos(i, readLabel(record));
+					retSentence.setDepFunct(i, readLabel(record));
+					retSentence.setDepTarget(i, readVarint(record) - 1);
+					retSentence.setSRLtag(i, readLabel(record));
+					retSentence.setSRLrootID(i, readVarint(record) - 1);
+					retSentence.setSRLsense(i, readLabel(record));
+				}
+
+				int frameCount = readVarint(record);
+				for(int f = 0; f < frameCount; f++) {
+					int predicate = readVarint(record);
+					String sense = readLabel(record);
+					int argumentCount = readVarint(record);
+					int[] argumentIndexes = new int[argumentCount];
+					String[] roles = new String[argumentCount];
+					for(int a = 0; a < argumentCount; a++) {
+						argumentIndexes[a] = readVarint(record);
+						roles[a] = readLabel(record);
+					}
+					if(!retSentence.addSRLframe(predicate, sense, argumentIndexes, roles, false)) {
+						throw new IOException("Wrong semantic frame " + f);
+					}
+				}
+
+				if(version >= 2 && readVarint(record) == 1) {
+					int[] tokenStart = new int[tokenNumber];
+					int[] tokenEnd = new int[tokenNumber];
+					int previousEnd = 0;
+					for(int i = 0; i < tokenNumber; i++) {
+						tokenStart[i] = previousEnd + readVarint(record);
+						tokenEnd[i] = tokenStart[i] + readVarint(record);
+						previousEnd = tokenEnd[i];
+					}
+					if(!retSentence.setTokenOffsets(tokenStart, tokenEnd)) {
+						throw new IOException("Wrong character offsets of the tokens");
+					}
+				}
+
+				retSentence.setParseLevel(ParseLevel.values()[level - 1]);
+				return retSentence;
+			} catch (RuntimeException e) {
+				// Buffer underflow, negative array size, etc.
+				throw new IOException("Wrong binary record of a parsed sentence: " + e.getMessage(), e);
+			}
+		}
+
+		private String readText(ByteBuffer record) throws IOException {
+			if(version < 3) {
+				return readLabel(record);
+			}
+			int length = readVarint(record);
+			return (length == 0) ? null : ParsedSentenceBinaryCodec.readString(record, length - 1);
+		}
+
+		private String readLabel(ByteBuffer record) throws IOException {
+			int code = readVarint(record);
+			if(code == NULL_STRING) {
+				return null;
+			}
+			int newEntryCode = (version < 3) ? V2_NEW_ENTRY : NEW_ENTRY;
+			int firstEntryCode = (version < 3) ? V2_FIRST_ENTRY : FIRST_ENTRY;
+			if(code == newEntryCode) {
+				String value = ParsedSentenceBinaryCodec.readString(record);
+				if(addEntries) {
+					entries.add(value);
+				}
+				return value;
+			}
+			if(code < firstEntryCode) {
+				// Label out of the dictionary
+				return ParsedSentenceBinaryCodec.readString(record);
+			}
+			if(code - firstEntryCode >= entries.size()) {
+				throw new IOException("Wrong dictionary entry " + (code - firstEntryCode) + " (" + entries.size() + " entries)");
+			}
+			return entries.get(code - firstEntryCode);
+		}
+	}
+
+	static int writeVarint(int value, byte[] buffer, int position) {
+		while((value & ~0x7F) != 0) {
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+		return position;
+	}
+
+	static int readVarint(ByteBuffer buffer) throws IOException {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Wrong varint");
+	}
+
+	static long readVarlong(ByteBuffer buffer) throws IOException {
+		long value = 0l;
+		for(int shift = 0; shift < 70; shift += 7) {
+			byte b = buffer.get();
+			value |= ((long) (b & 0x7F)) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Wrong varint");
+	}
+
+	static int writeVarlong(long value, byte[] buffer, int position) {
+		while((value & ~0x7Fl) != 0l) {
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+		return position;
+	}
+
+	static String readString(ByteBuffer buffer) throws IOException {
+		return readString(buffer, readVarint(buffer));
+	}
+
+	/**
+	 * Read a UTF-8 string of a given number of bytes.
+	 *
+	 */
+	static String readString(ByteBuffer buffer, int length) throws IOException {
+		if(length < 0 || length > buffer.remaining()) {
+			throw new IOException("Wrong string length " + length);
+		}
+		String retString = null;
+		if(buffer.hasArray()) {
+			retString = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+		}
+		else {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			retString = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return retString;
+	}
+
+	static int readVarint(InputStream input) throws IOException {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			int b = input.read();
+			if(b < 0) {
+				throw new EOFException();
+			}
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Wrong varint");
+	}
+
+	static long readVarlong(InputStream input) throws IOException {
+		long value = 0l;
+		for(int shift = 0; shift < 70; shift += 7) {
+			int b = input.read();
+			if(b < 0) {
+				throw new EOFException();
+			}
+			value |= ((long) (b & 0x7F)) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Wrong varint");
+	}
+
+	static String readString(InputStream input, int maxLength) throws IOException {
+		int length = readVarint(input);
+		if(length < 0 || length > maxLength) {
+			throw new IOException("Wrong string length " + length);
+		}
+		byte[] bytes = new byte[length];
+		int read = 0;
+		while(read < length) {
+			int count = input.read(bytes, read, length - read);
+			if(count < 0) {
+				throw new EOFException();
+			}
+			read += count;
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
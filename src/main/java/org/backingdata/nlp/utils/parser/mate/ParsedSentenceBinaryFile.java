@@ -0,0 +1,179 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Random access, by position, to the parsed sentences of a binary file (see {@link ParsedSentenceBinaryWriter ParsedSentenceBinaryWriter}).<br/>
+ *
+ * The file is memory mapped: only the dictionary of the labels and the index of the sentences are loaded in memory when the file
+ * is opened, each sentence is decoded when requested. The sentences can be read by several threads concurrently.
+ * The file has to be closed by the writer (files without index can be read by {@link ParsedSentenceBinaryReader ParsedSentenceBinaryReader}).
+ *
+ */
+public class ParsedSentenceBinaryFile implements Closeable {
+
+	// Size of the mapped segments of the file, each mapped with an overlap with the next one
+	private static final long SEGMENT_SIZE = 1l << 30;
+	private static final long SEGMENT_OVERLAP = 1l << 24;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer[] segments;
+
+	private final long[] recordOffsets;
+
+	private final long recordsEnd;
+
+	private final ParsedSentenceBinaryCodec.Decoder decoder;
+
+	/**
+	 * Open a binary file of parsed sentences.
+	 *
+	 * @param path
+	 * @throws IOException if the file is not a complete binary file of parsed sentences
+	 */
+	public ParsedSentenceBinaryFile(Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			int headerLength = ParsedSentenceBinaryCodec.MAGIC.length + 1;
+			if(size < headerLength + ParsedSentenceBinaryCodec.TRAILER_LENGTH) {
+				throw new IOException("Not a complete binary file of parsed sentences: " + path);
+			}
+
+			ByteBuffer header = read(0l, headerLength);
+			byte[] magic = new byte[ParsedSentenceBinaryCodec.MAGIC.length];
+			header.get(magic);
+			int version = header.get();
+			if(!Arrays.equals(magic, ParsedSentenceBinaryCodec.MAGIC) || version < ParsedSentenceBinaryCodec.MIN_VERSION || version > ParsedSentenceBinaryCodec.VERSION) {
+				throw new IOException("Not a binary file of parsed sentences (or unsupported version): " + path);
+			}
+
+			ByteBuffer trailer = read(size - ParsedSentenceBinaryCodec.TRAILER_LENGTH, ParsedSentenceBinaryCodec.TRAILER_LENGTH);
+			long footerOffset = trailer.getLong();
+			byte[] footerMagic = new byte[ParsedSentenceBinaryCodec.FOOTER_MAGIC.length];
+			trailer.get(footerMagic);
+			if(!Arrays.equals(footerMagic, ParsedSentenceBinaryCodec.FOOTER_MAGIC) || footerOffset < headerLength
+					|| footerOffset > size - ParsedSentenceBinaryCodec.TRAILER_LENGTH) {
+				throw new IOException("Binary file of parsed sentences without index (not closed by the writer): " + path);
+			}
+
+			// Dictionary and index, read as a stream (the footer can be larger than a mapped buffer)
+			long footerLength = size - ParsedSentenceBinaryCodec.TRAILER_LENGTH - footerOffset;
+			InputStream footer = new BufferedInputStream(Channels.newInputStream(channel.position(footerOffset)), 65536);
+			int entryCount = ParsedSentenceBinaryCodec.readVarint(footer);
+			if(entryCount < 0 || entryCount > footerLength) {
+				throw new IOException("Wrong number of dictionary entries " + entryCount + ": " + path);
+			}
+			List<String> entries = new ArrayList<String>(entryCount);
+			for(int e = 0; e < entryCount; e++) {
+				entries.add(ParsedSentenceBinaryCodec.readString(footer, (int) Math.min(Integer.MAX_VALUE, footerLength)));
+			}
+			int sentenceCount = ParsedSentenceBinaryCodec.readVarint(footer);
+			if(sentenceCount < 0 || sentenceCount > footerLength) {
+				throw new IOException("Wrong number of sentences " + sentenceCount + ": " + path);
+			}
+			this.recordOffsets = new long[sentenceCount];
+			long offset = 0l;
+			for(int s = 0; s < sentenceCount; s++) {
+				offset += ParsedSentenceBinaryCodec.readVarlong(footer);
+				recordOffsets[s] = offset;
+			}
+			this.decoder = new ParsedSentenceBinaryCodec.Decoder(Collections.unmodifiableList(entries), false, version);
+
+			// Records (the end of records marker precedes the footer)
+			this.recordsEnd = footerOffset - 1;
+			int segmentCount = (int) ((recordsEnd + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+			this.segments = new MappedByteBuffer[segmentCount];
+			for(int s = 0; s < segmentCount; s++) {
+				long segmentStart = s * SEGMENT_SIZE;
+				long segmentEnd = Math.min(recordsEnd, segmentStart + SEGMENT_SIZE + SEGMENT_OVERLAP);
+				segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentEnd - segmentStart);
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		} catch (RuntimeException e) {
+			channel.close();
+			throw new IOException("Wrong binary file of parsed sentences: " + path + " (" + e.getMessage() + ")", e);
+		}
+	}
+
+	/**
+	 * Number of sentences of the file.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return recordOffsets.length;
+	}
+
+	/**
+	 * Get a sentence by position.
+	 *
+	 * @param sentenceId the position of the sentence in the file, from 0 to size() - 1
+	 * @return the sentence, null for the sentences not parsed
+	 * @throws IOException if the record of the sentence cannot be read or decoded
+	 */
+	public ParsedSentence get(int sentenceId) throws IOException {
+		if(sentenceId < 0 || sentenceId >= recordOffsets.length) {
+			throw new IndexOutOfBoundsException("Sentence " + sentenceId + " of a file with " + recordOffsets.length + " sentences");
+		}
+
+		long offset = recordOffsets[sentenceId];
+		int segment = (int) (offset / SEGMENT_SIZE);
+		ByteBuffer record = segments[segment].duplicate();
+		record.position((int) (offset - segment * SEGMENT_SIZE));
+		try {
+			int recordLength = ParsedSentenceBinaryCodec.readVarint(record);
+			if(recordLength <= record.remaining()) {
+				record.limit(record.position() + recordLength);
+			}
+			else {
+				// Record across the end of the mapped segment
+				long recordStart = segment * SEGMENT_SIZE + record.position();
+				if(recordStart + recordLength > recordsEnd) {
+					throw new IOException("Wrong length of the sentence " + sentenceId);
+				}
+				record = read(recordStart, recordLength);
+			}
+			return decoder.decode(record);
+		} catch (RuntimeException e) {
+			throw new IOException("Wrong record of the sentence " + sentenceId, e);
+		}
+	}
+
+	/**
+	 * Close the file. The mapped memory is released when the instance is garbage collected.
+	 *
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+}
@@ -0,0 +1,191 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads, in order, the parsed sentences of a binary file (see {@link ParsedSentenceBinaryWriter ParsedSentenceBinaryWriter}).<br/>
+ *
+ * The sentences are read one at a time and only the bounded dictionary of the labels is kept in memory, thus files of any size
+ * can be read. Files not closed by the writer
+ * (without index) are read up to the last complete sentence. To read sentences by position, use {@link ParsedSentenceBinaryFile ParsedSentenceBinaryFile}.
+ *
+ */
+public class ParsedSentenceBinaryReader implements Iterator<ParsedSentence>, Closeable {
+
+	private final InputStream input;
+
+	private final ParsedSentenceBinaryCodec.Decoder decoder;
+
+	private byte[] recordBuffer = new byte[1024];
+
+	private boolean nextRead = false;
+	private boolean endReached = false;
+	private ParsedSentence nextSentence = null;
+
+	/**
+	 * Create a reader of a file.
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public ParsedSentenceBinaryReader(Path path) throws IOException {
+		this(Files.newInputStream(path));
+	}
+
+	/**
+	 * Create a reader of a byte stream. The stream is closed when the reader is closed.
+	 *
+	 * @param input
+	 * @throws IOException if the stream is not a binary file of parsed sentences
+	 */
+	public ParsedSentenceBinaryReader(InputStream input) throws IOException {
+		this.input = (input instanceof BufferedInputStream) ? input : new BufferedInputStream(input, 65536);
+		byte[] magic = new byte[ParsedSentenceBinaryCodec.MAGIC.length];
+		readFully(magic, magic.length);
+		if(!Arrays.equals(magic, ParsedSentenceBinaryCodec.MAGIC)) {
+			throw new IOException("Not a binary file of parsed sentences");
+		}
+		int version = readVarint(false);
+		if(version < ParsedSentenceBinaryCodec.MIN_VERSION || version > ParsedSentenceBinaryCodec.VERSION) {
+			throw new IOException("Unsupported version " + version + " of the binary file of parsed sentences");
+		}
+		this.decoder = new ParsedSentenceBinaryCodec.Decoder(new ArrayList<String>(), true, version);
+	}
+
+	/**
+	 * Read all the sentences of a file as a lazy stream: the file is closed when the stream is closed.
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static Stream<ParsedSentence> stream(Path path) throws IOException {
+		final ParsedSentenceBinaryReader binaryReader = new ParsedSentenceBinaryReader(path);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(binaryReader, Spliterator.ORDERED), false).onClose(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					binaryReader.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Check if there is another sentence to read.
+	 *
+	 * @throws UncheckedIOException in case of reading error
+	 */
+	@Override
+	public boolean hasNext() {
+		if(!nextRead && !endReached) {
+			try {
+				readRecord();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return nextRead;
+	}
+
+	/**
+	 * Read the next sentence.
+	 *
+	 * @return the sentence, null for the sentences not parsed
+	 * @throws UncheckedIOException in case of reading error
+	 */
+	@Override
+	public ParsedSentence next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		nextRead = false;
+		ParsedSentence retSentence = nextSentence;
+		nextSentence = null;
+		return retSentence;
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+	private void readRecord() throws IOException {
+		int recordLength = readVarint(true);
+		if(recordLength <= 0) {
+			// End of the records or of the stream
+			endReached = true;
+			return;
+		}
+
+		if(recordLength > recordBuffer.length) {
+			recordBuffer = new byte[Math.max(recordLength, recordBuffer.length * 2)];
+		}
+		try {
+			readFully(recordBuffer, recordLength);
+		} catch (EOFException e) {
+			// Last record not completely written
+			endReached = true;
+			return;
+		}
+		try {
+			nextSentence = decoder.decode(ByteBuffer.wrap(recordBuffer, 0, recordLength));
+		} catch (RuntimeException e) {
+			throw new IOException("Wrong record of a parsed sentence (" + recordLength + " bytes)", e);
+		}
+		nextRead = true;
+	}
+
+	/**
+	 * Read a varint.
+	 *
+	 * @param endAllowed true to return -1 at the end of the stream
+	 */
+	private int readVarint(boolean endAllowed) throws IOException {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			int b = input.read();
+			if(b < 0) {
+				if(endAllowed) {
+					return -1;
+				}
+				throw new EOFException();
+			}
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Wrong varint");
+	}
+
+	private void readFully(byte[] buffer, int length) throws IOException {
+		int read = 0;
+		while(read < length) {
+			int count = input.read(buffer, read, length - read);
+			if(count < 0) {
+				throw new EOFException();
+			}
+			read += count;
+		}
+	}
+
+}
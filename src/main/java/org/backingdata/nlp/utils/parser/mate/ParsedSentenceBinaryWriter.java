@@ -0,0 +1,154 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes parsed sentences in a compact binary format, one sentence at a time.<br/>
+ *
+ * Labels (POS, dependency functions, SRL roles and senses) are dictionary encoded, tokens and lemmas are written as UTF-8 strings
+ * and token ids as variable length integers, thus files are several times smaller than CoNLL-2009 files
+ * (see {@link ParsedSentenceCoNLLWriter ParsedSentenceCoNLLWriter}) and are read without parsing text. The dictionary is bounded
+ * (see {@link ParsedSentenceBinaryCodec ParsedSentenceBinaryCodec}), thus the memory of the writer does not grow with the sentences
+ * written, except for the offset of each sentence (8 bytes). All the analyses of the sentences are stored, semantic frames and character offsets of the tokens included.<br/>
+ *
+ * The sentences can be read in order by means of {@link ParsedSentenceBinaryReader ParsedSentenceBinaryReader} or by position
+ * (memory mapped file) by means of {@link ParsedSentenceBinaryFile ParsedSentenceBinaryFile}. The index of the positions is written
+ * when the writer is closed.
+ *
+ */
+public class ParsedSentenceBinaryWriter implements Closeable, Flushable {
+
+	private final OutputStream output;
+
+	private final ParsedSentenceBinaryCodec.Encoder encoder = new ParsedSentenceBinaryCodec.Encoder();
+
+	private final byte[] varintBuffer = new byte[10];
+
+	// Offset of each record
+	private long[] recordOffsets = new long[64];
+	private int sentenceCount = 0;
+
+	private long position = 0l;
+
+	private boolean closed = false;
+
+	/**
+	 * Create a writer to a file, replacing the existing content.
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public ParsedSentenceBinaryWriter(Path path) throws IOException {
+		this(Files.newOutputStream(path));
+	}
+
+	/**
+	 * Create a writer to a byte stream. The stream is closed when the writer is closed.
+	 *
+	 * @param output
+	 * @throws IOException
+	 */
+	public ParsedSentenceBinaryWriter(OutputStream output) throws IOException {
+		this.output = (output instanceof BufferedOutputStream) ? output : new BufferedOutputStream(output, 65536);
+		write(ParsedSentenceBinaryCodec.MAGIC, ParsedSentenceBinaryCodec.MAGIC.length);
+		writeVarint(ParsedSentenceBinaryCodec.VERSION);
+	}
+
+	/**
+	 * Write a sentence. Null sentences (not parsed) are written too, so that the position of each sentence in the file is preserved.
+	 *
+	 * @param sentence
+	 * @throws IOException
+	 */
+	public void write(ParsedSentence sentence) throws IOException {
+		if(closed) {
+			throw new IOException("Writer closed");
+		}
+
+		if(sentenceCount == recordOffsets.length) {
+			recordOffsets = Arrays.copyOf(recordOffsets, recordOffsets.length * 2);
+		}
+		recordOffsets[sentenceCount++] = position;
+
+		int recordLength = encoder.encode(sentence);
+		writeVarint(recordLength);
+		write(encoder.getBuffer(), recordLength);
+	}
+
+	/**
+	 * Number of sentences written so far.
+	 *
+	 * @return
+	 */
+	public int getSentenceCount() {
+		return sentenceCount;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		output.flush();
+	}
+
+	/**
+	 * Write the dictionary of the labels and the index of the records and close the file.
+	 *
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		closed = true;
+
+		try {
+			// End of the records
+			writeVarint(0);
+
+			long footerOffset = position;
+			List<String> entries = encoder.getEntries();
+			writeVarint(entries.size());
+			for(String entry : entries) {
+				byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+				writeVarint(bytes.length);
+				write(bytes, bytes.length);
+			}
+			writeVarint(sentenceCount);
+			long previousOffset = 0l;
+			for(int s = 0; s < sentenceCount; s++) {
+				int varintLength = ParsedSentenceBinaryCodec.writeVarlong(recordOffsets[s] - previousOffset, varintBuffer, 0);
+				write(varintBuffer, varintLength);
+				previousOffset = recordOffsets[s];
+			}
+
+			byte[] trailer = new byte[ParsedSentenceBinaryCodec.TRAILER_LENGTH];
+			for(int b = 0; b < 8; b++) {
+				trailer[b] = (byte) (footerOffset >>> (56 - 8 * b));
+			}
+			System.arraycopy(ParsedSentenceBinaryCodec.FOOTER_MAGIC, 0, trailer, 8, 4);
+			write(trailer, trailer.length);
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	private void writeVarint(int value) throws IOException {
+		int varintLength = ParsedSentenceBinaryCodec.writeVarint(value, varintBuffer, 0);
+		write(varintBuffer, varintLength);
+	}
+
+	private void write(byte[] bytes, int length) throws IOException {
+		output.write(bytes, 0, length);
+		position += length;
+	}
+
+}
@@ -0,0 +1,282 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads parsed sentences in the CoNLL-2009 format, one sentence at a time (see {@link ParsedSentenceCoNLLWriter ParsedSentenceCoNLLWriter}).<br/>
+ *
+ * The predicted columns (PLEMMA, PPOS, PHEAD, PDEPREL) are read, falling back to the gold ones when empty. Each predicate
+ * (FILLPRED column equal to Y) and its arguments (APRED column of the predicate) are read as a semantic frame of the sentence
+ * (see {@link ParsedSentence#getSRLframes() getSRLframes}).<br/>
+ *
+ * The parse level of each sentence is inferred from the columns: SRL if the sentence has predicates, DEPENDENCY if the tokens have heads,
+ * POS or LEMMA if the tokens have POS or lemmas. If the sentence is preceded by a parse level comment line ('# parse_level = SRL',
+ * see {@link ParsedSentenceCoNLLWriter#setParseLevelComments(boolean) setParseLevelComments}), the parse level is read from that line;
+ * other comment lines are skipped. Empty sentences (written for sentences not parsed) are read as null.
+ *
+ */
+public class ParsedSentenceCoNLLReader implements Iterator<ParsedSentence>, Closeable {
+
+	private static final String EMPTY = "_";
+
+	// Column indexes
+	private static final int FORM = 1;
+	private static final int LEMMA = 2;
+	private static final int PLEMMA = 3;
+	private static final int POS = 4;
+	private static final int PPOS = 5;
+	private static final int HEAD = 8;
+	private static final int PHEAD = 9;
+	private static final int DEPREL = 10;
+	private static final int PDEPREL = 11;
+	private static final int FILLPRED = 12;
+	private static final int PRED = 13;
+	private static final int FIRST_APRED = 14;
+
+	private final BufferedReader reader;
+
+	private boolean nextRead = false;
+	private boolean endReached = false;
+	private ParsedSentence nextSentence = null;
+
+	private long lineNumber = 0l;
+
+	/**
+	 * Create a reader of a file (UTF-8).
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public ParsedSentenceCoNLLReader(Path path) throws IOException {
+		this.reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Create a reader of a character stream.
+	 *
+	 * @param reader
+	 */
+	public ParsedSentenceCoNLLReader(Reader reader) {
+		this.reader = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+	}
+
+	/**
+	 * Read all the sentences of a file as a lazy stream: the file is closed when the stream is closed.
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static Stream<ParsedSentence> stream(Path path) throws IOException {
+		final ParsedSentenceCoNLLReader conllReader = new ParsedSentenceCoNLLReader(path);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(conllReader, Spliterator.ORDERED), false).onClose(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					conllReader.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Check if there is another sentence to read.
+	 *
+	 * @throws UncheckedIOException in case of reading error
+	 */
+	@Override
+	public boolean hasNext() {
+		if(!nextRead && !endReached) {
+			try {
+				nextSentence = readSentence();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return nextRead;
+	}
+
+	/**
+	 * Read the next sentence.
+	 *
+	 * @return the sentence, null for the empty sentences
+	 * @throws UncheckedIOException in case of reading error
+	 */
+	@Override
+	public ParsedSentence next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		nextRead = false;
+		ParsedSentence retSentence = nextSentence;
+		nextSentence = null;
+		return retSentence;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private ParsedSentence readSentence() throws IOException {
+		List<String[]> tokenLines = new ArrayList<String[]>();
+		ParseLevel level = null;
+		long firstLineNumber = 0l;
+		String line = null;
+		while((line = reader.readLine()) != null) {
+			lineNumber++;
+			if(line.trim().length() == 0) {
+				nextRead = true;
+				return toSentence(tokenLines, level, firstLineNumber);
+			}
+			if(tokenLines.size() == 0 && line.startsWith("#")) {
+				if(line.startsWith(ParsedSentenceCoNLLWriter.PARSE_LEVEL_COMMENT)) {
+					try {
+						level = ParseLevel.valueOf(line.substring(ParsedSentenceCoNLLWriter.PARSE_LEVEL_COMMENT.length()).trim());
+					} catch (IllegalArgumentException e) {
+						throw new IOException("Wrong CoNLL-2009 line " + lineNumber + ": unknown parse level " + line);
+					}
+				}
+				continue;
+			}
+			String[] columns = line.split("\t");
+			if(columns.length < FIRST_APRED) {
+				throw new IOException("Wrong CoNLL-2009 line " + lineNumber + ": " + columns.length + " columns instead of at least " + FIRST_APRED);
+			}
+			if(tokenLines.size() == 0) {
+				firstLineNumber = lineNumber;
+			}
+			tokenLines.add(columns);
+		}
+
+		endReached = true;
+		if(tokenLines.size() > 0) {
+			// Last sentence not terminated by an empty line
+			nextRead = true;
+			return toSentence(tokenLines, level, firstLineNumber);
+		}
+		return null;
+	}
+
+	/**
+	 * Build a sentence from its token lines.
+	 *
+	 * @param tokenLines
+	 * @param level parse level of the sentence, null to infer it from the columns
+	 * @param firstLineNumber number of the line of the first token
+	 * @return
+	 * @throws IOException
+	 */
+	private ParsedSentence toSentence(List<String[]> tokenLines, ParseLevel level, long firstLineNumber) throws IOException {
+		if(tokenLines.size() == 0) {
+			return null;
+		}
+
+		ParsedSentence retSentence = new ParsedSentence(tokenLines.size());
+		List<Integer> predicates = new ArrayList<Integer>();
+		boolean hasLemmas = false;
+		boolean hasPos = false;
+		boolean hasHeads = false;
+
+		for(int i = 0; i < tokenLines.size(); i++) {
+			String[] columns = tokenLines.get(i);
+			retSentence.setToken(i, columns[FORM]);
+
+			String lemma = valueOf(columns[PLEMMA], columns[LEMMA]);
+			hasLemmas = hasLemmas || lemma != null;
+			retSentence.setLemma(i, lemma);
+
+			String pos = valueOf(columns[PPOS], columns[POS]);
+			hasPos = hasPos || pos != null;
+			retSentence.setPos(i, pos);
+
+			String head = valueOf(columns[PHEAD], columns[HEAD]);
+			if(head != null) {
+				hasHeads = true;
+				int headId = 0;
+				try {
+					headId = Integer.parseInt(head);
+				} catch (NumberFormatException e) {
+					throw new IOException("Wrong CoNLL-2009 line " + (firstLineNumber + i) + ": head " + head + " is not a number");
+				}
+				if(headId > 0) {
+					retSentence.setDepTarget(i, headId - 1);
+				}
+			}
+			retSentence.setDepFunct(i, valueOf(columns[PDEPREL], columns[DEPREL]));
+
+			if(columns[FILLPRED].equals("Y")) {
+				predicates.add(i);
+			}
+		}
+
+		for(int p = 0; p < predicates.size(); p++) {
+			List<Integer> argumentIndexes = new ArrayList<Integer>();
+			List<String> roles = new ArrayList<String>();
+			for(int i = 0; i < tokenLines.size(); i++) {
+				String[] columns = tokenLines.get(i);
+				String argument = (FIRST_APRED + p < columns.length) ? valueOf(columns[FIRST_APRED + p], null) : null;
+				if(argument != null) {
+					argumentIndexes.add(i);
+					roles.add(argument);
+				}
+			}
+
+			int predicate = predicates.get(p);
+			int[] argumentIds = new int[argumentIndexes.size()];
+			for(int a = 0; a < argumentIds.length; a++) {
+				argumentIds[a] = argumentIndexes.get(a);
+			}
+			retSentence.addSRLframe(predicate, valueOf(tokenLines.get(predicate)[PRED], null), argumentIds, roles.toArray(new String[roles.size()]));
+		}
+
+		if(level != null) {
+			retSentence.setParseLevel(level);
+		}
+		else if(predicates.size() > 0) {
+			retSentence.setParseLevel(ParseLevel.SRL);
+		}
+		else if(hasHeads) {
+			retSentence.setParseLevel(ParseLevel.DEPENDENCY);
+		}
+		else if(hasPos) {
+			retSentence.setParseLevel(ParseLevel.POS);
+		}
+		else if(hasLemmas) {
+			retSentence.setParseLevel(ParseLevel.LEMMA);
+		}
+		else {
+			retSentence.setParseLevel(ParseLevel.TOKENIZE);
+		}
+
+		return retSentence;
+	}
+
+	private static String valueOf(String predictedValue, String goldValue) {
+		if(predictedValue != null && !predictedValue.equals(EMPTY)) {
+			return predictedValue;
+		}
+		if(goldValue != null && !goldValue.equals(EMPTY)) {
+			return goldValue;
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,218 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes parsed sentences in the CoNLL-2009 format, one sentence at a time.<br/>
+ *
+ * Each token is written in a line with the tab separated columns ID, FORM, LEMMA, PLEMMA, POS, PPOS, FEAT, PFEAT, HEAD, PHEAD,
+ * DEPREL, PDEPREL, FILLPRED, PRED followed by one APRED column for each predicate of the sentence; sentences are separated by an
+ * empty line. Lemma, POS, head and dependency relation are written both in the gold and predicted columns. The files are standard
+ * CoNLL-2009 files: only if enabled (see {@link #setParseLevelComments(boolean) setParseLevelComments}), each sentence is preceded
+ * by a comment line with its parse level (for instance '# parse_level = SRL'), not supported by most CoNLL-2009 tools.<br/>
+ *
+ * Only the analyses performed on the sentence are written (see {@link ParsedSentence#getParseLevel() getParseLevel}).
+ * The predicates of a sentence are the predicates of its semantic frames (see {@link ParsedSentence#getSRLframes() getSRLframes}), thus
+ * all the roles of a token are written; for the sentences without frames, the predicates are the tokens that are the root of a semantic
+ * frame (see {@link ParsedSentence#getSRLrootID() getSRLrootID} and {@link ParsedSentence#isSRLroot(int) isSRLroot}).
+ * Missing values are written as '_'.<br/>
+ *
+ * The sentences can be read back by means of {@link ParsedSentenceCoNLLReader ParsedSentenceCoNLLReader}.
+ *
+ */
+public class ParsedSentenceCoNLLWriter implements Closeable, Flushable {
+
+	private static final String EMPTY = "_";
+
+	// Comment line before each sentence with its parse level
+	static final String PARSE_LEVEL_COMMENT = "# parse_level = ";
+
+	private final BufferedWriter writer;
+
+	private long sentenceCount = 0l;
+
+	private boolean parseLevelComments = false;
+
+	/**
+	 * Create a writer to a file (UTF-8), replacing the existing content.
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public ParsedSentenceCoNLLWriter(Path path) throws IOException {
+		this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Create a writer to a character stream.
+	 *
+	 * @param writer
+	 */
+	public ParsedSentenceCoNLLWriter(Writer writer) {
+		this.writer = (writer instanceof BufferedWriter) ? (BufferedWriter) writer : new BufferedWriter(writer);
+	}
+
+	/**
+	 * Write a sentence. Null sentences (not parsed) are written as empty sentences, so that the position of each sentence
+	 * in the file is preserved.
+	 *
+	 * @param sentence
+	 * @throws IOException
+	 */
+	public void write(ParsedSentence sentence) throws IOException {
+		if(sentence != null) {
+			List<String> token = sentence.getToken();
+			List<String> lemma = sentence.getLemma();
+			List<String> pos = sentence.getPos();
+			List<String> depFunct = sentence.getDepFunct();
+			List<Integer> depTarget = sentence.getDepTarget();
+			List<String> SRLtag = sentence.getSRLtag();
+			List<Integer> SRLrootID = sentence.getSRLrootID();
+			boolean hasDependencies = sentence.getParseLevel().includes(ParseLevel.DEPENDENCY);
+			boolean hasSRL = sentence.getParseLevel().includes(ParseLevel.SRL);
+
+			// Predicates, in order of position, and role of each token for each predicate
+			List<Integer> predicates = new ArrayList<Integer>();
+			String[] predicateSense = new String[token.size()];
+			String[][] predicateRoles = null;
+			if(hasSRL && sentence.getSRLframeCount() > 0) {
+				predicateRoles = getFrameRoles(sentence, predicates, predicateSense);
+			}
+			for(int i = 0; i < token.size() && hasSRL && predicateRoles == null; i++) {
+				Integer rootID = SRLrootID.get(i);
+				if(rootID != null && rootID >= 0 && rootID < token.size() && predicateSense[rootID] == null) {
+					predicateSense[rootID] = valueOf(sentence.getSRLsenseatIndex(i));
+				}
+				if(sentence.isSRLroot(i) && predicateSense[i] == null) {
+					predicateSense[i] = valueOf(sentence.getSRLsenseatIndex(i));
+				}
+			}
+			for(int i = 0; i < token.size() && predicateRoles == null; i++) {
+				if(predicateSense[i] != null) {
+					predicates.add(i);
+				}
+			}
+
+			if(parseLevelComments) {
+				writer.write(PARSE_LEVEL_COMMENT + sentence.getParseLevel() + "\n");
+			}
+			StringBuilder line = new StringBuilder();
+			for(int i = 0; i < token.size(); i++) {
+				line.setLength(0);
+				String head = EMPTY;
+				String deprel = EMPTY;
+				if(hasDependencies) {
+					head = (depTarget.get(i) != null) ? String.valueOf(depTarget.get(i) + 1) : "0";
+					deprel = valueOf(depFunct.get(i));
+				}
+
+				line.append(i + 1).append('\t');
+				line.append(valueOf(token.get(i))).append('\t');
+				line.append(valueOf(lemma.get(i))).append('\t').append(valueOf(lemma.get(i))).append('\t');
+				line.append(valueOf(pos.get(i))).append('\t').append(valueOf(pos.get(i))).append('\t');
+				line.append(EMPTY).append('\t').append(EMPTY).append('\t');
+				line.append(head).append('\t').append(head).append('\t');
+				line.append(deprel).append('\t').append(deprel).append('\t');
+				line.append((predicateSense[i] != null) ? "Y" : EMPTY).append('\t');
+				line.append((predicateSense[i] != null) ? predicateSense[i] : EMPTY);
+				for(int p = 0; p < predicates.size(); p++) {
+					line.append('\t');
+					if(predicateRoles != null) {
+						line.append(valueOf(predicateRoles[p][i]));
+					}
+					else {
+						line.append((predicates.get(p).equals(SRLrootID.get(i))) ? valueOf(SRLtag.get(i)) : EMPTY);
+					}
+				}
+				line.append('\n');
+				writer.write(line.toString());
+			}
+		}
+
+		writer.write('\n');
+		sentenceCount++;
+	}
+
+	public boolean isParseLevelComments() {
+		return parseLevelComments;
+	}
+
+	/**
+	 * Write the parse level of each sentence in a comment line before the sentence (default false). Without comment lines, the
+	 * parse level is inferred from the columns when the file is read back (see {@link ParsedSentenceCoNLLReader ParsedSentenceCoNLLReader}).
+	 *
+	 * @param parseLevelComments
+	 */
+	public void setParseLevelComments(boolean parseLevelComments) {
+		this.parseLevelComments = parseLevelComments;
+	}
+
+	/**
+	 * Number of sentences written so far.
+	 *
+	 * @return
+	 */
+	public long getSentenceCount() {
+		return sentenceCount;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	/**
+	 * Get the predicates of the semantic frames of a sentence (in order of position) with their senses and the role of each token
+	 * for each predicate.
+	 */
+	private static String[][] getFrameRoles(ParsedSentence sentence, List<Integer> predicates, String[] predicateSense) {
+		int tokenNumber = sentence.getTokenCount();
+		int[] predicateFrame = new int[tokenNumber];
+		Arrays.fill(predicateFrame, -1);
+		for(int f = 0; f < sentence.getSRLframeCount(); f++) {
+			int predicate = sentence.getSRLframe(f).getPredicate();
+			if(predicateFrame[predicate] < 0) {
+				predicateFrame[predicate] = f;
+			}
+		}
+
+		List<String[]> roles = new ArrayList<String[]>();
+		for(int i = 0; i < tokenNumber; i++) {
+			if(predicateFrame[i] >= 0) {
+				SRLFrame frame = sentence.getSRLframe(predicateFrame[i]);
+				String[] frameRoles = new String[tokenNumber];
+				for(int a = 0; a < frame.getArgumentCount(); a++) {
+					frameRoles[frame.getArgument(a)] = frame.getRole(a);
+				}
+				predicates.add(i);
+				predicateSense[i] = valueOf(frame.getSense());
+				roles.add(frameRoles);
+			}
+		}
+		return roles.toArray(new String[roles.size()][]);
+	}
+
+	private static String valueOf(String value) {
+		if(value == null || value.trim().length() == 0) {
+			return EMPTY;
+		}
+		// Columns are tab separated
+		return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+	}
+
+}
@@ -0,0 +1,124 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+import is2.data.SentenceData09;
+import se.lth.cs.srl.corpus.Predicate;
+import se.lth.cs.srl.corpus.Sentence;
+import se.lth.cs.srl.corpus.Word;
+
+/**
+ * Conversion of the output of the Mate tools into {@link ParsedSentence ParsedSentence} instances, as performed by the
+ * pipelines of the {@link MateParser MateParser} engines at the end of each sentence.<br/>
+ *
+ * The tokens passed to the conversion methods include the root token at position 0, as passed to the Mate tools:
+ * the token ids of the Mate tools (1 for the first token) are converted to the positions of the parsed sentence (0 for the first token).
+ *
+ */
+public final class ParsedSentenceConverter {
+
+	private static final Comparator<Predicate> PREDICATE_POSITION = new Comparator<Predicate>() {
+		@Override
+		public int compare(Predicate predicate1, Predicate predicate2) {
+			return Integer.compare(predicate1.getIdx(), predicate2.getIdx());
+		}
+	};
+
+	private static final Comparator<Map.Entry<Word, String>> ARGUMENT_POSITION = new Comparator<Map.Entry<Word, String>>() {
+		@Override
+		public int compare(Map.Entry<Word, String> argument1, Map.Entry<Word, String> argument2) {
+			return Integer.compare(argument1.getKey().getIdx(), argument2.getKey().getIdx());
+		}
+	};
+
+	private ParsedSentenceConverter() {
+
+	}
+
+	/**
+	 * Convert a sentence processed by the lemmatizer, POS tagger and dependency parser (without the SRL).
+	 *
+	 * @param tokensToProcess tokens of the sentence, including the root token
+	 * @param preprocessed output of the Mate tools (without the root token)
+	 * @param completedLevel analyses completed on the sentence: LEMMA, POS or DEPENDENCY
+	 * @return
+	 */
+	public static ParsedSentence convert(String[] tokensToProcess, SentenceData09 preprocessed, ParseLevel completedLevel) {
+		ParsedSentence retSentence = new ParsedSentence(tokensToProcess.length - 1);
+		for(int w = 1; w < tokensToProcess.length; w++) {
+			int actualIndex = w - 1;
+			retSentence.setToken(actualIndex, tokensToProcess[w]);
+			retSentence.setLemma(actualIndex, preprocessed.plemmas[actualIndex]);
+			if(completedLevel.includes(ParseLevel.POS)) {
+				retSentence.setPos(actualIndex, preprocessed.ppos[actualIndex]);
+			}
+			if(completedLevel.includes(ParseLevel.DEPENDENCY)) {
+				if(preprocessed.plabels[actualIndex] != null) {
+					retSentence.setDepFunct(actualIndex, preprocessed.plabels[actualIndex]);
+				}
+				if(preprocessed.pheads[actualIndex] > 0) {
+					retSentence.setDepTarget(actualIndex, preprocessed.pheads[actualIndex] - 1);
+				}
+			}
+		}
+		retSentence.setParseLevel(completedLevel);
+		return retSentence;
+	}
+
+	/**
+	 * Convert a sentence processed by the semantic role labeller: the semantic frames are added in order of predicate position,
+	 * with the arguments in order of position (arguments with blank roles are skipped, predicates without sense get an empty sense).
+	 *
+	 * @param tokensToProcess tokens of the sentence, including the root token
+	 * @param srlSentence output of the SRL
+	 * @return
+	 */
+	public static ParsedSentence convert(String[] tokensToProcess, Sentence srlSentence) {
+		ParsedSentence retSentence = new ParsedSentence(tokensToProcess.length - 1);
+		for(int w = 1; w < tokensToProcess.length; w++) {
+			int actualIndex = w - 1;
+			retSentence.setToken(actualIndex, tokensToProcess[w]);
+
+			Word word = srlSentence.get(w);
+			retSentence.setLemma(actualIndex, word.getLemma());
+			retSentence.setPos(actualIndex, word.getPOS());
+			if(word.getDeprel() != null) {
+				retSentence.setDepFunct(actualIndex, word.getDeprel());
+			}
+			if(word.getHeadId() > 0) {
+				retSentence.setDepTarget(actualIndex, word.getHeadId() - 1);
+			}
+		}
+
+		// Semantic frames, in order of predicate position, with the arguments in order of position
+		List<Predicate> predicates = new ArrayList<Predicate>(srlSentence.getPredicates());
+		Collections.sort(predicates, PREDICATE_POSITION);
+		for(Predicate pred : predicates) {
+			List<Map.Entry<Word, String>> arguments = new ArrayList<Map.Entry<Word, String>>(pred.getArgMap().size());
+			for(Map.Entry<Word, String> argument : pred.getArgMap().entrySet()) {
+				if(argument.getKey().getIdx() > 0 && StringUtils.isNotBlank(argument.getValue())) {
+					arguments.add(argument);
+				}
+			}
+			Collections.sort(arguments, ARGUMENT_POSITION);
+
+			int[] argumentIndexes = new int[arguments.size()];
+			String[] roles = new String[arguments.size()];
+			for(int a = 0; a < arguments.size(); a++) {
+				argumentIndexes[a] = arguments.get(a).getKey().getIdx() - 1;
+				roles[a] = arguments.get(a).getValue();
+			}
+			retSentence.addSRLframe(pred.getIdx() - 1, StringUtils.defaultString(pred.getSense(), ""), argumentIndexes, roles);
+		}
+
+		retSentence.setParseLevel(ParseLevel.SRL);
+		return retSentence;
+	}
+
+}
@@ -0,0 +1,128 @@
+package org.backingdata.nlp.utils.parser.mate;
+
+/**
+ * Semantic frame of a parsed sentence: a predicate token with its sense and its arguments, each one with its role
+ * (see {@link ParsedSentence#getSRLframes() ParsedSentence.getSRLframes}).<br/>
+ *
+ * Arguments are identified by their head token (as in the CoNLL-2009 format): the span of an argument is the span of
+ * the subtree of its head token in the dependency tree.
+ *
+ */
+public final class SRLFrame {
+
+	private final ParsedSentence sentence;
+	private final int predicate;
+	private final String sense;
+
+	// Arguments of the frame: argumentToken[argumentStart] ... argumentToken[argumentEnd - 1]
+	private final int[] argumentToken;
+	private final short[] argumentRole;
+	private final int argumentStart;
+	private final int argumentEnd;
+
+	SRLFrame(ParsedSentence sentence, int predicate, String sense, int[] argumentToken, short[] argumentRole, int argumentStart, int argumentEnd) {
+		this.sentence = sentence;
+		this.predicate = predicate;
+		this.sense = sense;
+		this.argumentToken = argumentToken;
+		this.argumentRole = argumentRole;
+		this.argumentStart = argumentStart;
+		this.argumentEnd = argumentEnd;
+	}
+
+	/**
+	 * Get the id of the predicate token.
+	 *
+	 * @return
+	 */
+	public int getPredicate() {
+		return predicate;
+	}
+
+	/**
+	 * Get the sense of the predicate (e.g. eat.01).
+	 *
+	 * @return
+	 */
+	public String getSense() {
+		return sense;
+	}
+
+	public int getArgumentCount() {
+		return argumentEnd - argumentStart;
+	}
+
+	/**
+	 * Get the id of the head token of an argument.
+	 *
+	 * @param argumentIndex from 0 to getArgumentCount() - 1
+	 * @return
+	 */
+	public int getArgument(int argumentIndex) {
+		return argumentToken[checkArgument(argumentIndex)];
+	}
+
+	/**
+	 * Get the role of an argument (e.g. A0).
+	 *
+	 * @param argumentIndex from 0 to getArgumentCount() - 1
+	 * @return
+	 */
+	public String getRole(int argumentIndex) {
+		return ParsedSentence.getSRLtagLabels().getLabel(argumentRole[checkArgument(argumentIndex)]);
+	}
+
+	/**
+	 * Get the role of a token in the frame.
+	 *
+	 * @param index the token id
+	 * @return null if the token is not an argument of the frame
+	 */
+	public String getRoleOf(int index) {
+		for(int a = argumentStart; a < argumentEnd; a++) {
+			if(argumentToken[a] == index) {
+				return ParsedSentence.getSRLtagLabels().getLabel(argumentRole[a]);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the id of the first token of the span of an argument.
+	 *
+	 * @param argumentIndex from 0 to getArgumentCount() - 1
+	 * @return
+	 */
+	public int getArgumentSpanStart(int argumentIndex) {
+		return sentence.getDepTreeIndex().getSubtreeStart(getArgument(argumentIndex));
+	}
+
+	/**
+	 * Get the id of the last token of the span of an argument.
+	 *
+	 * @param argumentIndex from 0 to getArgumentCount() - 1
+	 * @return
+	 */
+	public int getArgumentSpanEnd(int argumentIndex) {
+		return sentence.getDepTreeIndex().getSubtreeEnd(getArgument(argumentIndex));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder frame = new StringBuilder();
+		frame.append(sense).append('(').append(sentence.getTokenAtIndex(predicate)).append('-').append(predicate).append(')');
+		for(int a = argumentStart; a < argumentEnd; a++) {
+			frame.append(' ').append(ParsedSentence.getSRLtagLabels().getLabel(argumentRole[a])).append('=')
+			.append(sentence.getTokenAtIndex(argumentToken[a])).append('-').append(argumentToken[a]);
+		}
+		return frame.toString();
+	}
+
+	private int checkArgument(int argumentIndex) {
+		if(argumentIndex < 0 || argumentIndex >= argumentEnd - argumentStart) {
+			throw new IndexOutOfBoundsException("Argument " + argumentIndex + " of a frame with " + (argumentEnd - argumentStart) + " arguments");
+		}
+		return argumentStart + argumentIndex;
+	}
+
+}
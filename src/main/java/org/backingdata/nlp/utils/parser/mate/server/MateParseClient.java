@@ -0,0 +1,282 @@
+package org.backingdata.nlp.utils.parser.mate.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.backingdata.nlp.utils.parser.mate.MateLanguage;
+import org.backingdata.nlp.utils.parser.mate.ParseLevel;
+import org.backingdata.nlp.utils.parser.mate.ParsedSentence;
+import org.backingdata.nlp.utils.parser.mate.ParsedSentenceBinaryReader;
+
+/**
+ * Client of a {@link MateParseServer MateParseServer}: parses sentences without loading the models in the client process.<br/>
+ *
+ * MateParseClient client = new MateParseClient("http://localhost:8095");<br/>
+ * List&lt;ParsedSentence&gt; parsedSentences = client.parseSentences(MateLanguage.English, ParseLevel.SRL, sentences);<br/>
+ *
+ * When the server refuses a request because it is overloaded, the request is sent again after the time suggested by the server,
+ * up to the maximum number of retries. Long lists of sentences are sent in several requests, each with at most the maximum number
+ * of sentences per request accepted by the server. The instances can be shared by several threads.
+ *
+ */
+public class MateParseClient {
+
+	private static Logger logger = Logger.getLogger(MateParseClient.class);
+
+	private final String serverUrl;
+
+	private volatile int connectTimeoutMillis = 5000;
+
+	private volatile int readTimeoutMillis = 0;
+
+	private volatile int maxRetries = 3;
+
+	private volatile int maxSentencesPerRequest = 500;
+
+	/**
+	 * Create a client of a parse server.
+	 *
+	 * @param serverUrl URL of the server, for instance http://localhost:8095
+	 */
+	public MateParseClient(String serverUrl) {
+		this.serverUrl = serverUrl.endsWith("/") ? serverUrl.substring(0, serverUrl.length() - 1) : serverUrl;
+	}
+
+	public String getServerUrl() {
+		return serverUrl;
+	}
+
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	/**
+	 * Set the connection timeout (default 5000 milliseconds).
+	 *
+	 * @param connectTimeoutMillis
+	 */
+	public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+
+	public int getReadTimeoutMillis() {
+		return readTimeoutMillis;
+	}
+
+	/**
+	 * Set the maximum time to wait for the parsed sentences (default 0, no limit).
+	 *
+	 * @param readTimeoutMillis
+	 */
+	public void setReadTimeoutMillis(int readTimeoutMillis) {
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	/**
+	 * Set the maximum number of times a request refused by an overloaded server is sent again (default 3).
+	 *
+	 * @param maxRetries
+	 */
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public int getMaxSentencesPerRequest() {
+		return maxSentencesPerRequest;
+	}
+
+	/**
+	 * Set the maximum number of sentences sent in a request (default 500): it should not exceed the maximum number of sentences
+	 * of a request of the server.
+	 *
+	 * @param maxSentencesPerRequest
+	 */
+	public void setMaxSentencesPerRequest(int maxSentencesPerRequest) {
+		this.maxSentencesPerRequest = maxSentencesPerRequest;
+	}
+
+	/**
+	 * Parse a sentence (parse level SRL).
+	 *
+	 * @param language
+	 * @param sentence
+	 * @return the parsed sentence, null if the sentence cannot be parsed
+	 * @throws IOException if the server cannot be reached or is overloaded
+	 */
+	public ParsedSentence parseSentence(MateLanguage language, String sentence) throws IOException {
+		List<String> sentences = new ArrayList<String>();
+		sentences.add(sentence);
+		return parseSentences(language, ParseLevel.SRL, sentences).get(0);
+	}
+
+	/**
+	 * Parse a list of sentences. The line breaks inside a sentence are replaced by spaces.
+	 *
+	 * @param language
+	 * @param level
+	 * @param sentences
+	 * @return the parsed sentences, in the same order of the input (null elements for the sentences that cannot be parsed)
+	 * @throws IOException if the server cannot be reached or is overloaded
+	 */
+	public List<ParsedSentence> parseSentences(MateLanguage language, ParseLevel level, List<String> sentences) throws IOException {
+		List<ParsedSentence> retSentences = new ArrayList<ParsedSentence>(sentences.size());
+		int sliceSize = Math.max(1, maxSentencesPerRequest);
+		for(int start = 0; start < sentences.size(); start += sliceSize) {
+			List<String> slice = sentences.subList(start, Math.min(sentences.size(), start + sliceSize));
+			StringBuilder body = new StringBuilder();
+			for(String sentence : slice) {
+				body.append((sentence != null) ? sentence.replace('\n', ' ').replace('\r', ' ') : "").append('\n');
+			}
+			retSentences.addAll(parse(MateParseServer.SENTENCES_PATH, language, level, body.toString(), slice.size()));
+		}
+		return retSentences;
+	}
+
+	/**
+	 * Parse a list of tokenized sentences. The tabs and line breaks inside a token are replaced by spaces.
+	 *
+	 * @param language
+	 * @param level
+	 * @param sentencesTokens
+	 * @return the parsed sentences, in the same order of the input (null elements for the sentences that cannot be parsed)
+	 * @throws IOException if the server cannot be reached or is overloaded
+	 */
+	public List<ParsedSentence> parseSentencesTokens(MateLanguage language, ParseLevel level, List<List<String>> sentencesTokens) throws IOException {
+		List<ParsedSentence> retSentences = new ArrayList<ParsedSentence>(sentencesTokens.size());
+		int sliceSize = Math.max(1, maxSentencesPerRequest);
+		for(int start = 0; start < sentencesTokens.size(); start += sliceSize) {
+			List<List<String>> slice = sentencesTokens.subList(start, Math.min(sentencesTokens.size(), start + sliceSize));
+			StringBuilder body = new StringBuilder();
+			for(List<String> tokens : slice) {
+				if(tokens != null) {
+					for(int t = 0; t < tokens.size(); t++) {
+						if(t > 0) {
+							body.append('\t');
+						}
+						body.append(tokens.get(t).replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+					}
+				}
+				body.append('\n');
+			}
+			retSentences.addAll(parse(MateParseServer.TOKENS_PATH, language, level, body.toString(), slice.size()));
+		}
+		return retSentences;
+	}
+
+	/**
+	 * Check if the server is ready to parse.
+	 *
+	 * @return false if the server cannot be reached or is still loading the models
+	 */
+	public boolean isReady() {
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) new URL(serverUrl + MateParseServer.HEALTH_PATH).openConnection();
+			connection.setConnectTimeout(connectTimeoutMillis);
+			connection.setReadTimeout(connectTimeoutMillis);
+			return connection.getResponseCode() == 200;
+		} catch (IOException e) {
+			return false;
+		}
+		finally {
+			if(connection != null) {
+				connection.disconnect();
+			}
+		}
+	}
+
+	private List<ParsedSentence> parse(String path, MateLanguage language, ParseLevel level, String body, int sentenceNumber) throws IOException {
+		List<ParsedSentence> retSentences = new ArrayList<ParsedSentence>(sentenceNumber);
+		if(sentenceNumber == 0) {
+			return retSentences;
+		}
+
+		URL url = new URL(serverUrl + path + "?language=" + URLEncoder.encode(language.toString(), "UTF-8") + "&level=" + level);
+		byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+		for(int attempt = 0; ; attempt++) {
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			try {
+				connection.setConnectTimeout(connectTimeoutMillis);
+				connection.setReadTimeout(readTimeoutMillis);
+				connection.setRequestMethod("POST");
+				connection.setDoOutput(true);
+				connection.setFixedLengthStreamingMode(bodyBytes.length);
+				connection.setRequestProperty("Content-Type", "text/plain; charset=UTF-8");
+				OutputStream output = connection.getOutputStream();
+				output.write(bodyBytes);
+				output.close();
+
+				int status = connection.getResponseCode();
+				if(status == 200) {
+					ParsedSentenceBinaryReader reader = new ParsedSentenceBinaryReader(connection.getInputStream());
+					try {
+						while(reader.hasNext()) {
+							retSentences.add(reader.next());
+						}
+					}
+					finally {
+						reader.close();
+					}
+					if(retSentences.size() != sentenceNumber) {
+						throw new IOException("The parse server returned " + retSentences.size() + " sentences instead of " + sentenceNumber);
+					}
+					return retSentences;
+				}
+
+				String message = readError(connection);
+				if(status != 503 || attempt >= maxRetries) {
+					throw new IOException("Parse server error " + status + ": " + message);
+				}
+				long retryMillis = 1000l;
+				try {
+					retryMillis = Math.max(0l, Long.parseLong(connection.getHeaderField("Retry-After").trim()) * 1000l);
+				} catch (Exception e) {
+					// Default retry time
+				}
+				logger.debug("Parse server overloaded (" + message + "), retrying in " + retryMillis + " ms...");
+				try {
+					Thread.sleep(retryMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting to retry a parse request");
+				}
+			}
+			finally {
+				connection.disconnect();
+			}
+		}
+	}
+
+	private static String readError(HttpURLConnection connection) {
+		try {
+			InputStream error = connection.getErrorStream();
+			if(error == null) {
+				return "";
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int read;
+			while((read = error.read(buffer)) >= 0) {
+				bytes.write(buffer, 0, read);
+			}
+			error.close();
+			return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return "";
+		}
+	}
+
+}
@@ -0,0 +1,581 @@
+package org.backingdata.nlp.utils.parser.mate.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.backingdata.nlp.utils.Manage;
+import org.backingdata.nlp.utils.parser.mate.MateLanguage;
+import org.backingdata.nlp.utils.parser.mate.MateMetrics;
+import org.backingdata.nlp.utils.parser.mate.MateMetricsJmx;
+import org.backingdata.nlp.utils.parser.mate.MateMetricsRegistry;
+import org.backingdata.nlp.utils.parser.mate.MateParser;
+import org.backingdata.nlp.utils.parser.mate.ParseLevel;
+import org.backingdata.nlp.utils.parser.mate.ParsedSentence;
+import org.backingdata.nlp.utils.parser.mate.ParsedSentenceBinaryWriter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP server that keeps the Mate parser engines in memory and parses the sentences sent by several client processes
+ * (see {@link MateParseClient MateParseClient}), so that the models are loaded once for all the clients.<br/>
+ *
+ * The sentences of concurrent requests are grouped into batches parsed in parallel by the shared engine of each language and parse level
+ * (see {@link MateParser#getInstance(MateLanguage, ParseLevel) MateParser.getInstance}): a batch is parsed when it is full or when
+ * its oldest sentence has waited for the maximum wait time. When too many sentences are waiting to be parsed, the requests are refused
+ * with HTTP status 503 (Retry-After header), so that clients slow down instead of queueing without bounds. Requests with too many
+ * sentences or too large bodies are refused with HTTP status 413: larger inputs are sent in several requests.<br/>
+ *
+ * Requests (UTF-8 bodies, one sentence per line):<br/>
+ * - POST /parse/sentences?language=English&amp;level=SRL: sentence strings;<br/>
+ * - POST /parse/tokens?language=English&amp;level=SRL: tokenized sentences, tokens separated by tabs;<br/>
+ * - GET /health: 200 if the engines of the languages loaded at start are ready, 503 otherwise;<br/>
+ * - GET /metrics: measures of the engines and of the server (see {@link MateMetricsRegistry MateMetricsRegistry}), as text.<br/>
+ * The parsed sentences are returned in the binary format of {@link ParsedSentenceBinaryWriter ParsedSentenceBinaryWriter},
+ * in the order of the request (sentences that cannot be parsed included).<br/>
+ *
+ * The sentences of different languages are not parsed at the same time (the Mate-tools libraries keep model data in static fields):
+ * with mixed English and Spanish traffic the engines alternate between languages, each language being parsed for at least a minimum
+ * number of sentences (see {@link MateParser#setMinSentencesPerLanguageSwitch(int) MateParser.setMinSentencesPerLanguageSwitch}).
+ * To avoid the switches, run one server per language.<br/>
+ *
+ * By default the server listens on the loopback interface only. The measures are also exposed by JMX (see {@link MateMetricsJmx MateMetricsJmx}).
+ *
+ */
+public class MateParseServer {
+
+	private static Logger logger = Logger.getLogger(MateParseServer.class);
+
+	public static final int DEFAULT_PORT = 8095;
+
+	static final String SENTENCES_PATH = "/parse/sentences";
+	static final String TOKENS_PATH = "/parse/tokens";
+	static final String HEALTH_PATH = "/health";
+	static final String METRICS_PATH = "/metrics";
+
+	static final String BINARY_CONTENT_TYPE = "application/octet-stream";
+
+	private final InetSocketAddress address;
+
+	private int maxBatchSize = 64;
+
+	private long maxWaitMillis = 5l;
+
+	private int maxPendingSentences = 10000;
+
+	private int dispatcherThreads = 2;
+
+	private int handlerThreads = 32;
+
+	private long requestTimeoutMillis = 60000l;
+
+	private int maxRequestSentences = 1000;
+
+	private int maxRequestBytes = 4 * 1024 * 1024;
+
+	private final MateMetricsRegistry metrics = new MateMetricsRegistry();
+
+	// Batchers by language, parse level and input type
+	private final Map<String, MateRequestBatcher<?>> batchers = new ConcurrentHashMap<String, MateRequestBatcher<?>>();
+
+	private List<MateLanguage> loadedLanguages = new ArrayList<MateLanguage>();
+
+	private HttpServer server = null;
+
+	private ExecutorService handlerExecutor = null;
+
+	/**
+	 * Create a server listening on a port of the loopback interface.
+	 *
+	 * @param port
+	 */
+	public MateParseServer(int port) {
+		this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+	}
+
+	/**
+	 * Create a server listening on an address.
+	 *
+	 * @param address
+	 */
+	public MateParseServer(InetSocketAddress address) {
+		this.address = address;
+	}
+
+	public InetSocketAddress getAddress() {
+		return (server != null) ? server.getAddress() : address;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * Set the maximum number of sentences parsed in a batch (default 64). To be set before starting the server.
+	 *
+	 * @param maxBatchSize
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	/**
+	 * Set the maximum time a sentence waits for its batch to be filled (default 5 milliseconds). To be set before starting the server.
+	 *
+	 * @param maxWaitMillis
+	 */
+	public void setMaxWaitMillis(long maxWaitMillis) {
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	public int getMaxPendingSentences() {
+		return maxPendingSentences;
+	}
+
+	/**
+	 * Set the maximum number of sentences waiting to be parsed by each engine (default 10000): the requests that exceed it are refused
+	 * with HTTP status 503. To be set before starting the server.
+	 *
+	 * @param maxPendingSentences
+	 */
+	public void setMaxPendingSentences(int maxPendingSentences) {
+		this.maxPendingSentences = maxPendingSentences;
+	}
+
+	public int getDispatcherThreads() {
+		return dispatcherThreads;
+	}
+
+	/**
+	 * Set the number of batches of each engine parsed at the same time (default 2), so that a new batch starts
+	 * while the last sentences of the previous one are parsed. To be set before starting the server.
+	 *
+	 * @param dispatcherThreads
+	 */
+	public void setDispatcherThreads(int dispatcherThreads) {
+		this.dispatcherThreads = dispatcherThreads;
+	}
+
+	public int getHandlerThreads() {
+		return handlerThreads;
+	}
+
+	/**
+	 * Set the number of threads that receive the requests (default 32), that is the maximum number of requests being served at the same time.
+	 * To be set before starting the server.
+	 *
+	 * @param handlerThreads
+	 */
+	public void setHandlerThreads(int handlerThreads) {
+		this.handlerThreads = handlerThreads;
+	}
+
+	public long getRequestTimeoutMillis() {
+		return requestTimeoutMillis;
+	}
+
+	/**
+	 * Set the maximum time a request waits for its sentences to be parsed (default 60000 milliseconds, 0 for no limit): when expired,
+	 * the request is answered with HTTP status 503 and its sentences not parsed yet are dropped. To be set before starting the server.
+	 *
+	 * @param requestTimeoutMillis
+	 */
+	public void setRequestTimeoutMillis(long requestTimeoutMillis) {
+		this.requestTimeoutMillis = requestTimeoutMillis;
+	}
+
+	public int getMaxRequestSentences() {
+		return maxRequestSentences;
+	}
+
+	/**
+	 * Set the maximum number of sentences of a request (default 1000, at most the maximum number of pending sentences): larger requests
+	 * are refused with HTTP status 413. To be set before starting the server.
+	 *
+	 * @param maxRequestSentences
+	 */
+	public void setMaxRequestSentences(int maxRequestSentences) {
+		this.maxRequestSentences = maxRequestSentences;
+	}
+
+	public int getMaxRequestBytes() {
+		return maxRequestBytes;
+	}
+
+	/**
+	 * Set the maximum size of the body of a request (default 4 MB): larger requests are refused with HTTP status 413.
+	 * To be set before starting the server.
+	 *
+	 * @param maxRequestBytes
+	 */
+	public void setMaxRequestBytes(int maxRequestBytes) {
+		this.maxRequestBytes = maxRequestBytes;
+	}
+
+	/**
+	 * Get the measures of the engines used by the server and of the refused requests.
+	 *
+	 * @return
+	 */
+	public MateMetricsRegistry getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Start the server: the models of the given languages (parse level SRL) are loaded before accepting requests, the models of the
+	 * other languages and parse levels are loaded at the first request.
+	 *
+	 * @param languages
+	 * @throws IOException if the server cannot listen on its address or the models cannot be loaded
+	 */
+	public synchronized void start(MateLanguage... languages) throws IOException {
+		if(server != null) {
+			throw new IOException("Parse server already started on " + server.getAddress());
+		}
+
+		for(MateLanguage language : MateLanguage.values()) {
+			for(ParseLevel level : ParseLevel.values()) {
+				MateParser.getInstance(language, level).setMetrics(metrics);
+			}
+		}
+		for(MateLanguage language : languages) {
+			logger.info("Loading Mate parser (" + language + ")...");
+			if(!MateParser.getInstance(language).init(false)) {
+				throw new IOException("Impossible to load the Mate parser (" + language + ")");
+			}
+		}
+		loadedLanguages = new ArrayList<MateLanguage>(Arrays.asList(languages));
+		MateMetricsJmx.register(metrics);
+
+		server = HttpServer.create(address, 0);
+		handlerExecutor = Executors.newFixedThreadPool(Math.max(1, handlerThreads), new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "MateParseServer-handler-" + threadNumber.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		server.setExecutor(handlerExecutor);
+		server.createContext(SENTENCES_PATH, new ParseHandler(false));
+		server.createContext(TOKENS_PATH, new ParseHandler(true));
+		server.createContext(HEALTH_PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				boolean ready = true;
+				for(MateLanguage language : loadedLanguages) {
+					ready &= MateParser.getInstance(language).isReady();
+				}
+				sendText(exchange, ready ? 200 : 503, ready ? "ready" : "not ready");
+			}
+		});
+		server.createContext(METRICS_PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				sendText(exchange, 200, metrics.toString());
+			}
+		});
+		server.start();
+		logger.info("Mate parse server listening on " + server.getAddress());
+	}
+
+	/**
+	 * Stop the server: the sentences already received are parsed and sent, then the connections are closed.
+	 * The engines (and their models) are kept in memory.
+	 *
+	 * @param delaySeconds maximum time to wait for the requests being served
+	 */
+	public synchronized void stop(int delaySeconds) {
+		if(server == null) {
+			return;
+		}
+		for(MateRequestBatcher<?> batcher : batchers.values()) {
+			batcher.stop();
+		}
+		server.stop(delaySeconds);
+		handlerExecutor.shutdown();
+		batchers.clear();
+		server = null;
+		handlerExecutor = null;
+		logger.info("Mate parse server stopped.");
+	}
+
+	/**
+	 * Parse requests: the sentences of the request are submitted to the batcher of the requested engine.
+	 *
+	 */
+	private class ParseHandler implements HttpHandler {
+
+		private final boolean tokenized;
+
+		ParseHandler(boolean tokenized) {
+			this.tokenized = tokenized;
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			MateRequestBatcher.Request request = null;
+			try {
+				if(!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+					sendText(exchange, 405, "POST expected");
+					return;
+				}
+
+				Map<String, String> parameters = getParameters(exchange.getRequestURI().getRawQuery());
+				MateLanguage language = null;
+				ParseLevel level = null;
+				try {
+					language = getLanguage(parameters.get("language"));
+					level = (parameters.get("level") != null) ? ParseLevel.valueOf(parameters.get("level").trim().toUpperCase()) : ParseLevel.SRL;
+				} catch (IllegalArgumentException e) {
+					sendText(exchange, 400, e.getMessage());
+					return;
+				}
+
+				// Requests too large are refused before reading (declared length) or while reading the body
+				long contentLength = -1l;
+				try {
+					contentLength = Long.parseLong(exchange.getRequestHeaders().getFirst("Content-Length").trim());
+				} catch (Exception e) {
+					// Length not declared (chunked body)
+				}
+				List<String> lines = (contentLength <= maxRequestBytes) ? getLines(exchange.getRequestBody(), maxRequestBytes) : null;
+				if(lines == null) {
+					sendText(exchange, 413, "Request body larger than " + maxRequestBytes + " bytes");
+					return;
+				}
+				int maxSentences = Math.min(maxRequestSentences, maxPendingSentences);
+				if(lines.size() > maxSentences) {
+					sendText(exchange, 413, "Too many sentences in a request: " + lines.size() + " (maximum " + maxSentences + ")");
+					return;
+				}
+
+				if(tokenized) {
+					List<List<String>> sentencesTokens = new ArrayList<List<String>>(lines.size());
+					for(String line : lines) {
+						sentencesTokens.add((line.length() > 0) ? Arrays.asList(line.split("\t")) : new ArrayList<String>());
+					}
+					request = getTokensBatcher(language, level).submit(sentencesTokens);
+				}
+				else {
+					request = getSentencesBatcher(language, level).submit(lines);
+				}
+
+				if(request == null) {
+					metrics.recordRejection(language, MateMetrics.Rejection.OVERLOAD);
+					exchange.getResponseHeaders().set("Retry-After", "1");
+					sendText(exchange, 503, "Too many sentences waiting to be parsed (" + language + ", " + level + ")");
+					return;
+				}
+
+				List<ParsedSentence> parsedSentences = request.await(Math.max(0l, requestTimeoutMillis));
+				if(parsedSentences == null) {
+					metrics.recordRejection(language, MateMetrics.Rejection.OVERLOAD);
+					exchange.getResponseHeaders().set("Retry-After", "1");
+					sendText(exchange, 503, "Sentences not parsed within " + requestTimeoutMillis + " ms (" + language + ", " + level + ")");
+					return;
+				}
+				ByteArrayOutputStream response = new ByteArrayOutputStream(256 * Math.max(1, parsedSentences.size()));
+				ParsedSentenceBinaryWriter writer = new ParsedSentenceBinaryWriter(response);
+				for(ParsedSentence parsedSentence : parsedSentences) {
+					writer.write(parsedSentence);
+				}
+				writer.close();
+
+				exchange.getResponseHeaders().set("Content-Type", BINARY_CONTENT_TYPE);
+				exchange.sendResponseHeaders(200, response.size());
+				OutputStream output = exchange.getResponseBody();
+				response.writeTo(output);
+				output.close();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				sendText(exchange, 503, "Parse server stopping");
+			} catch (IOException e) {
+				logger.error("Error serving a parse request: " + e.getMessage());
+				throw e;
+			} catch (RuntimeException e) {
+				logger.error("Error serving a parse request: " + e.getMessage());
+				sendText(exchange, 500, "Error: " + e.getMessage());
+			}
+			finally {
+				// Sentences not parsed yet (time limit expired or failure) are not parsed for nothing
+				if(request != null) {
+					request.cancel();
+				}
+				exchange.close();
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private MateRequestBatcher<String> getSentencesBatcher(final MateLanguage language, final ParseLevel level) {
+		String key = language + "-" + level + "-sentences";
+		MateRequestBatcher<?> batcher = batchers.get(key);
+		if(batcher == null) {
+			synchronized(batchers) {
+				batcher = batchers.get(key);
+				if(batcher == null) {
+					batcher = new MateRequestBatcher<String>("MateParseServer-" + key, new MateRequestBatcher.BatchParser<String>() {
+						@Override
+						public List<ParsedSentence> parse(List<String> inputs) {
+							return MateParser.getInstance(language, level).parseSentences(inputs);
+						}
+					}, maxBatchSize, maxWaitMillis, maxPendingSentences, dispatcherThreads);
+					batchers.put(key, batcher);
+				}
+			}
+		}
+		return (MateRequestBatcher<String>) batcher;
+	}
+
+	@SuppressWarnings("unchecked")
+	private MateRequestBatcher<List<String>> getTokensBatcher(final MateLanguage language, final ParseLevel level) {
+		String key = language + "-" + level + "-tokens";
+		MateRequestBatcher<?> batcher = batchers.get(key);
+		if(batcher == null) {
+			synchronized(batchers) {
+				batcher = batchers.get(key);
+				if(batcher == null) {
+					batcher = new MateRequestBatcher<List<String>>("MateParseServer-" + key, new MateRequestBatcher.BatchParser<List<String>>() {
+						@Override
+						public List<ParsedSentence> parse(List<List<String>> inputs) {
+							return MateParser.getInstance(language, level).parseSentencesTokens(inputs);
+						}
+					}, maxBatchSize, maxWaitMillis, maxPendingSentences, dispatcherThreads);
+					batchers.put(key, batcher);
+				}
+			}
+		}
+		return (MateRequestBatcher<List<String>>) batcher;
+	}
+
+	/**
+	 * Get a language by name (English, Spanish) or code (en, es).
+	 *
+	 * @param name
+	 * @return English if the name is null
+	 * @throws IllegalArgumentException if the language is unknown
+	 */
+	static MateLanguage getLanguage(String name) {
+		if(name == null || name.trim().length() == 0) {
+			return MateLanguage.English;
+		}
+		for(MateLanguage language : MateLanguage.values()) {
+			if(language.toString().equalsIgnoreCase(name.trim()) || language.getOpenNLPcode().equalsIgnoreCase(name.trim())) {
+				return language;
+			}
+		}
+		throw new IllegalArgumentException("Unknown language: " + name);
+	}
+
+	private static Map<String, String> getParameters(String query) throws IOException {
+		Map<String, String> retParameters = new HashMap<String, String>();
+		if(query != null) {
+			for(String parameter : query.split("&")) {
+				int equalsIndex = parameter.indexOf('=');
+				if(equalsIndex > 0) {
+					retParameters.put(URLDecoder.decode(parameter.substring(0, equalsIndex), "UTF-8"), URLDecoder.decode(parameter.substring(equalsIndex + 1), "UTF-8"));
+				}
+			}
+		}
+		return retParameters;
+	}
+
+	/**
+	 * Read the lines of a UTF-8 body: the last line, if empty, is ignored.
+	 *
+	 * @return null if the body is larger than the maximum size
+	 */
+	private static List<String> getLines(InputStream body, int maxBytes) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while((read = body.read(buffer)) >= 0) {
+			if(bytes.size() + read > maxBytes) {
+				return null;
+			}
+			bytes.write(buffer, 0, read);
+		}
+		String text = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+
+		List<String> retLines = new ArrayList<String>();
+		int lineStart = 0;
+		for(int c = 0; c < text.length(); c++) {
+			if(text.charAt(c) == '\n') {
+				retLines.add(text.substring(lineStart, c));
+				lineStart = c + 1;
+			}
+		}
+		if(lineStart < text.length()) {
+			retLines.add(text.substring(lineStart));
+		}
+		return retLines;
+	}
+
+	private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream output = exchange.getResponseBody();
+		output.write(bytes);
+		output.close();
+	}
+
+	/**
+	 * Start a parse server.<br/>
+	 * Arguments: resource folder, port (default 8095), comma separated languages to load at start (default English).
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String args[]) throws Exception {
+		if(args.length < 1) {
+			System.out.println("Usage: MateParseServer <resource folder> [port] [languages, e.g. English,Spanish]");
+			return;
+		}
+
+		if(!Manage.setResourceFolder(args[0])) {
+			System.out.println("Wrong resource folder: " + args[0]);
+			return;
+		}
+		int port = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+		List<MateLanguage> languages = new ArrayList<MateLanguage>();
+		for(String language : ((args.length > 2) ? args[2] : "English").split(",")) {
+			languages.add(getLanguage(language));
+		}
+
+		final MateParseServer parseServer = new MateParseServer(port);
+		parseServer.start(languages.toArray(new MateLanguage[languages.size()]));
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				parseServer.stop(5);
+			}
+		}));
+	}
+
+}
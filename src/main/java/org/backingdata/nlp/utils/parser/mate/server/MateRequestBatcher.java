@@ -0,0 +1,333 @@
+package org.backingdata.nlp.utils.parser.mate.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+import org.backingdata.nlp.utils.parser.mate.ParsedSentence;
+
+/**
+ * Groups the sentences of concurrent requests into batches parsed together (micro-batching).<br/>
+ *
+ * A batch is dispatched when it reaches the maximum batch size or when its oldest sentence has waited the maximum wait time.
+ * The number of sentences waiting to be parsed is bounded: the requests that would exceed it are refused (backpressure).
+ * The sentences of the requests cancelled before being parsed (see {@link Request#cancel() cancel}) are removed, so that they are
+ * neither parsed nor counted.
+ *
+ * @param <T> input of the parser (sentence string or list of tokens)
+ */
+final class MateRequestBatcher<T> {
+
+	private static Logger logger = Logger.getLogger(MateRequestBatcher.class);
+
+	/**
+	 * Parser of a batch of inputs.
+	 *
+	 * @param <T>
+	 */
+	interface BatchParser<T> {
+		/**
+		 * @param inputs
+		 * @return the parsed sentences, in the same order of the inputs (null elements for the inputs that cannot be parsed)
+		 */
+		List<ParsedSentence> parse(List<T> inputs);
+	}
+
+	/**
+	 * The sentences of a request, parsed in one or more batches.
+	 *
+	 */
+	static final class Request {
+
+		private final ParsedSentence[] results;
+
+		private final CountDownLatch done;
+
+		private final MateRequestBatcher<?> batcher;
+
+		private volatile boolean cancelled = false;
+
+		private Request(int sentenceNumber, MateRequestBatcher<?> batcher) {
+			this.results = new ParsedSentence[sentenceNumber];
+			this.done = new CountDownLatch(sentenceNumber);
+			this.batcher = batcher;
+		}
+
+		/**
+		 * Wait until all the sentences of the request are parsed.
+		 *
+		 * @param timeoutMillis 0 to wait without time limit
+		 * @return the parsed sentences, in the same order of the request (null elements for the sentences that cannot be parsed),
+		 * null if the time limit expired: then the request is cancelled
+		 * @throws InterruptedException
+		 */
+		List<ParsedSentence> await(long timeoutMillis) throws InterruptedException {
+			if(timeoutMillis > 0l) {
+				if(!done.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+					cancel();
+					return null;
+				}
+			}
+			else {
+				done.await();
+			}
+
+			List<ParsedSentence> retSentences = new ArrayList<ParsedSentence>(results.length);
+			synchronized(this) {
+				for(ParsedSentence result : results) {
+					retSentences.add(result);
+				}
+			}
+			return retSentences;
+		}
+
+		/**
+		 * Cancel the request: its sentences not yet parsed are removed from the batcher. Nothing is done if all the sentences
+		 * are already parsed.
+		 *
+		 */
+		void cancel() {
+			if(cancelled || done.getCount() == 0l) {
+				return;
+			}
+			cancelled = true;
+			batcher.remove(this);
+		}
+
+		boolean isCancelled() {
+			return cancelled;
+		}
+
+		private void complete(int index, ParsedSentence result) {
+			synchronized(this) {
+				results[index] = result;
+			}
+			done.countDown();
+		}
+	}
+
+	/**
+	 * A sentence waiting to be parsed.
+	 *
+	 */
+	private static final class PendingSentence<T> {
+
+		private final T input;
+		private final Request request;
+		private final int index;
+		private final long arrivalNanos;
+
+		private PendingSentence(T input, Request request, int index, long arrivalNanos) {
+			this.input = input;
+			this.request = request;
+			this.index = index;
+			this.arrivalNanos = arrivalNanos;
+		}
+	}
+
+	private final BatchParser<T> batchParser;
+
+	private final int maxBatchSize;
+
+	private final long maxWaitNanos;
+
+	private final int maxPendingSentences;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition sentencesAdded = lock.newCondition();
+
+	private final ArrayDeque<PendingSentence<T>> pendingSentences = new ArrayDeque<PendingSentence<T>>();
+
+	private boolean stopped = false;
+
+	private final List<Thread> dispatchers = new ArrayList<Thread>();
+
+	/**
+	 * Create a batcher and start its dispatcher threads.
+	 *
+	 * @param name name of the dispatcher threads
+	 * @param batchParser
+	 * @param maxBatchSize maximum number of sentences of a batch
+	 * @param maxWaitMillis maximum time a sentence waits for the batch to be filled
+	 * @param maxPendingSentences maximum number of sentences waiting to be parsed
+	 * @param dispatcherNumber number of batches parsed at the same time
+	 */
+	MateRequestBatcher(String name, BatchParser<T> batchParser, int maxBatchSize, long maxWaitMillis, int maxPendingSentences, int dispatcherNumber) {
+		this.batchParser = batchParser;
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.maxWaitNanos = Math.max(0l, maxWaitMillis) * 1000000l;
+		this.maxPendingSentences = Math.max(1, maxPendingSentences);
+
+		for(int d = 0; d < Math.max(1, dispatcherNumber); d++) {
+			Thread dispatcher = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					dispatch();
+				}
+			}, name + "-" + d);
+			dispatcher.setDaemon(true);
+			dispatchers.add(dispatcher);
+			dispatcher.start();
+		}
+	}
+
+	/**
+	 * Submit the sentences of a request.
+	 *
+	 * @param inputs
+	 * @return the request, to wait for the parsed sentences, null if the request is refused because too many sentences are waiting
+	 * to be parsed (including the ones of the request) or the batcher is stopped
+	 */
+	Request submit(List<T> inputs) {
+		Request request = new Request(inputs.size(), this);
+		if(inputs.size() == 0) {
+			return request;
+		}
+
+		lock.lock();
+		try {
+			if(stopped || pendingSentences.size() + inputs.size() > maxPendingSentences) {
+				return null;
+			}
+			long arrivalNanos = System.nanoTime();
+			for(int i = 0; i < inputs.size(); i++) {
+				pendingSentences.add(new PendingSentence<T>(inputs.get(i), request, i, arrivalNanos));
+			}
+			sentencesAdded.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+		return request;
+	}
+
+	/**
+	 * Remove the sentences of a cancelled request that are waiting to be parsed.
+	 *
+	 * @param request
+	 */
+	private void remove(Request request) {
+		lock.lock();
+		try {
+			Iterator<PendingSentence<T>> sentenceIterator = pendingSentences.iterator();
+			while(sentenceIterator.hasNext()) {
+				if(sentenceIterator.next().request == request) {
+					sentenceIterator.remove();
+				}
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Number of sentences waiting to be parsed.
+	 *
+	 * @return
+	 */
+	int getPendingSentenceCount() {
+		lock.lock();
+		try {
+			return pendingSentences.size();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stop accepting requests: the sentences already submitted are parsed, then the dispatcher threads end.
+	 *
+	 */
+	void stop() {
+		lock.lock();
+		try {
+			stopped = true;
+			sentencesAdded.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void dispatch() {
+		while(true) {
+			List<PendingSentence<T>> batch = null;
+			try {
+				batch = nextBatch();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if(batch == null) {
+				return;
+			}
+
+			// The sentences of the requests cancelled after the batch was formed are not parsed
+			for(int s = batch.size() - 1; s >= 0; s--) {
+				if(batch.get(s).request.isCancelled()) {
+					batch.remove(s);
+				}
+			}
+			if(batch.isEmpty()) {
+				continue;
+			}
+
+			List<T> inputs = new ArrayList<T>(batch.size());
+			for(PendingSentence<T> sentence : batch) {
+				inputs.add(sentence.input);
+			}
+			List<ParsedSentence> results = null;
+			try {
+				results = batchParser.parse(inputs);
+			} catch (Throwable e) {
+				// The sentences of the batch are completed as not parsed and the dispatcher goes on with the next batch
+				logger.error("Error parsing a batch of " + inputs.size() + " sentences: " + e.getMessage());
+			}
+			for(int s = 0; s < batch.size(); s++) {
+				batch.get(s).request.complete(batch.get(s).index, (results != null && s < results.size()) ? results.get(s) : null);
+			}
+		}
+	}
+
+	/**
+	 * Wait for the next batch: full or with its oldest sentence waiting since the maximum wait time.
+	 *
+	 * @return null if the batcher is stopped and there are no more sentences to parse
+	 * @throws InterruptedException
+	 */
+	private List<PendingSentence<T>> nextBatch() throws InterruptedException {
+		lock.lock();
+		try {
+			while(true) {
+				if(pendingSentences.isEmpty()) {
+					if(stopped) {
+						return null;
+					}
+					sentencesAdded.await();
+					continue;
+				}
+
+				long waitNanos = pendingSentences.peek().arrivalNanos + maxWaitNanos - System.nanoTime();
+				if(pendingSentences.size() >= maxBatchSize || waitNanos <= 0l || stopped) {
+					List<PendingSentence<T>> retBatch = new ArrayList<PendingSentence<T>>(Math.min(maxBatchSize, pendingSentences.size()));
+					while(retBatch.size() < maxBatchSize && !pendingSentences.isEmpty()) {
+						retBatch.add(pendingSentences.poll());
+					}
+					return retBatch;
+				}
+				sentencesAdded.awaitNanos(waitNanos);
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+}